@@ -0,0 +1,53 @@
+package crvs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import processing.core.PApplet;
+
+/**
+ * Sampling cost of a Crv as its modulation tree gets deeper.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrvBenchmark {
+
+    @Param({"0", "1", "2", "4"})
+    int depth;
+
+    @Param({"1024"})
+    int numSamples;
+
+    Crv crv;
+    float pos;
+
+    @Setup
+    public void setup() {
+        PApplet parent = Fixtures.applet();
+        crv = Fixtures.modulated(parent, new Ops(parent), depth);
+    }
+
+    @Benchmark
+    public float componentAt() {
+        pos += 0.618034f;
+        if (pos >= 1f) pos -= 1f;
+        return crv.componentAt(Crv.Component.Y, pos);
+    }
+
+    @Benchmark
+    public float[] floatArray() {
+        return crv.floatArray(numSamples);
+    }
+
+    @Benchmark
+    public void vectorArray(Blackhole bh) {
+        bh.consume(crv.vectorArray(numSamples, true, true));
+    }
+
+}
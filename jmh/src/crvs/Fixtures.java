@@ -0,0 +1,67 @@
+package crvs;
+
+import java.util.Random;
+
+import processing.core.PApplet;
+import processing.core.PVector;
+
+/**
+ * Shared inputs for the benchmarks. Everything runs against a bare PApplet that
+ * is never started, so no window or renderer is needed.
+ */
+public class Fixtures {
+
+    /**
+     * Side of the square the random point sets are drawn from. The Voronoi and
+     * Delaunay bounding artifacts sit at +/-2000, so inputs stay well inside.
+     */
+    public static final float EXTENT = 1000f;
+
+    /**
+     * Applet p applet.
+     *
+     * @return a headless applet with a fixed seed
+     */
+    public static PApplet applet() {
+        PApplet parent = new PApplet();
+        parent.randomSeed(0);
+        parent.noiseSeed(0);
+        return parent;
+    }
+
+    /**
+     * Random points p vector [ ].
+     *
+     * @param n    the number of points
+     * @param seed the seed
+     * @return the points
+     */
+    public static PVector[] randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        PVector[] points = new PVector[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new PVector(random.nextFloat() * EXTENT, random.nextFloat() * EXTENT);
+        }
+        return points;
+    }
+
+    /**
+     * A curve whose amp, rate and phase are themselves modulated, depth levels deep.
+     *
+     * @param parent the parent
+     * @param ops    the ops
+     * @param depth  the modulation depth, 0 for a bare sine
+     * @return the crv
+     */
+    public static Crv modulated(PApplet parent, Ops ops, int depth) {
+        Crv crv = new Crv(parent, new Window(1000, 1000), ops.sine());
+        if (depth > 0) {
+            crv.amp = modulated(parent, ops, depth - 1);
+            crv.rate = new Crv(parent, ops.tri());
+            crv.phase = new Crv(parent, ops.saw());
+            crv.rateOffset = 2f;
+        }
+        return crv;
+    }
+
+}
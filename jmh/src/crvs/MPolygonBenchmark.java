@@ -0,0 +1,87 @@
+package crvs;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import processing.core.PVector;
+
+/**
+ * Point-in-polygon and interior sampling on a typical Voronoi cell.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MPolygonBenchmark {
+
+    @Param({"UNIFORM", "POISSON", "HALTON", "SOBOL"})
+    MPolygon.Sampling sampling;
+
+    @Param({"256"})
+    int numPoints;
+
+    MPolygon cell;
+    float[] queries;
+    float[] buffer;
+    long seed;
+
+    @Setup
+    public void setup() {
+        PVector[] sites = Fixtures.randomPoints(200, 7);
+        MPolygon[] regions = new Voronoi(sites).getRegions();
+
+        // the cell around the site closest to the middle is bounded and typical
+        int closest = 0;
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < sites.length; i++) {
+            float dx = sites[i].x - Fixtures.EXTENT / 2;
+            float dy = sites[i].y - Fixtures.EXTENT / 2;
+            if (dx * dx + dy * dy < best) {
+                best = dx * dx + dy * dy;
+                closest = i;
+            }
+        }
+        cell = regions[closest];
+
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < cell.count(); i++) {
+            float[] c = cell.getCoords()[i];
+            minX = Math.min(minX, c[0]);
+            minY = Math.min(minY, c[1]);
+            maxX = Math.max(maxX, c[0]);
+            maxY = Math.max(maxY, c[1]);
+        }
+        Random random = new Random(3);
+        queries = new float[1024 * 2];
+        for (int i = 0; i < queries.length; i += 2) {
+            queries[i] = minX + random.nextFloat() * (maxX - minX);
+            queries[i + 1] = minY + random.nextFloat() * (maxY - minY);
+        }
+        buffer = new float[numPoints * 2];
+    }
+
+    @Benchmark
+    public int contains() {
+        int inside = 0;
+        for (int i = 0; i < queries.length; i += 2) {
+            if (cell.contains(queries[i], queries[i + 1])) inside++;
+        }
+        return inside;
+    }
+
+    @Benchmark
+    public int pointsWithin() {
+        return cell.pointsWithin(buffer, numPoints, sampling, seed++);
+    }
+
+    @Benchmark
+    public void getPointsWithin(Blackhole bh) {
+        bh.consume(cell.getPointsWithin(numPoints, sampling, seed++));
+    }
+
+}
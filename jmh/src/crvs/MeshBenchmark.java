@@ -0,0 +1,43 @@
+package crvs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import processing.core.PVector;
+
+/**
+ * Construction cost of Delaunay and Hull from 1k to 1M random points. Voronoi
+ * has its own VoronoiBenchmark over the same sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class MeshBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int numPoints;
+
+    PVector[] points;
+    float[][] coords;
+
+    @Setup
+    public void setup() {
+        points = Fixtures.randomPoints(numPoints, 1);
+        coords = Utils.v2f(points);
+    }
+
+    @Benchmark
+    public Delaunay delaunay() {
+        return new Delaunay(points);
+    }
+
+    @Benchmark
+    public Hull hull() {
+        return new Hull(coords);
+    }
+
+}
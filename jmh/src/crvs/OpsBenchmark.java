@@ -0,0 +1,96 @@
+package crvs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import processing.core.PApplet;
+
+/**
+ * Cost of each Ops primitive, evaluated across one block of positions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpsBenchmark {
+
+    @Param({
+            "c", "phasor", "saw", "tri", "sine", "cos", "tan", "asin", "acos", "pulse",
+            "easeIn", "easeOut", "easeInOut", "easeOutIn",
+            "random", "gaussian", "perlin", "table", "timeseries",
+            "bipolarize", "rectify", "mult", "bias", "phase", "rate", "ring",
+            "fold", "lowPassFilter", "chain", "choose"
+    })
+    String op;
+
+    @Param({"1024"})
+    int blockSize;
+
+    FloatOp floatOp;
+    float[] out;
+
+    @Setup
+    public void setup() {
+        PApplet parent = Fixtures.applet();
+        float[] table = new float[4096];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (float) Math.sin(i * Math.PI * 2 / table.length);
+        }
+        Ops ops = new Ops(parent, table);
+        floatOp = create(ops, op);
+        out = new float[blockSize];
+    }
+
+    static FloatOp create(Ops ops, String name) {
+        switch (name) {
+            case "c": return ops.c(0.5f);
+            case "phasor": return ops.phasor();
+            case "saw": return ops.saw();
+            case "tri": return ops.tri();
+            case "sine": return ops.sine();
+            case "cos": return ops.cos();
+            case "tan": return ops.tan();
+            case "asin": return ops.asin();
+            case "acos": return ops.acos();
+            case "pulse": return ops.pulse();
+            case "easeIn": return ops.easeIn();
+            case "easeOut": return ops.easeOut();
+            case "easeInOut": return ops.easeInOut();
+            case "easeOutIn": return ops.easeOutIn();
+            case "random": return ops.random();
+            case "gaussian": return ops.gaussian();
+            case "perlin": return ops.perlin(ops.phasor());
+            case "table": return ops.table();
+            case "timeseries": {
+                float[] series = new float[10_000];
+                for (int i = 0; i < series.length; i++) series[i] = (float) Math.sin(i * 0.01);
+                return ops.timeseries(series);
+            }
+            case "bipolarize": return ops.bipolarize(ops.sine());
+            case "rectify": return ops.rectify(ops.sine());
+            case "mult": return ops.mult(ops.sine(), 0.5f);
+            case "bias": return ops.bias(ops.sine(), 0.25f);
+            case "phase": return ops.phase(ops.sine(), 0.25f);
+            case "rate": return ops.rate(ops.sine(), 3f);
+            case "ring": return ops.ring(ops.sine(), ops.tri());
+            case "fold": return ops.fold(ops.mult(ops.sine(), 2f));
+            case "lowPassFilter": return ops.lowPassFilter(ops.sine(), 64);
+            case "chain": return ops.chain(new FloatOp[] { ops.sine(), ops.easeIn(), ops.tri() });
+            case "choose": return ops.choose(new FloatOp[] { ops.sine(), ops.tri(), ops.saw() });
+            default: throw new IllegalArgumentException("Unknown op " + name);
+        }
+    }
+
+    @Benchmark
+    public float[] block() {
+        float step = 1f / blockSize;
+        for (int i = 0; i < blockSize; i++) {
+            out[i] = floatOp.apply(i * step);
+        }
+        return out;
+    }
+
+}
@@ -0,0 +1,82 @@
+package crvs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.midi.InvalidMidiDataException;
+
+import org.openjdk.jmh.annotations.*;
+
+import processing.core.PApplet;
+
+/**
+ * Offline MIDI rendering, through the javax.sound.midi Sequence path and through
+ * the primitive streaming writer. A fresh Sqnc is built per invocation because
+ * render() appends to its tracks.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+public class SqncBenchmark {
+
+    @Param({"8"})
+    int numTracks;
+
+    @Param({"10000"})
+    int songLengthTicks;
+
+    Sqnc sqnc;
+    File file;
+    PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void silence() throws IOException {
+        // render() prints every event; keep that out of the measurement
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        file = File.createTempFile("crvs-bench", ".mid");
+        file.deleteOnExit();
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() throws InvalidMidiDataException {
+        PApplet parent = Fixtures.applet();
+        Ops ops = new Ops(parent);
+        sqnc = new Sqnc(songLengthTicks);
+        for (int i = 0; i < numTracks; i++) {
+            Crv pitch = new Crv(parent, ops.sine());
+            pitch.ampOffset = 48;
+            pitch.biasOffset = 36;
+            Crv velocity = new Crv(parent, ops.tri());
+            velocity.ampOffset = 100;
+            sqnc.createTrack(i % 16, pitch, velocity, new NR(i, 0, i + 1));
+            Crv cutoff = new Crv(parent, ops.saw());
+            cutoff.ampOffset = 127;
+            sqnc.trks.get(i).setCntrl(74, cutoff);
+        }
+    }
+
+    @Benchmark
+    public Sqnc render() throws IOException, InvalidMidiDataException {
+        sqnc.render();
+        return sqnc;
+    }
+
+    @Benchmark
+    public Sqnc write() throws IOException {
+        sqnc.write(file);
+        return sqnc;
+    }
+
+}
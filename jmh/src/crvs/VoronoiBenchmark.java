@@ -0,0 +1,36 @@
+package crvs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import processing.core.PVector;
+
+/**
+ * Construction cost of Voronoi from 1k to 1M random points. Edge discovery sorts
+ * the hull's face edges, O(f log f), so it no longer limits the sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class VoronoiBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int numPoints;
+
+    PVector[] points;
+
+    @Setup
+    public void setup() {
+        points = Fixtures.randomPoints(numPoints, 1);
+    }
+
+    @Benchmark
+    public Voronoi voronoi() {
+        return new Voronoi(points);
+    }
+
+}
@@ -0,0 +1,36 @@
+package crvs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import processing.core.PApplet;
+
+/**
+ * All-pairs web edges between points sampled from a curve.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebEdgesBenchmark {
+
+    @Param({"100", "500", "1000"})
+    int numPoints;
+
+    Crv crv;
+
+    @Setup
+    public void setup() {
+        PApplet parent = Fixtures.applet();
+        crv = Fixtures.modulated(parent, new Ops(parent), 1);
+    }
+
+    @Benchmark
+    public float[][] getWebEdges() {
+        return crv.getWebEdges(numPoints, true, true);
+    }
+
+}
@@ -0,0 +1,73 @@
+package crvs;
+
+import static java.time.Duration.ofSeconds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import processing.core.PVector;
+
+/**
+ * Guards the mesh paths that used to be quadratic in the number of points. The
+ * budgets are loose, several times the time on a single core, so only a return
+ * to O(n^2) fails them.
+ */
+class MeshPerfTest {
+
+    private static PVector[] points(int n) {
+        Random random = new Random(n);
+        PVector[] points = new PVector[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new PVector(random.nextFloat() * 1000, random.nextFloat() * 1000);
+        }
+        return points;
+    }
+
+    @Test
+    void voronoiOf20kSites() {
+        // quadratic edge discovery took minutes here
+        PVector[] sites = points(20_000);
+        Voronoi voronoi = assertTimeout(ofSeconds(30), () -> new Voronoi(sites));
+        assertEquals(sites.length, voronoi.getRegions().length);
+        float[] xs = new float[100_000];
+        float[] ys = new float[100_000];
+        Random random = new Random(1);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextFloat() * 1000;
+            ys[i] = random.nextFloat() * 1000;
+        }
+        int[] out = new int[xs.length];
+        assertTimeout(ofSeconds(5), () -> voronoi.locate(xs, ys, out));
+    }
+
+    @Test
+    void graphOf20kPoints() {
+        Graph g = new Delaunay(points(20_000)).graph();
+        float[] distances = new float[g.nodeCount];
+        int[] labels = new int[g.nodeCount];
+        assertTimeout(ofSeconds(5), () -> {
+            g.dijkstra(0, distances, null);
+            g.components(labels);
+            assertTrue(g.mst().length > 0);
+            assertTrue(g.gabriel().length >= g.relativeNeighborhood().length);
+        });
+    }
+
+    @Test
+    void simplifyOneMillionPoints() {
+        float[] xy = new float[2_000_000];
+        for (int i = 0; i < xy.length / 2; i++) {
+            xy[i * 2] = i;
+            xy[i * 2 + 1] = (float) Math.sin(i * 1e-3);
+        }
+        for (Simplify.Method method : Simplify.Method.values()) {
+            float[] out = assertTimeout(ofSeconds(10), () -> Simplify.simplify(method, xy, 0.1f, false));
+            assertTrue(out.length < xy.length / 10, method + " kept " + out.length / 2 + " points");
+        }
+    }
+
+}
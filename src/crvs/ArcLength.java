@@ -0,0 +1,151 @@
+package crvs;
+
+import processing.core.PVector;
+
+/**
+ * A cumulative arc-length table for a sampled path: the length of the polyline
+ * up to each sample, against the curve position the sample was taken at. It maps
+ * between curve position and distance travelled, so points can be spaced evenly
+ * along a curve rather than evenly in position, where they bunch up on steep
+ * stretches.
+ * <p>
+ * Lookups in either direction are a binary search and a linear interpolation.
+ * evenPositions(n) walks the table once for a whole set of points. op() is the
+ * same map as a FloatOp, for the samplingRateOp parameter of vectorArray and
+ * friends.
+ */
+public class ArcLength {
+
+    private final float[] positions;
+    private final float[] lengths;
+
+    /**
+     * Builds the table from the points of a path, in order.
+     *
+     * @param positions the curve position of each point, ascending
+     * @param xs        the x coordinates
+     * @param ys        the y coordinates
+     */
+    public ArcLength(float[] positions, float[] xs, float[] ys) {
+        int n = positions.length;
+        if (n < 2 || xs.length < n || ys.length < n) {
+            throw new IllegalArgumentException("Need at least 2 points and a coordinate for each position");
+        }
+        this.positions = positions.clone();
+        this.lengths = new float[n];
+        double sum = 0;
+        for (int i = 1; i < n; i++) {
+            double dx = xs[i] - xs[i - 1];
+            double dy = ys[i] - ys[i - 1];
+            double d = Math.sqrt(dx * dx + dy * dy);
+            if (d == d) {
+                sum += d;
+            }
+            this.lengths[i] = (float) sum;
+        }
+    }
+
+    /**
+     * Builds the table from the points of a path, in order.
+     *
+     * @param positions the curve position of each point, ascending
+     * @param points    the points
+     * @return the table
+     */
+    public static ArcLength of(float[] positions, PVector[] points) {
+        float[] xs = new float[points.length];
+        float[] ys = new float[points.length];
+        for (int i = 0; i < points.length; i++) {
+            xs[i] = points[i].x;
+            ys[i] = points[i].y;
+        }
+        return new ArcLength(positions, xs, ys);
+    }
+
+    /**
+     * Gets the length of the whole path.
+     *
+     * @return the length
+     */
+    public float length() {
+        return this.lengths[this.lengths.length - 1];
+    }
+
+    /**
+     * Gets the distance along the path at a curve position.
+     *
+     * @param pos the curve position
+     * @return the distance from the first point
+     */
+    public float lengthAt(float pos) {
+        return interpolate(this.positions, this.lengths, pos);
+    }
+
+    /**
+     * Gets the curve position a fraction of the way along the path.
+     *
+     * @param fraction the fraction of the length, 0..1
+     * @return the curve position
+     */
+    public float posAt(float fraction) {
+        return interpolate(this.lengths, this.positions, fraction * this.length());
+    }
+
+    /**
+     * Gets the curve positions of numPoints points evenly spaced along the path,
+     * the first and last at its ends.
+     *
+     * @param numPoints the number of points
+     * @return the curve positions, ascending
+     */
+    public float[] evenPositions(int numPoints) {
+        float[] out = new float[numPoints];
+        float total = this.length();
+        int last = this.lengths.length - 1;
+        int j = 0;
+        for (int i = 0; i < numPoints; i++) {
+            float target = numPoints > 1 ? total * i / (numPoints - 1) : 0;
+            while (j < last - 1 && this.lengths[j + 1] < target) {
+                j++;
+            }
+            out[i] = between(this.lengths, this.positions, j, target);
+        }
+        return out;
+    }
+
+    /**
+     * Gets the map from fraction of length to curve position as a FloatOp, to pass
+     * as a samplingRateOp.
+     *
+     * @return the op
+     */
+    public FloatOp op() {
+        return this::posAt;
+    }
+
+    /**
+     * Interpolates ys at x over the ascending xs.
+     */
+    private static float interpolate(float[] xs, float[] ys, float x) {
+        int lo = 0;
+        int hi = xs.length - 1;
+        // find the last segment starting at or below x
+        while (hi - lo > 1) {
+            int m = (lo + hi) >>> 1;
+            if (xs[m] <= x) {
+                lo = m;
+            } else {
+                hi = m;
+            }
+        }
+        return between(xs, ys, lo, x);
+    }
+
+    private static float between(float[] xs, float[] ys, int i, float x) {
+        float span = xs[i + 1] - xs[i];
+        float t = span > 0 ? (x - xs[i]) / span : 0;
+        t = Math.max(0, Math.min(1, t));
+        return ys[i] + (ys[i + 1] - ys[i]) * t;
+    }
+
+}
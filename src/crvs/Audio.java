@@ -0,0 +1,154 @@
+package crvs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Renders a set of Voices to interleaved PCM at a fixed sample rate, so the
+ * curves that drive a sketch's visuals can be heard or exported as audio.
+ * <pre>
+ * Audio audio = new Audio(48000, 2);
+ * audio.voices.add(new Voice(new Crv(this, ops.sine()), 220).envelope(env, 0, 2));
+ * audio.write(new File("out.wav"), 2.0);
+ * </pre>
+ * Each block is rendered voice by voice into scratch buffers, in parallel on the
+ * common fork-join pool when there is more than one voice, then mixed in voice
+ * order so the output does not depend on scheduling. As with Sqnc.write, curves
+ * built on Ops that call back into the PApplet (noise, random) share its state;
+ * render those with parallel set to false. An Audio is not itself thread safe.
+ */
+public class Audio {
+
+    /**
+     * Sample rate in Hz.
+     */
+    public final int sampleRate;
+
+    /**
+     * Channel count, 1 or 2.
+     */
+    public final int channels;
+
+    /**
+     * The voices mixed into the output.
+     */
+    public ArrayList<Voice> voices = new ArrayList<Voice>();
+
+    /**
+     * Whether voices are rendered in parallel.
+     */
+    public boolean parallel = true;
+
+    /**
+     * Frames per block when writing files.
+     */
+    public int blockSize = 1 << 14;
+
+    private float[][] scratch = new float[0][];
+
+    /**
+     * Instantiates a new Audio.
+     *
+     * @param sampleRate the sample rate in Hz
+     * @param channels   1 for mono, 2 for stereo
+     */
+    public Audio(int sampleRate, int channels) {
+        if (channels != 1 && channels != 2) {
+            throw new IllegalArgumentException("Channels must be 1 or 2, not " + channels);
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    /**
+     * Renders frames into out as interleaved samples, overwriting it. Samples are
+     * not clipped.
+     *
+     * @param out    the buffer, at least frames * channels long
+     * @param frame  the index of the first frame since the start of the stream
+     * @param frames the number of frames
+     */
+    public void render(float[] out, long frame, int frames) {
+        int count = this.voices.size();
+        float[][] buffers = this.scratch(count, frames);
+        IntStream indices = IntStream.range(0, count);
+        if (this.parallel && count > 1) {
+            indices = indices.parallel();
+        }
+        indices.forEach(v -> this.voices.get(v).render(buffers[v], frame, frames, this.sampleRate));
+
+        Arrays.fill(out, 0, frames * this.channels, 0f);
+        for (int v = 0; v < count; v++) {
+            float[] buffer = buffers[v];
+            if (this.channels == 1) {
+                for (int i = 0; i < frames; i++) {
+                    out[i] += buffer[i];
+                }
+            } else {
+                double angle = this.voices.get(v).pan * Math.PI / 2;
+                float left = (float) Math.cos(angle);
+                float right = (float) Math.sin(angle);
+                for (int i = 0; i < frames; i++) {
+                    out[i * 2] += buffer[i] * left;
+                    out[i * 2 + 1] += buffer[i] * right;
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders frames into out as interleaved 16-bit little-endian PCM, clipped to
+     * full scale, advancing its position.
+     *
+     * @param out    the buffer, with at least frames * channels * 2 bytes remaining
+     * @param frame  the index of the first frame since the start of the stream
+     * @param frames the number of frames
+     */
+    public void render(ByteBuffer out, long frame, int frames) {
+        float[] samples = new float[frames * this.channels];
+        this.render(samples, frame, frames);
+        toPcm16(samples, samples.length, out);
+    }
+
+    /**
+     * Streams the given duration to a 16-bit WAV file.
+     *
+     * @param file    the file
+     * @param seconds the duration in seconds
+     * @throws IOException the io exception
+     */
+    public void write(File file, double seconds) throws IOException {
+        WavWriter.write(file, this, Math.round(seconds * this.sampleRate));
+    }
+
+    /**
+     * Converts float samples to 16-bit little-endian PCM, clipping to full scale.
+     *
+     * @param in  the samples
+     * @param n   the number of samples
+     * @param out the buffer to write into, advancing its position
+     */
+    public static void toPcm16(float[] in, int n, ByteBuffer out) {
+        for (int i = 0; i < n; i++) {
+            float s = Math.max(-1f, Math.min(1f, in[i]));
+            short pcm = (short) Math.round(s * 32767f);
+            out.put((byte) pcm).put((byte) (pcm >> 8));
+        }
+    }
+
+    private float[][] scratch(int count, int frames) {
+        if (this.scratch.length < count || (count > 0 && this.scratch[0].length < frames)) {
+            float[][] grown = new float[Math.max(count, this.scratch.length)][];
+            for (int v = 0; v < grown.length; v++) {
+                grown[v] = new float[frames];
+            }
+            this.scratch = grown;
+        }
+        return this.scratch;
+    }
+
+}
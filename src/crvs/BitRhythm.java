@@ -0,0 +1,314 @@
+package crvs;
+
+/**
+ * A precompiled rhythm of up to 64 steps packed into a long, step i in bit i.
+ * <p>
+ * Where NR and ZR recompute or look up their pattern on every step, a BitRhythm
+ * resolves it once, so stepping is a shift and a mask, bulk reads come out as
+ * whole bit words, and density queries are popcounts.
+ * <p>
+ * The ZR banks are compiled into a flat registry of patterns and lengths when
+ * this class loads, indexed by bankIndex(bank, child). Edits made to ZR.Banks
+ * after that are not seen by zr().
+ * <p>
+ * peek() follows the rhythm a BitRhythm was compiled from: one from nr() re-reads
+ * the step just played like NR, any other reads the upcoming step like ZR.
+ */
+public class BitRhythm implements Rhythm {
+
+    /**
+     * The pattern bits, step i in bit i.
+     */
+    long bits;
+    /**
+     * The number of steps in the pattern, 1 to 64.
+     */
+    int length;
+    /**
+     * The current step.
+     */
+    int ix;
+    /**
+     * Whether peek() reads the upcoming step, as ZR does, rather than the one just
+     * played, as NR does.
+     */
+    boolean peekAhead = true;
+
+    /**
+     * Flat registry of ZR bank patterns, four children per BankName.
+     */
+    static final long[] BANK_PATTERNS;
+    /**
+     * Step counts matching BANK_PATTERNS.
+     */
+    static final int[] BANK_LENGTHS;
+
+    static {
+        ZR.BankName[] names = ZR.BankName.values();
+        BANK_PATTERNS = new long[names.length * 4];
+        BANK_LENGTHS = new int[names.length * 4];
+        for (ZR.BankName name : names) {
+            int[][] bank = ZR.getBank(name);
+            for (int child = 0; child < 4; child++) {
+                int[] pattern = bank[child];
+                BANK_PATTERNS[bankIndex(name, child)] = pack(pattern);
+                BANK_LENGTHS[bankIndex(name, child)] = pattern.length;
+            }
+        }
+    }
+
+    /**
+     * Instantiates a new Bit rhythm.
+     *
+     * @param bits   the pattern bits, step i in bit i
+     * @param length the number of steps, 1 to 64
+     */
+    public BitRhythm(long bits, int length) {
+        if (length < 1 || length > 64) {
+            throw new IllegalArgumentException("Rhythm length must be 1 to 64 steps, got " + length);
+        }
+        this.bits = bits & mask(length);
+        this.length = length;
+        this.ix = 0;
+    }
+
+    /**
+     * Compiles a pattern of 0/1 steps, as used by ZR.Banks and toTable().
+     *
+     * @param pattern the pattern
+     * @return the bit rhythm
+     */
+    public static BitRhythm of(int[] pattern) {
+        return new BitRhythm(pack(pattern), pattern.length);
+    }
+
+    /**
+     * Compiles the 16-step pattern NR plays for a prime, mask and factor.
+     *
+     * @param prime  the prime
+     * @param mask   the mask
+     * @param factor the factor
+     * @return the bit rhythm
+     */
+    public static BitRhythm nr(int prime, int mask, int factor) {
+        int pattern = NR.pattern(prime, mask, factor);
+        BitRhythm rhythm = new BitRhythm(Integer.reverse(pattern) >>> 16, 16);
+        rhythm.peekAhead = false;
+        return rhythm;
+    }
+
+    /**
+     * Compiles the pattern ZR plays for a bank, child and offset.
+     *
+     * @param bank   the bank
+     * @param child  the child
+     * @param offset the offset, rotates the pattern left
+     * @return the bit rhythm
+     */
+    public static BitRhythm zr(ZR.BankName bank, int child, int offset) {
+        int index = bankIndex(bank, child);
+        BitRhythm rhythm = new BitRhythm(BANK_PATTERNS[index], BANK_LENGTHS[index]);
+        return rhythm.rotate(offset);
+    }
+
+    /**
+     * Registry index of a bank's child pattern.
+     *
+     * @param bank  the bank
+     * @param child the child, wrapped to 0-3 like ZR
+     * @return the index into BANK_PATTERNS and BANK_LENGTHS
+     */
+    public static int bankIndex(ZR.BankName bank, int child) {
+        return bank.ordinal() * 4 + child % 4;
+    }
+
+    /**
+     * Rotates the pattern so that it starts offset steps later.
+     *
+     * @param offset the offset
+     * @return this rhythm
+     */
+    public BitRhythm rotate(int offset) {
+        int r = Math.floorMod(offset, length);
+        if (r != 0) {
+            bits = ((bits >>> r) | (bits << (length - r))) & mask(length);
+        }
+        return this;
+    }
+
+    /*
+     * STEPPING
+     */
+
+    @Override
+    public boolean next() {
+        boolean hit = ((bits >>> ix) & 1L) != 0;
+        ix = ix + 1 == length ? 0 : ix + 1;
+        return hit;
+    }
+
+    @Override
+    public boolean peek() {
+        if (peekAhead) {
+            // ZR: play the step and step back, which cannot go back past step 0
+            boolean hit = next();
+            if (ix > 0) ix--;
+            return hit;
+        }
+        // NR: step back and play the step, which at step 0 plays it
+        if (ix > 0) ix--;
+        return next();
+    }
+
+    @Override
+    public void reset() {
+        ix = 0;
+    }
+
+    /**
+     * Reads any step without moving the current step.
+     *
+     * @param step the step, wrapped to the pattern length
+     * @return true if the step is a hit
+     */
+    public boolean at(long step) {
+        return ((bits >>> (int) Math.floorMod(step, (long) length)) & 1L) != 0;
+    }
+
+    /**
+     * Advances n steps at once.
+     *
+     * @param n the number of steps, up to 64
+     * @return the steps played, the first in bit 0
+     */
+    public long nextN(int n) {
+        long steps = window(ix, n);
+        ix = (int) ((ix + (long) n) % length);
+        return steps;
+    }
+
+    /**
+     * Reads n consecutive steps starting at any step, wrapping around the pattern.
+     *
+     * @param step the first step
+     * @param n    the number of steps, up to 64
+     * @return the steps, the first in bit 0
+     */
+    public long window(long step, int n) {
+        if (n < 0 || n > 64) {
+            throw new IllegalArgumentException("Window must be 0 to 64 steps, got " + n);
+        }
+        long out = 0;
+        int filled = 0;
+        int pos = (int) Math.floorMod(step, (long) length);
+        while (filled < n) {
+            int take = Math.min(length - pos, n - filled);
+            out |= ((bits >>> pos) & mask(take)) << filled;
+            filled += take;
+            pos = 0;
+        }
+        return out;
+    }
+
+    /**
+     * Writes numSteps steps from step 0 as 0/1 ints, the bulk form of NR.toTable
+     * and ZR.to_table. The current step is not moved.
+     *
+     * @param out      the table to fill
+     * @param numSteps the number of steps
+     */
+    public void fillTable(int[] out, int numSteps) {
+        for (int step = 0; step < numSteps; step += 64) {
+            int n = Math.min(64, numSteps - step);
+            long word = window(step, n);
+            for (int i = 0; i < n; i++) {
+                out[step + i] = (int) ((word >>> i) & 1L);
+            }
+        }
+    }
+
+    /**
+     * To table int [ ].
+     *
+     * @param numSteps the num steps
+     * @return the int [ ]
+     */
+    public int[] toTable(int numSteps) {
+        int[] table = new int[numSteps];
+        fillTable(table, numSteps);
+        return table;
+    }
+
+    /*
+     * DENSITY
+     */
+
+    /**
+     * Hits int.
+     *
+     * @return the number of hits in one cycle of the pattern
+     */
+    public int hits() {
+        return Long.bitCount(bits);
+    }
+
+    /**
+     * Density float.
+     *
+     * @return the fraction of steps that are hits
+     */
+    public float density() {
+        return (float) hits() / length;
+    }
+
+    /**
+     * Counts the hits in any span of steps.
+     *
+     * @param step the first step
+     * @param n    the number of steps
+     * @return the number of hits
+     */
+    public long hitsIn(long step, long n) {
+        long cycles = n / length;
+        int rest = (int) (n % length);
+        long count = cycles * hits();
+        if (rest > 0) {
+            count += Long.bitCount(window(step, rest));
+        }
+        return count;
+    }
+
+    /**
+     * Gets bits.
+     *
+     * @return the pattern bits, step i in bit i
+     */
+    public long getBits() {
+        return bits;
+    }
+
+    /**
+     * Length int.
+     *
+     * @return the number of steps
+     */
+    public int length() {
+        return length;
+    }
+
+    private static long pack(int[] pattern) {
+        if (pattern.length > 64) {
+            throw new IllegalArgumentException("Pattern longer than 64 steps: " + pattern.length);
+        }
+        long packed = 0;
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i] != 0) packed |= 1L << i;
+        }
+        return packed;
+    }
+
+    private static long mask(int n) {
+        return n >= 64 ? -1L : (1L << n) - 1;
+    }
+
+}
@@ -4,6 +4,7 @@ package crvs;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import processing.core.PApplet;
 import processing.core.PConstants;
@@ -27,13 +28,23 @@ import processing.data.FloatList;
  * Processing environment.
  */
 @SuppressWarnings("unused")
-public class Crv implements FloatOp {
+public class Crv implements FloatOp, DoubleOp {
 
 	/**
 	 * Static PVector representing the universal center of all curves.
 	 */
 	static public PVector uCenter = new PVector(0.5f, 0.5f);
 
+	/**
+	 * Source of curve ids.
+	 */
+	static private final AtomicInteger ids = new AtomicInteger();
+
+	/**
+	 * Identifies this curve in metrics, unique within the running sketch.
+	 */
+	public final int id = ids.incrementAndGet();
+
 	/**
 	 * Parent PApplet, typically represents the main sketch.
 	 */
@@ -252,7 +263,7 @@ public class Crv implements FloatOp {
 		this.scale = new PVector(1, 1);
 		this.bounding = Bounding.NONE;
 		if (op == null) {
-			this.op = pos -> pos;
+			this.op = OpSpec.register(pos -> pos, "phasor");
 		} else {
 			this.op = op;
 		}
@@ -432,6 +443,21 @@ public class Crv implements FloatOp {
 		return y;
 	}
 
+	/**
+	 * Depth of the modulation tree rooted at this curve: 1 for a curve without
+	 * amp, rate, phase or bias children.
+	 *
+	 * @return the depth
+	 */
+	public int depth() {
+		int depth = 0;
+		if (this.amp != null) depth = Math.max(depth, this.amp.depth());
+		if (this.rate != null) depth = Math.max(depth, this.rate.depth());
+		if (this.phase != null) depth = Math.max(depth, this.phase.depth());
+		if (this.bias != null) depth = Math.max(depth, this.bias.depth());
+		return depth + 1;
+	}
+
 	/**
 	 * Evaluates the curve at the given position for the specified Component.
 	 * <p>
@@ -446,6 +472,7 @@ public class Crv implements FloatOp {
 	 */
 	public float componentAt(Component component, float pos) {
 		if (component == Component.X) return pos;
+		Metrics.count(Metric.CRV_SAMPLES, this.id, 1);
 		float modPos = this.calcPos(pos);
 		float value = this.calculate(modPos);
 		value = this.bipolarize(value);
@@ -478,6 +505,148 @@ public class Crv implements FloatOp {
 		return this.componentAt(Component.X, pos);
 	}
 
+	/*
+	 * DOUBLE PRECISION
+	 */
+
+	/**
+	 * Double-precision counterpart of calcPos(float). Rate and phase are applied
+	 * and the result reduced to [0, 1] in double, so positions far from the origin
+	 * and large rate multipliers keep their fractional part.
+	 *
+	 * @param pos Original position.
+	 * @return Calculated position.
+	 */
+	protected double calcPos(double pos) {
+		pos = Math.abs(pos);
+		pos = pos * this.rateOffset;
+		if (pos > 1.0)
+			pos = pos % 1.0;
+		if (this.rate != null) {
+			pos = pos * this.rate.yAt(pos);
+		}
+		if (this.phase != null) {
+			pos = (pos + this.phase.yAt(pos));
+		}
+		pos = pos + this.phaseOffset;
+		if (pos > 1.0)
+			return pos % 1.0;
+		return pos;
+	}
+
+	/**
+	 * Applies the curve function to a reduced position, through the op's double
+	 * path if it has one.
+	 *
+	 * @param pos The position in the curve, a value between 0 and 1.
+	 * @return The output of the curve function at the given position.
+	 */
+	protected double calculate(double pos) {
+		if (this.op instanceof DoubleOp) {
+			return this.quantize(((DoubleOp) this.op).apply(pos));
+		}
+		return this.quantize(this.op.apply((float) pos));
+	}
+
+	/**
+	 * Double-precision counterpart of ampBias(float, float).
+	 *
+	 * @param value The value to transform.
+	 * @param pos   The position in the curve, a value between 0 and 1.
+	 * @return The transformed value.
+	 */
+	protected double ampBias(double value, double pos) {
+		double ampFactor = this.ampOffset;
+		if (this.amp != null) {
+			ampFactor *= this.amp.yAt(pos);
+		}
+		ampFactor = ampFactor/2.0;
+		value = value * ampFactor + ampFactor;
+		if (this.bias != null) {
+			value += this.bias.yAt(pos);
+		}
+		return value + this.biasOffset;
+	}
+
+	/**
+	 * Quantize double.
+	 *
+	 * @param y the y
+	 * @return the double
+	 */
+	protected double quantize(double y) {
+		if (this.quantization > 1) {
+			double levelSize = 1.0 / (this.quantization - 1);
+			long quantizedLevel = Math.round(y / levelSize);
+			return quantizedLevel * levelSize;
+		}
+		return y;
+	}
+
+	/**
+	 * Evaluates the curve in double precision. Equivalent to
+	 * componentAt(Component, float) for positions in [0, 1], but the position may
+	 * also be a long timeline, e.g. seconds or ticks times a rate, without the
+	 * phase drift of float arithmetic. Child curves are evaluated on their double
+	 * path too.
+	 *
+	 * @param component Component.X or Component.Y
+	 * @param pos       The original position.
+	 * @return The value of the curve at the transformed position.
+	 */
+	public double componentAt(Component component, double pos) {
+		if (component == Component.X) return pos;
+		Metrics.count(Metric.CRV_SAMPLES, this.id, 1);
+		double modPos = this.calcPos(pos);
+		double value = this.calculate(modPos);
+		value = value * 2.0 - 1.0;
+		value = this.ampBias(value, modPos);
+		return value;
+	}
+
+	/**
+	 * Evaluates the Y component in double precision.
+	 *
+	 * @param pos The original position.
+	 * @return The value of the curve at the transformed position.
+	 * @see #componentAt(Component, double)
+	 */
+	public double yAt(double pos) {
+		return this.componentAt(Component.Y, pos);
+	}
+
+	/**
+	 * Applies the curve function to the given position in double precision.
+	 *
+	 * @param pos the position
+	 * @return the output of the curve function
+	 */
+	public double apply(double pos) {
+		return this.calculate(pos);
+	}
+
+	/**
+	 * Samples the curve in double precision over an arbitrary span of the timeline.
+	 * Sample i is taken at from + i * (to - from) / numSamples, so consecutive
+	 * spans line up without a duplicated or missing sample.
+	 *
+	 * @param numSamples The number of samples to evaluate.
+	 * @param from       The position of the first sample.
+	 * @param to         The position just past the last sample.
+	 * @return An array of y-values evaluated from the curve.
+	 */
+	public double[] doubleArray(int numSamples, double from, double to) {
+		JfrEvents.CrvSample event = new JfrEvents.CrvSample();
+		event.begin();
+		double step = (to - from) / numSamples;
+		double[] table = new double[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			table[i] = this.yAt(from + i * step);
+		}
+		this.commit(event, numSamples);
+		return table;
+	}
+
 	/**
 	 * Wraps a given value into a specified range [min, max).
 	 *
@@ -568,12 +737,16 @@ public class Crv implements FloatOp {
 	 * @return An array of y-values evaluated from the curve.
 	 */
 	public float[] floatArray(int numSamples, Component component) {
+		if (Metrics.enabled()) Metrics.gauge(Metric.CRV_DEPTH, this.id, this.depth());
+		JfrEvents.CrvSample event = new JfrEvents.CrvSample();
+		event.begin();
 		float step = 1f / numSamples;
 		float[] table = new float[numSamples];
 		for (int i = 0; i < numSamples; i++) {
 			float x = i * step;
 			table[i] = this.componentAt(component, x);
 		}
+		this.commit(event, numSamples);
 		return table;
 	}
 
@@ -988,6 +1161,9 @@ public class Crv implements FloatOp {
 	 * @return An array of PVectors representing points along the curve.
 	 */
 	public PVector[] vectorArray(int numPoints, boolean windowed, boolean transformed, FloatOp samplingRateOp) {
+		if (Metrics.enabled()) Metrics.gauge(Metric.CRV_DEPTH, this.id, this.depth());
+		JfrEvents.CrvSample event = new JfrEvents.CrvSample();
+		event.begin();
 		PVector[] points = new PVector[numPoints];
 		for (int i = 0; i < numPoints; i++) {
 			float x = (float) i / (numPoints - 1);
@@ -1000,9 +1176,28 @@ public class Crv implements FloatOp {
 				points[i] = this.uVector(x, transformed);
 			}
 		}
+		this.commit(event, numPoints);
 		return points;
 	}
 
+	private void commit(JfrEvents.CrvSample event, int points) {
+		if (event.shouldCommit()) {
+			event.curveId = this.id;
+			event.points = points;
+			event.depth = this.depth();
+			event.commit();
+		}
+	}
+
+	private void commit(JfrEvents.DrawBatch event, String call, int primitives) {
+		if (event.shouldCommit()) {
+			event.call = call;
+			event.curveId = this.id;
+			event.primitives = primitives;
+			event.commit();
+		}
+	}
+
 	/**
 	 * Generates an array of points along the curve.
 	 *
@@ -1061,6 +1256,260 @@ public class Crv implements FloatOp {
 		return this.vectorArray(this.resolution, windowed, transformed);
 	}
 
+	/**
+	 * Generates points along the curve, spaced by how much the curve bends rather
+	 * than evenly. Sampling starts from minPoints evenly spaced points; the span
+	 * whose midpoint lies furthest off the chord between its ends is then split,
+	 * and so on, until every midpoint is within tolerance of its chord or the
+	 * points number maxPoints. Flat stretches keep few points and edges, such as
+	 * those of pulse or fold, get many. The midpoint distance is measured where
+	 * the points end up, so tolerance is in pixels when windowed and in unit
+	 * coordinates otherwise.
+	 * <p>
+	 * Features narrower than the first even spacing can be missed, so minPoints
+	 * should resolve the fastest wiggle the curve is expected to have. Jitter is
+	 * applied after the spacing is chosen.
+	 *
+	 * @param minPoints   The number of evenly spaced points to start from, at least 2.
+	 * @param maxPoints   The most points to generate.
+	 * @param tolerance   The largest allowed distance between a span's midpoint and its chord.
+	 * @param windowed    Whether to scale the points to the window's dimensions.
+	 * @param transformed Whether to apply the curve's transformations to the points.
+	 * @return An array of PVectors representing points along the curve, in order.
+	 */
+	public PVector[] adaptiveVectorArray(int minPoints, int maxPoints, float tolerance, boolean windowed, boolean transformed) {
+		if (minPoints < 2 || maxPoints < minPoints) {
+			throw new IllegalArgumentException("Need 2 <= minPoints <= maxPoints, not " + minPoints + " and " + maxPoints);
+		}
+		if (Metrics.enabled()) Metrics.gauge(Metric.CRV_DEPTH, this.id, this.depth());
+		JfrEvents.CrvSample event = new JfrEvents.CrvSample();
+		event.begin();
+		// nodes are linked points, in order through next, and the pending midpoint of
+		// each span, held in mid until the span is split
+		int capacity = 2 * maxPoints;
+		float[] pos = new float[capacity];
+		float[] raw = new float[2 * capacity];
+		float[] out = new float[2 * capacity];
+		int[] next = new int[capacity];
+		int[] mid = new int[capacity];
+		// max-heap of spans over tolerance, by error
+		int[] heap = new int[maxPoints];
+		float[] errors = new float[capacity];
+		int heapSize = 0;
+		int nodes = 0;
+		for (int i = 0; i < minPoints; i++) {
+			this.place(nodes++, (float) i / (minPoints - 1), windowed, transformed, pos, raw, out);
+		}
+		for (int i = 0; i < minPoints - 1; i++) {
+			next[i] = i + 1;
+		}
+		next[minPoints - 1] = -1;
+		for (int a = 0; a < minPoints - 1; a++) {
+			mid[a] = nodes;
+			this.place(nodes++, (pos[a] + pos[a + 1]) / 2, windowed, transformed, pos, raw, out);
+			if (this.spanError(a, a + 1, mid[a], pos, out, errors) > tolerance) {
+				heapSize = heapPush(heap, heapSize, a, errors);
+			}
+		}
+		int points = minPoints;
+		while (heapSize > 0 && points < maxPoints) {
+			int a = heap[0];
+			heapSize = heapPop(heap, heapSize, errors);
+			int m = mid[a];
+			int b = next[a];
+			next[a] = m;
+			next[m] = b;
+			points++;
+			mid[a] = nodes;
+			this.place(nodes++, (pos[a] + pos[m]) / 2, windowed, transformed, pos, raw, out);
+			if (this.spanError(a, m, mid[a], pos, out, errors) > tolerance) {
+				heapSize = heapPush(heap, heapSize, a, errors);
+			}
+			mid[m] = nodes;
+			this.place(nodes++, (pos[m] + pos[b]) / 2, windowed, transformed, pos, raw, out);
+			if (this.spanError(m, b, mid[m], pos, out, errors) > tolerance) {
+				heapSize = heapPush(heap, heapSize, m, errors);
+			}
+		}
+		boolean jittered = this.jitterScale != 0.0f && this.jitterProbability > 0.0f;
+		PVector[] vectors = new PVector[points];
+		int i = 0;
+		for (int n = 0; n != -1; n = next[n]) {
+			if (jittered) {
+				PVector p = this.jitter(new PVector(raw[2 * n], raw[2 * n + 1]));
+				vectors[i++] = this.placed(p, windowed, transformed);
+			} else {
+				vectors[i++] = new PVector(out[2 * n], out[2 * n + 1]);
+			}
+		}
+		this.commit(event, nodes);
+		return vectors;
+	}
+
+	/**
+	 * Generates points along the curve, spaced by how much the curve bends, from
+	 * resolution / 16 evenly spaced points up to 4 * resolution points.
+	 *
+	 * @param tolerance The largest allowed distance between a span's midpoint and its chord.
+	 * @param windowed  Whether to scale the points to the window's dimensions.
+	 * @return An array of PVectors representing points along the curve, in order.
+	 * @see #adaptiveVectorArray(int, int, float, boolean, boolean)
+	 */
+	public PVector[] adaptiveVectorArray(float tolerance, boolean windowed) {
+		int minPoints = Math.max(2, this.resolution / 16);
+		return this.adaptiveVectorArray(minPoints, Math.max(minPoints, 4 * this.resolution), tolerance, windowed, true);
+	}
+
+	/**
+	 * Evaluates node n at pos, keeping the untransformed point in raw and the placed
+	 * point in out, as uVector and wVector would place it without jitter.
+	 */
+	private void place(int n, float pos, boolean windowed, boolean transformed, float[] positions, float[] raw, float[] out) {
+		float x = this.componentAt(Component.X, pos);
+		float y = this.componentAt(Component.Y, pos);
+		PVector p = this.placed(new PVector(x, y), windowed, transformed);
+		positions[n] = pos;
+		raw[2 * n] = x;
+		raw[2 * n + 1] = y;
+		out[2 * n] = p.x;
+		out[2 * n + 1] = p.y;
+	}
+
+	private PVector placed(PVector p, boolean windowed, boolean transformed) {
+		if (transformed) {
+			p = this.transform(p);
+		}
+		p.add(this.origin);
+		p = this.bounded(p);
+		return windowed ? this.windowed(p) : p;
+	}
+
+	/**
+	 * Distance of midpoint m from the chord a-b, stored as the error of span a. Spans
+	 * too short to split in float positions get no error.
+	 */
+	private float spanError(int a, int b, int m, float[] pos, float[] out, float[] errors) {
+		float error = 0;
+		if (pos[m] > pos[a] && pos[m] < pos[b]) {
+			float ax = out[2 * a], ay = out[2 * a + 1];
+			float dx = out[2 * b] - ax, dy = out[2 * b + 1] - ay;
+			float mx = out[2 * m] - ax, my = out[2 * m + 1] - ay;
+			float length = (float) Math.sqrt(dx * dx + dy * dy);
+			error = length > 0 ? Math.abs(dx * my - dy * mx) / length : (float) Math.sqrt(mx * mx + my * my);
+			if (error != error) {
+				error = Float.POSITIVE_INFINITY;
+			}
+		}
+		errors[a] = error;
+		return error;
+	}
+
+	private static int heapPush(int[] heap, int size, int span, float[] errors) {
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			if (errors[heap[parent]] >= errors[span]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = span;
+		return size;
+	}
+
+	private static int heapPop(int[] heap, int size, float[] errors) {
+		int last = heap[--size];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && errors[heap[child + 1]] > errors[heap[child]]) {
+				child++;
+			}
+			if (errors[heap[child]] <= errors[last]) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		if (size > 0) {
+			heap[i] = last;
+		}
+		return size;
+	}
+
+	/**
+	 * Builds a cumulative arc-length table for the curve from evenly spaced
+	 * samples, measured where the points end up, without jitter.
+	 *
+	 * @param numSamples  The number of samples in the table, at least 2.
+	 * @param windowed    Whether to measure in the window's dimensions.
+	 * @param transformed Whether to apply the curve's transformations to the points.
+	 * @return The arc-length table.
+	 */
+	public ArcLength arcLength(int numSamples, boolean windowed, boolean transformed) {
+		if (Metrics.enabled()) Metrics.gauge(Metric.CRV_DEPTH, this.id, this.depth());
+		JfrEvents.CrvSample event = new JfrEvents.CrvSample();
+		event.begin();
+		float[] positions = new float[numSamples];
+		float[] raw = new float[2 * numSamples];
+		float[] out = new float[2 * numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			this.place(i, (float) i / (numSamples - 1), windowed, transformed, positions, raw, out);
+		}
+		float[] xs = new float[numSamples];
+		float[] ys = new float[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			xs[i] = out[2 * i];
+			ys[i] = out[2 * i + 1];
+		}
+		this.commit(event, numSamples);
+		return new ArcLength(positions, xs, ys);
+	}
+
+	/**
+	 * Gets a samplingRateOp that spaces points evenly along the curve, from an
+	 * arc-length table of 4 * resolution samples.
+	 *
+	 * @param windowed    Whether to measure in the window's dimensions.
+	 * @param transformed Whether to apply the curve's transformations to the points.
+	 * @return The sampling rate op.
+	 */
+	public FloatOp arcLengthRateOp(boolean windowed, boolean transformed) {
+		return this.arcLength(Math.max(2, 4 * this.resolution), windowed, transformed).op();
+	}
+
+	/**
+	 * Generates points evenly spaced along the curve rather than evenly spaced in
+	 * position. The curve is sampled once into an arc-length table of
+	 * max(resolution, 4 * numPoints) samples, then evaluated again at the position
+	 * of each point, so the points lie on the curve itself.
+	 *
+	 * @param numPoints   The number of points to generate.
+	 * @param windowed    Whether to scale the points to the window's dimensions.
+	 * @param transformed Whether to apply the curve's transformations to the points.
+	 * @return An array of PVectors evenly spaced along the curve.
+	 */
+	public PVector[] resampleByArcLength(int numPoints, boolean windowed, boolean transformed) {
+		ArcLength arc = this.arcLength(Math.max(2, Math.max(this.resolution, 4 * numPoints)), windowed, transformed);
+		float[] positions = arc.evenPositions(numPoints);
+		return this.vectorArray(numPoints, windowed, transformed, pos -> positions[Math.round(pos * (numPoints - 1))]);
+	}
+
+	/**
+	 * Generates points evenly spaced along the curve, applying transformations but
+	 * not window scaling.
+	 *
+	 * @param numPoints The number of points to generate.
+	 * @return An array of PVectors evenly spaced along the curve.
+	 */
+	public PVector[] resampleByArcLength(int numPoints) {
+		return this.resampleByArcLength(numPoints, false, true);
+	}
+
 	/*
 	 * PVECTOR ARRAY LIST UTILITIES
 	 */
@@ -1137,6 +1586,39 @@ public class Crv implements FloatOp {
 		return this.vectorList(this.resolution, windowed, transformed);
 	}
 
+	/**
+	 * Samples the curve into a primitive buffer of interleaved x, y pairs and
+	 * simplifies it, dropping the nearly collinear points a dense sampling is
+	 * mostly made of.
+	 *
+	 * @param numPoints   The number of points to sample before simplifying.
+	 * @param windowed    Whether to scale the points to the window's dimensions.
+	 * @param transformed Whether to apply the curve's transformations to the points.
+	 * @param method      The simplification method.
+	 * @param tolerance   The tolerance, as for Simplify, in pixels when windowed.
+	 * @return The points kept, interleaved.
+	 */
+	public float[] simplifiedPoints(int numPoints, boolean windowed, boolean transformed, Simplify.Method method, float tolerance) {
+		if (Metrics.enabled()) Metrics.gauge(Metric.CRV_DEPTH, this.id, this.depth());
+		JfrEvents.CrvSample event = new JfrEvents.CrvSample();
+		event.begin();
+		boolean jittered = this.jitterScale != 0.0f && this.jitterProbability > 0.0f;
+		float[] xy = new float[numPoints * 2];
+		for (int i = 0; i < numPoints; i++) {
+			float pos = (float) i / (numPoints - 1);
+			PVector p = new PVector(this.componentAt(Component.X, pos), this.componentAt(Component.Y, pos));
+			if (jittered) {
+				p = this.jitter(p);
+			}
+			p = this.placed(p, windowed, transformed);
+			xy[i * 2] = p.x;
+			xy[i * 2 + 1] = p.y;
+		}
+		this.commit(event, numPoints);
+		int kept = Simplify.simplify(method, xy, numPoints, tolerance, false, xy);
+		return Arrays.copyOf(xy, kept * 2);
+	}
+
 	/*
 	 * PSHAPE UTILITIES
 	 */
@@ -1166,6 +1648,34 @@ public class Crv implements FloatOp {
 		return s;
 	}
 
+	/**
+	 * Constructs a PShape object from the curve, simplified before its vertices
+	 * are added.
+	 *
+	 * @param close     Whether to close the shape.
+	 * @param numPoints The number of points to sample before simplifying.
+	 * @param windowed  Whether to scale the shape to the window's dimensions.
+	 * @param visible   Whether to make the shape visible.
+	 * @param method    The simplification method.
+	 * @param tolerance The tolerance, as for Simplify, in pixels when windowed.
+	 * @return A PShape object representing the curve.
+	 */
+	public PShape shape(boolean close, int numPoints, boolean windowed, boolean visible, Simplify.Method method, float tolerance) {
+		float[] xy = this.simplifiedPoints(numPoints, windowed, true, method, tolerance);
+		PShape s = this.parent.createShape();
+		s.setVisible(visible);
+		s.beginShape();
+		for (int i = 0; i < xy.length; i += 2) {
+			s.vertex(xy[i], xy[i + 1]);
+		}
+		if (close) {
+			s.endShape(PConstants.CLOSE);
+		} else {
+			s.endShape();
+		}
+		return s;
+	}
+
 	/**
 	 * Constructs an invisible PShape object from the curve without closing or
 	 * scaling it.
@@ -1383,6 +1893,52 @@ public class Crv implements FloatOp {
 		return this.voronoi(numPoints, windowed, transformed, null);
 	}
 
+	/**
+	 * Weighted voronoi, or power diagram, with cell sizes driven by a curve.
+	 * <p>
+	 * Sites are sampled as for voronoi, and each is weighted by weightOp at the same
+	 * position, read as a fraction of radius: a value v weights the site by
+	 * (v * radius)^2, so the site claims space like a circle of radius v * radius
+	 * and high values grow cells. Passing this curve as weightOp ties cell size to
+	 * the curve's own values.
+	 *
+	 * @param numPoints      the num points
+	 * @param windowed       the windowed
+	 * @param transformed    the transformed
+	 * @param samplingRateOp FloatOp to determine variable distribution of points along the curve
+	 * @param weightOp       FloatOp giving each site's radius as a fraction of radius
+	 * @param radius         the radius a weightOp value of 1 stands for
+	 * @return voronoi voronoi
+	 */
+	public Voronoi weightedVoronoi(int numPoints, boolean windowed, boolean transformed, FloatOp samplingRateOp, FloatOp weightOp, float radius) {
+		PVector[] points = this.vectorArray(numPoints, windowed, transformed, samplingRateOp);
+		float[] weights = new float[numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			float x = (float) i / (numPoints - 1);
+			if (samplingRateOp != null) {
+				x = samplingRateOp.apply(x);
+			}
+			float r = weightOp.apply(x) * radius;
+			weights[i] = r * r;
+		}
+		return new Voronoi(points, weights);
+	}
+
+	/**
+	 * Weighted voronoi, or power diagram, with cell sizes driven by a curve.
+	 *
+	 * @param numPoints   the num points
+	 * @param windowed    the windowed
+	 * @param transformed the transformed
+	 * @param weightOp    FloatOp giving each site's radius as a fraction of radius
+	 * @param radius      the radius a weightOp value of 1 stands for
+	 * @return voronoi voronoi
+	 * @see #weightedVoronoi(int, boolean, boolean, FloatOp, FloatOp, float)
+	 */
+	public Voronoi weightedVoronoi(int numPoints, boolean windowed, boolean transformed, FloatOp weightOp, float radius) {
+		return this.weightedVoronoi(numPoints, windowed, transformed, null, weightOp, radius);
+	}
+
 	/**
 	 * Voronoi edges float [ ] [ ].
 	 *
@@ -1495,6 +2051,52 @@ public class Crv implements FloatOp {
 		return d.getEdgs(resolution);
 	}
 
+	/**
+	 * Minimum spanning tree edges float [ ] [ ]: the shortest set of edges joining
+	 * every point, found by Kruskal over the Delaunay graph in O(n log n).
+	 *
+	 * @param numPoints   the num points
+	 * @param windowed    the windowed
+	 * @param transformed the transformed
+	 * @return float [ ] [ ]
+	 * @see Graph#mst()
+	 */
+	public float[][] mstEdges(int numPoints, boolean windowed, boolean transformed) {
+		Graph g = this.delaunay(numPoints, windowed, transformed).graph();
+		return g.coords(g.mst());
+	}
+
+	/**
+	 * Gabriel edges float [ ] [ ]: the Delaunay edges whose diametral circle holds
+	 * no other point.
+	 *
+	 * @param numPoints   the num points
+	 * @param windowed    the windowed
+	 * @param transformed the transformed
+	 * @return float [ ] [ ]
+	 * @see Graph#gabriel()
+	 */
+	public float[][] gabrielEdges(int numPoints, boolean windowed, boolean transformed) {
+		Graph g = this.delaunay(numPoints, windowed, transformed).graph();
+		return g.coords(g.gabriel());
+	}
+
+	/**
+	 * Relative neighbourhood graph edges float [ ] [ ]: the Delaunay edges with no
+	 * point nearer to both ends than they are to each other. Sparser than the
+	 * Gabriel edges, denser than the minimum spanning tree.
+	 *
+	 * @param numPoints   the num points
+	 * @param windowed    the windowed
+	 * @param transformed the transformed
+	 * @return float [ ] [ ]
+	 * @see Graph#relativeNeighborhood()
+	 */
+	public float[][] rngEdges(int numPoints, boolean windowed, boolean transformed) {
+		Graph g = this.delaunay(numPoints, windowed, transformed).graph();
+		return g.coords(g.relativeNeighborhood());
+	}
+
 	/**
 	 * Delaunay edgs edg [ ].
 	 *
@@ -1598,8 +2200,11 @@ public class Crv implements FloatOp {
 	 * @param numPoints the num points
 	 */
 	public void draw(boolean close, int numPoints) {
+		JfrEvents.DrawBatch event = new JfrEvents.DrawBatch();
+		event.begin();
 		PShape shp = this.shape(close,  numPoints, true, true);
 		this.parent.shape(shp, 0, 0);
+		this.commit(event, "Crv.draw", numPoints);
 	}
 
 	/**
@@ -1822,6 +2427,8 @@ public class Crv implements FloatOp {
 	// that calls drawer.draw(point, window)???
 	// window is a Crv.window, and we set its origin to point
 	public void drawVectorArray(PVector[] vectors, VctrDrawer drawer) {
+		JfrEvents.DrawBatch event = new JfrEvents.DrawBatch();
+		event.begin();
 		this.parent.push();
 		for (PVector point : vectors) {
 			if (drawer != null) {
@@ -1831,6 +2438,7 @@ public class Crv implements FloatOp {
 			}
 		}
 		this.parent.pop();
+		this.commit(event, "Crv.drawVectorArray", vectors.length);
 	}
 
 	/**
@@ -1849,6 +2457,8 @@ public class Crv implements FloatOp {
 	 * @param drawer the drawer
 	 */
 	public void drawCrvOnEdg(Edg edg, EdgDrawer drawer) {
+		JfrEvents.DrawBatch event = new JfrEvents.DrawBatch();
+		event.begin();
 		PVector[] crvPoints = edg.getCrvPoints(this);
 		for (int i = 0; i < crvPoints.length - 1; i++) {
 			PVector source = crvPoints[i];
@@ -1860,6 +2470,8 @@ public class Crv implements FloatOp {
 				this.parent.line(source.x, source.y, target.x, target.y);
 			}
 		}
+		Metrics.count(Metric.EDGES_DRAWN, 0, Math.max(crvPoints.length - 1, 0));
+		this.commit(event, "Crv.drawCrvOnEdg", Math.max(crvPoints.length - 1, 0));
 	}
 
 	/**
@@ -1880,6 +2492,8 @@ public class Crv implements FloatOp {
 	 * @param drawer the drawer
 	 */
 	public void drawEdges(float[][] edges, EdgeDrawer drawer) {
+		JfrEvents.DrawBatch event = new JfrEvents.DrawBatch();
+		event.begin();
 		for (float[] edge : edges) {
 			if (drawer != null) {
 				drawer.draw(edge);
@@ -1887,6 +2501,8 @@ public class Crv implements FloatOp {
 				this.parent.line(edge[0], edge[1], edge[2], edge[3]);
 			}
 		}
+		Metrics.count(Metric.EDGES_DRAWN, 0, edges.length);
+		this.commit(event, "Crv.drawEdges", edges.length);
 	}
 
 	/**
@@ -1896,6 +2512,8 @@ public class Crv implements FloatOp {
 	 * @param drawer the drawer
 	 */
 	public void drawEdgs(Edg[] edgs, EdgDrawer drawer) {
+		JfrEvents.DrawBatch event = new JfrEvents.DrawBatch();
+		event.begin();
 		for (Edg edge : edgs) {
 			if (drawer != null) {
 				drawer.draw(edge);
@@ -1903,6 +2521,8 @@ public class Crv implements FloatOp {
 				this.parent.line(edge.source.x, edge.source.y, edge.target.x, edge.target.y);
 			}
 		}
+		Metrics.count(Metric.EDGES_DRAWN, 0, edgs.length);
+		this.commit(event, "Crv.drawEdgs", edgs.length);
 	}
 
 	/**
@@ -0,0 +1,585 @@
+package crvs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import processing.core.PVector;
+
+/**
+ * The type Crv reader. Loads Crv graphs written by CrvWriter.
+ * <p>
+ * A binary file is memory-mapped and nothing is decoded up front: crv(i) builds
+ * root i and the nodes it depends on the first time it is asked for, and caches
+ * them, so shared ops and curves stay shared and a large library can be opened
+ * to read a single curve. Baked samples are returned as views of the mapping,
+ * without copying. Ops are rebuilt through the given Ops, so ops that use the
+ * PApplet (random, noise, mouseX) use the reader's.
+ * <pre>
+ * CrvReader reader = CrvReader.open(new File("curves.crv"), ops);
+ * Crv crv = reader.crv(0);
+ * FloatBuffer ys = reader.samples(0);
+ * </pre>
+ */
+public class CrvReader {
+
+    /**
+     * Size of a CRV record after its kind byte: five refs, six floats, three ints,
+     * fill, window, transform, seed, gaussian, bounding and the samples slot.
+     */
+    private static final int CRV_SIZE = 5 * 4 + 6 * 4 + 3 * 4 + 1 + (3 + 2 + 3 + 3 + 1) * 4 + (3 * 3 + 1) * 4 + 2 * 4 + 1 + 2 * 4;
+
+    private final ByteBuffer buf;
+    private final Ops ops;
+    private final int nodeCount;
+    private final int[] roots;
+    private final int samplesOffset;
+    private final int indexOffset;
+    private final Object[] built;
+
+    private CrvReader(ByteBuffer buf, Ops ops) {
+        this.buf = buf;
+        this.ops = ops;
+        if (buf.remaining() < CrvWriter.HEADER_SIZE || buf.getInt(0) != CrvWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a Crv file");
+        }
+        short version = buf.getShort(4);
+        if (version > CrvWriter.VERSION) {
+            throw new IllegalArgumentException("Crv file version " + version + " is newer than " + CrvWriter.VERSION);
+        }
+        boolean hasSamples = (buf.getShort(6) & CrvWriter.FLAG_SAMPLES) != 0;
+        this.nodeCount = buf.getInt(8);
+        int rootCount = buf.getInt(12);
+        this.samplesOffset = hasSamples ? buf.getInt(16) : -1;
+        this.roots = new int[rootCount];
+        for (int i = 0; i < rootCount; i++) {
+            this.roots[i] = buf.getInt(CrvWriter.HEADER_SIZE + 4 * i);
+        }
+        this.indexOffset = CrvWriter.HEADER_SIZE + 4 * rootCount;
+        this.built = new Object[this.nodeCount];
+    }
+
+    /**
+     * Maps a binary file.
+     *
+     * @param file the file
+     * @param ops  the ops to rebuild with
+     * @return the reader
+     * @throws IOException the io exception
+     */
+    public static CrvReader open(File file, Ops ops) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Crv files are limited to 2 GB");
+            }
+            return new CrvReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), ops);
+        }
+    }
+
+    /**
+     * Reads a binary form from memory.
+     *
+     * @param buf the bytes, from position 0
+     * @param ops the ops to rebuild with
+     * @return the reader
+     */
+    public static CrvReader wrap(ByteBuffer buf, Ops ops) {
+        return new CrvReader(buf, ops);
+    }
+
+    /**
+     * Gets the number of root curves.
+     *
+     * @return the count
+     */
+    public int size() {
+        return this.roots.length;
+    }
+
+    /**
+     * Gets root curve i, building it on first use.
+     *
+     * @param i the root index
+     * @return the curve
+     */
+    public Crv crv(int i) {
+        return (Crv) this.node(this.roots[i]);
+    }
+
+    /**
+     * Gets all root curves.
+     *
+     * @return the curves
+     */
+    public Crv[] crvs() {
+        Crv[] crvs = new Crv[this.roots.length];
+        for (int i = 0; i < crvs.length; i++) {
+            crvs[i] = this.crv(i);
+        }
+        return crvs;
+    }
+
+    /**
+     * Gets the baked samples of root curve i, the floatArray() it was saved with,
+     * as a read-only view of the file.
+     *
+     * @param i the root index
+     * @return the samples, or null if the file was not baked
+     */
+    public FloatBuffer samples(int i) {
+        if (this.samplesOffset < 0) {
+            return null;
+        }
+        int at = this.offset(this.roots[i]);
+        if (this.buf.get(at) != CrvWriter.KIND_CRV) {
+            throw new IllegalStateException("Root " + i + " is not a Crv");
+        }
+        int tail = at + 1 + CRV_SIZE - 8;
+        int position = this.buf.getInt(tail);
+        int count = this.buf.getInt(tail + 4);
+        ByteBuffer slice = this.buf.duplicate();
+        slice.position(this.samplesOffset + position).limit(this.samplesOffset + position + 4 * count);
+        return slice.slice().asFloatBuffer().asReadOnlyBuffer();
+    }
+
+    private int offset(int node) {
+        return this.buf.getInt(this.indexOffset + 4 * node);
+    }
+
+    private synchronized Object node(int i) {
+        if (i < 0) {
+            return null;
+        }
+        Object node = this.built[i];
+        if (node == null) {
+            node = this.decode(i);
+            this.built[i] = node;
+        }
+        return node;
+    }
+
+    private FloatOp op(int i) {
+        return (FloatOp) this.node(i);
+    }
+
+    private Object decode(int i) {
+        ByteBuffer in = this.buf.duplicate();
+        in.position(this.offset(i));
+        byte kind = in.get();
+        switch (kind) {
+        case CrvWriter.KIND_CRV:
+            return this.decodeCrv(in);
+        case CrvWriter.KIND_OP:
+            return this.decodeOp(in);
+        case CrvWriter.KIND_SAMPLED:
+            float[] values = new float[in.getInt()];
+            in.asFloatBuffer().get(values);
+            return sampled(values);
+        default:
+            throw new IllegalArgumentException("Unknown node kind " + kind + " at node " + i);
+        }
+    }
+
+    private Crv decodeCrv(ByteBuffer in) {
+        int op = in.getInt();
+        int amp = in.getInt();
+        int rate = in.getInt();
+        int phase = in.getInt();
+        int bias = in.getInt();
+        float ampOffset = in.getFloat();
+        float rateOffset = in.getFloat();
+        float phaseOffset = in.getFloat();
+        float biasOffset = in.getFloat();
+        float jitterProbability = in.getFloat();
+        float jitterScale = in.getFloat();
+        int resolution = in.getInt();
+        int quantization = in.getInt();
+        int color = in.getInt();
+        boolean fill = in.get() != 0;
+        PVector windowOrigin = vector(in);
+        int width = in.getInt();
+        int height = in.getInt();
+        Window window = new Window(windowOrigin, width, height, vector(in), vector(in), in.getFloat());
+
+        Crv crv = new Crv(this.ops.parent, window, this.op(op));
+        crv.amp = (Crv) this.node(amp);
+        crv.rate = (Crv) this.node(rate);
+        crv.phase = (Crv) this.node(phase);
+        crv.bias = (Crv) this.node(bias);
+        crv.ampOffset = ampOffset;
+        crv.rateOffset = rateOffset;
+        crv.phaseOffset = phaseOffset;
+        crv.biasOffset = biasOffset;
+        crv.jitterProbability = jitterProbability;
+        crv.jitterScale = jitterScale;
+        crv.resolution = resolution;
+        crv.quantization = quantization;
+        crv.color = color;
+        crv.fill = fill;
+        crv.origin = vector(in);
+        crv.translation = vector(in);
+        crv.scale = vector(in);
+        crv.rotation = in.getFloat();
+        crv.seed = in.getFloat();
+        crv.gaussian = in.getFloat();
+        crv.setBounding(Crv.Bounding.values()[in.get()]);
+        return crv;
+    }
+
+    private static PVector vector(ByteBuffer in) {
+        return new PVector(in.getFloat(), in.getFloat(), in.getFloat());
+    }
+
+    private FloatOp decodeOp(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        byte[] utf = new byte[length];
+        in.get(utf);
+        // names are plain Java identifiers, for which modified UTF-8 is UTF-8
+        String name = new String(utf, StandardCharsets.UTF_8);
+        Object[] args = new Object[in.get()];
+        for (int a = 0; a < args.length; a++) {
+            byte tag = in.get();
+            switch (tag) {
+            case CrvWriter.ARG_NULL:
+                break;
+            case CrvWriter.ARG_FLOAT:
+                args[a] = in.getFloat();
+                break;
+            case CrvWriter.ARG_INT:
+                args[a] = in.getInt();
+                break;
+            case CrvWriter.ARG_REF:
+                args[a] = this.op(in.getInt());
+                break;
+            case CrvWriter.ARG_FLOATS:
+                float[] values = new float[in.getInt()];
+                for (int v = 0; v < values.length; v++) {
+                    values[v] = in.getFloat();
+                }
+                args[a] = values;
+                break;
+            case CrvWriter.ARG_REFS:
+                FloatOp[] children = new FloatOp[in.getInt()];
+                for (int c = 0; c < children.length; c++) {
+                    children[c] = this.op(in.getInt());
+                }
+                args[a] = children;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown argument tag " + tag + " in " + name);
+            }
+        }
+        return new OpSpec(name, args).build(this.ops);
+    }
+
+    /**
+     * An op interpolating a table of values taken at even steps over 0..1, for
+     * ops CrvWriter could not name.
+     */
+    static FloatOp sampled(float[] values) {
+        int last = values.length - 1;
+        return pos -> {
+            if (last <= 0) {
+                return values[0];
+            }
+            float x = Math.max(0f, Math.min(1f, pos)) * last;
+            int i = Math.min((int) x, last - 1);
+            float fraction = x - i;
+            return values[i] + (values[i + 1] - values[i]) * fraction;
+        };
+    }
+
+    /**
+     * Reads the JSON form, eagerly.
+     *
+     * @param in  the reader
+     * @param ops the ops to rebuild with
+     * @return the root curves
+     * @throws IOException the io exception
+     */
+    public static Crv[] readJson(Reader in, Ops ops) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] chunk = new char[8192];
+        for (int n; (n = in.read(chunk)) > 0; ) {
+            sb.append(chunk, 0, n);
+        }
+        Map<?, ?> doc = (Map<?, ?>) new Json(sb).value();
+        int version = ((Num) doc.get("version")).intValue();
+        if (version > CrvWriter.VERSION) {
+            throw new IllegalArgumentException("Crv file version " + version + " is newer than " + CrvWriter.VERSION);
+        }
+        List<?> nodes = (List<?>) doc.get("nodes");
+        Object[] built = new Object[nodes.size()];
+        // the writer puts children first, so one pass in order resolves every ref
+        for (int i = 0; i < built.length; i++) {
+            Map<?, ?> node = (Map<?, ?>) nodes.get(i);
+            String type = (String) node.get("type");
+            if (type.equals("crv")) {
+                built[i] = jsonCrv(node, built, ops);
+            } else if (type.equals("op")) {
+                List<?> list = (List<?>) node.get("args");
+                Object[] args = new Object[list.size()];
+                for (int a = 0; a < args.length; a++) {
+                    args[a] = jsonArg((Map<?, ?>) list.get(a), built);
+                }
+                built[i] = new OpSpec((String) node.get("name"), args).build(ops);
+            } else if (type.equals("sampled")) {
+                built[i] = sampled(floats((List<?>) node.get("values")));
+            } else {
+                throw new IllegalArgumentException("Unknown node type " + type);
+            }
+        }
+        List<?> roots = (List<?>) doc.get("roots");
+        Crv[] crvs = new Crv[roots.size()];
+        for (int i = 0; i < crvs.length; i++) {
+            crvs[i] = (Crv) built[((Num) roots.get(i)).intValue()];
+        }
+        return crvs;
+    }
+
+    private static Crv jsonCrv(Map<?, ?> node, Object[] built, Ops ops) {
+        Map<?, ?> w = (Map<?, ?>) node.get("window");
+        Window window = new Window(vector(w.get("origin")), num(w, "width").intValue(), num(w, "height").intValue(),
+                vector(w.get("translation")), vector(w.get("scale")), num(w, "rotation").floatValue());
+        Crv crv = new Crv(ops.parent, window, (FloatOp) ref(node.get("op"), built));
+        crv.amp = (Crv) ref(node.get("amp"), built);
+        crv.rate = (Crv) ref(node.get("rate"), built);
+        crv.phase = (Crv) ref(node.get("phase"), built);
+        crv.bias = (Crv) ref(node.get("bias"), built);
+        crv.ampOffset = num(node, "ampOffset").floatValue();
+        crv.rateOffset = num(node, "rateOffset").floatValue();
+        crv.phaseOffset = num(node, "phaseOffset").floatValue();
+        crv.biasOffset = num(node, "biasOffset").floatValue();
+        crv.jitterProbability = num(node, "jitterProbability").floatValue();
+        crv.jitterScale = num(node, "jitterScale").floatValue();
+        crv.resolution = num(node, "resolution").intValue();
+        crv.quantization = num(node, "quantization").intValue();
+        crv.color = num(node, "color").intValue();
+        crv.fill = Boolean.TRUE.equals(node.get("fill"));
+        crv.origin = vector(node.get("origin"));
+        crv.translation = vector(node.get("translation"));
+        crv.scale = vector(node.get("scale"));
+        crv.rotation = num(node, "rotation").floatValue();
+        crv.seed = num(node, "seed").floatValue();
+        crv.gaussian = num(node, "gaussian").floatValue();
+        crv.setBounding(Crv.Bounding.valueOf((String) node.get("bounding")));
+        return crv;
+    }
+
+    private static Object jsonArg(Map<?, ?> arg, Object[] built) {
+        if (arg == null) {
+            return null;
+        }
+        if (arg.containsKey("float")) {
+            return num(arg, "float").floatValue();
+        }
+        if (arg.containsKey("int")) {
+            return num(arg, "int").intValue();
+        }
+        if (arg.containsKey("ref")) {
+            return ref(arg.get("ref"), built);
+        }
+        if (arg.containsKey("floats")) {
+            return floats((List<?>) arg.get("floats"));
+        }
+        if (arg.containsKey("refs")) {
+            List<?> refs = (List<?>) arg.get("refs");
+            FloatOp[] ops = new FloatOp[refs.size()];
+            for (int i = 0; i < ops.length; i++) {
+                ops[i] = (FloatOp) ref(refs.get(i), built);
+            }
+            return ops;
+        }
+        throw new IllegalArgumentException("Unknown argument " + arg);
+    }
+
+    private static Object ref(Object value, Object[] built) {
+        return value == null ? null : built[((Num) value).intValue()];
+    }
+
+    private static Num num(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        // non-finite floats are written as strings
+        return value instanceof String ? new Num((String) value) : (Num) value;
+    }
+
+    private static float[] floats(List<?> list) {
+        float[] values = new float[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = list.get(i);
+            values[i] = (value instanceof String ? new Num((String) value) : (Num) value).floatValue();
+        }
+        return values;
+    }
+
+    private static PVector vector(Object value) {
+        float[] xyz = floats((List<?>) value);
+        return new PVector(xyz[0], xyz[1], xyz[2]);
+    }
+
+    /**
+     * A JSON number, kept as its text so that floats parse straight to the float
+     * they were written from, without rounding through a double.
+     */
+    private static final class Num {
+        final String text;
+
+        Num(String text) {
+            this.text = text;
+        }
+
+        float floatValue() {
+            return Float.parseFloat(this.text);
+        }
+
+        int intValue() {
+            return Integer.parseInt(this.text);
+        }
+    }
+
+    /**
+     * Minimal recursive-descent JSON parser to maps, lists, strings, Num,
+     * booleans and null.
+     */
+    private static final class Json {
+        private final CharSequence s;
+        private int i;
+
+        Json(CharSequence s) {
+            this.s = s;
+        }
+
+        Object value() {
+            this.skip();
+            char c = this.s.charAt(this.i);
+            if (c == '{') {
+                Map<String, Object> map = new LinkedHashMap<String, Object>();
+                this.i++;
+                if (this.peek() == '}') {
+                    this.i++;
+                    return map;
+                }
+                do {
+                    this.skip();
+                    String key = this.string();
+                    this.expect(':');
+                    map.put(key, this.value());
+                } while (this.next(',', '}'));
+                return map;
+            }
+            if (c == '[') {
+                List<Object> list = new ArrayList<Object>();
+                this.i++;
+                if (this.peek() == ']') {
+                    this.i++;
+                    return list;
+                }
+                do {
+                    list.add(this.value());
+                } while (this.next(',', ']'));
+                return list;
+            }
+            if (c == '"') {
+                return this.string();
+            }
+            if (this.s.subSequence(this.i, Math.min(this.s.length(), this.i + 4)).toString().equals("null")) {
+                this.i += 4;
+                return null;
+            }
+            if (this.s.subSequence(this.i, Math.min(this.s.length(), this.i + 4)).toString().equals("true")) {
+                this.i += 4;
+                return Boolean.TRUE;
+            }
+            if (this.s.subSequence(this.i, Math.min(this.s.length(), this.i + 5)).toString().equals("false")) {
+                this.i += 5;
+                return Boolean.FALSE;
+            }
+            int start = this.i;
+            while (this.i < this.s.length() && "+-.0123456789eE".indexOf(this.s.charAt(this.i)) >= 0) {
+                this.i++;
+            }
+            if (start == this.i) {
+                throw this.error("Unexpected '" + c + "'");
+            }
+            return new Num(this.s.subSequence(start, this.i).toString());
+        }
+
+        private String string() {
+            if (this.s.charAt(this.i) != '"') {
+                throw this.error("Expected a string");
+            }
+            StringBuilder sb = new StringBuilder();
+            for (this.i++; ; this.i++) {
+                char c = this.s.charAt(this.i);
+                if (c == '"') {
+                    this.i++;
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    c = this.s.charAt(++this.i);
+                    switch (c) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(this.s.subSequence(this.i + 1, this.i + 5).toString(), 16));
+                        this.i += 4;
+                        break;
+                    default: sb.append(c);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private char peek() {
+            this.skip();
+            return this.s.charAt(this.i);
+        }
+
+        private void expect(char c) {
+            if (this.peek() != c) {
+                throw this.error("Expected '" + c + "'");
+            }
+            this.i++;
+        }
+
+        /**
+         * Consumes a separator or the closing bracket, returning whether more
+         * elements follow.
+         */
+        private boolean next(char separator, char close) {
+            char c = this.peek();
+            this.i++;
+            if (c == separator) {
+                return true;
+            }
+            if (c == close) {
+                return false;
+            }
+            throw this.error("Expected '" + separator + "' or '" + close + "'");
+        }
+
+        private void skip() {
+            while (this.i < this.s.length() && Character.isWhitespace(this.s.charAt(this.i))) {
+                this.i++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + this.i + " of JSON");
+        }
+    }
+
+}
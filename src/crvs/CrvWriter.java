@@ -0,0 +1,481 @@
+package crvs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import processing.core.PVector;
+
+/**
+ * The type Crv writer. Saves Crv graphs, the curves together with the Ops and
+ * modulating curves they are built from, in a compact versioned binary format
+ * read back by CrvReader, or as JSON for diffs and hand edits.
+ * <p>
+ * The graph is flattened into a node table in which every Crv and every op
+ * appears once, however many curves share it, children before parents. Ops
+ * built by Ops are stored by factory name and arguments (see OpSpec); any other
+ * op, such as a lambda from a sketch, cannot be named and is stored as a table of
+ * opSamples values over 0..1 instead, read back with linear interpolation.
+ * <p>
+ * The binary form is big-endian:
+ * <pre>
+ * header   int magic 'CRVG', short version, short flags, int nodes, int roots, int samples offset
+ * roots    int[roots]                 node index of each root curve
+ * index    int[nodes]                 file offset of each node record
+ * records  one per node, by kind:
+ *          CRV     int op, amp, rate, phase, bias (node or -1), the float and int
+ *                  fields, window, transform, bounding, int samples position and count
+ *          OP      utf name, byte argc, tagged args
+ *          SAMPLED int n, float[n]
+ * samples  float arrays of the baked curves, 4-byte aligned
+ * </pre>
+ * When baking, every curve's floatArray() is stored in the samples section, so a
+ * reader can plot or play a file without evaluating anything. Files are limited
+ * to 2 GB.
+ */
+public class CrvWriter {
+
+    static final int MAGIC = 0x43525647; // CRVG
+    static final short VERSION = 1;
+    static final short FLAG_SAMPLES = 1;
+    static final int HEADER_SIZE = 20;
+
+    static final byte KIND_CRV = 0;
+    static final byte KIND_OP = 1;
+    static final byte KIND_SAMPLED = 2;
+
+    static final byte ARG_NULL = 0;
+    static final byte ARG_FLOAT = 1;
+    static final byte ARG_INT = 2;
+    static final byte ARG_REF = 3;
+    static final byte ARG_FLOATS = 4;
+    static final byte ARG_REFS = 5;
+
+    /**
+     * Samples per table for ops that cannot be named.
+     */
+    public int opSamples = 1024;
+
+    /**
+     * Whether to store every curve's floatArray() in the samples section.
+     */
+    public boolean bake;
+
+    /**
+     * Whether the JSON form keeps only what a curve's values depend on, dropping
+     * per-instance randomness and drawing state, for SampleCache keys.
+     */
+    boolean valuesOnly;
+
+    private final List<Object> nodes = new ArrayList<Object>();
+    private final Map<Object, Integer> index = new IdentityHashMap<Object, Integer>();
+    private final List<Integer> roots = new ArrayList<Integer>();
+
+    /**
+     * Adds a curve and everything it depends on.
+     *
+     * @param crv the curve
+     * @return this writer
+     */
+    public CrvWriter add(Crv crv) {
+        this.roots.add(this.visit(crv));
+        return this;
+    }
+
+    /**
+     * Adds curves and everything they depend on.
+     *
+     * @param crvs the curves
+     * @return this writer
+     */
+    public CrvWriter add(Crv... crvs) {
+        for (Crv crv : crvs) {
+            this.add(crv);
+        }
+        return this;
+    }
+
+    /**
+     * Write.
+     *
+     * @param file the file
+     * @param bake whether to store baked samples
+     * @param crvs the curves
+     * @throws IOException the io exception
+     */
+    public static void write(File file, boolean bake, Crv... crvs) throws IOException {
+        CrvWriter writer = new CrvWriter().add(crvs);
+        writer.bake = bake;
+        writer.write(file);
+    }
+
+    /**
+     * Write json.
+     *
+     * @param out  the writer
+     * @param crvs the curves
+     * @throws IOException the io exception
+     */
+    public static void writeJson(Writer out, Crv... crvs) throws IOException {
+        new CrvWriter().add(crvs).writeJson(out);
+    }
+
+    private int visit(FloatOp op) {
+        Integer seen = this.index.get(op);
+        if (seen != null) {
+            if (seen < 0) {
+                throw new IllegalArgumentException("Crv graph has a cycle");
+            }
+            return seen;
+        }
+        this.index.put(op, -1);
+        Object node;
+        if (op instanceof Crv) {
+            Crv crv = (Crv) op;
+            this.visitIfPresent(crv.op);
+            this.visitIfPresent(crv.amp);
+            this.visitIfPresent(crv.rate);
+            this.visitIfPresent(crv.phase);
+            this.visitIfPresent(crv.bias);
+            node = crv;
+        } else {
+            OpSpec spec = OpSpec.of(op);
+            if (spec != null) {
+                for (Object arg : spec.args) {
+                    if (arg instanceof FloatOp) {
+                        this.visit((FloatOp) arg);
+                    } else if (arg instanceof FloatOp[]) {
+                        for (FloatOp child : (FloatOp[]) arg) {
+                            this.visit(child);
+                        }
+                    }
+                }
+                node = spec;
+            } else {
+                node = sample(op, this.opSamples);
+            }
+        }
+        int i = this.nodes.size();
+        this.nodes.add(node);
+        this.index.put(op, i);
+        return i;
+    }
+
+    private void visitIfPresent(FloatOp op) {
+        if (op != null) {
+            this.visit(op);
+        }
+    }
+
+    private int ref(FloatOp op) {
+        return op == null ? -1 : this.index.get(op);
+    }
+
+    private static float[] sample(FloatOp op, int n) {
+        float[] values = new float[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = op.apply(n == 1 ? 0f : (float) i / (n - 1));
+        }
+        return values;
+    }
+
+    /**
+     * Writes the binary form.
+     *
+     * @param file the file
+     * @throws IOException the io exception
+     */
+    public void write(File file) throws IOException {
+        int count = this.nodes.size();
+        float[][] baked = new float[count][];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(bytes);
+        int[] offsets = new int[count];
+        int recordsStart = HEADER_SIZE + 4 * this.roots.size() + 4 * count;
+        int samplesSize = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = recordsStart + records.size();
+            Object node = this.nodes.get(i);
+            if (node instanceof Crv) {
+                Crv crv = (Crv) node;
+                int samplesAt = -1;
+                if (this.bake) {
+                    baked[i] = crv.floatArray();
+                    samplesAt = samplesSize;
+                    samplesSize += 4 * baked[i].length;
+                }
+                this.writeCrv(records, crv, samplesAt, baked[i] == null ? 0 : baked[i].length);
+            } else if (node instanceof OpSpec) {
+                this.writeOp(records, (OpSpec) node);
+            } else {
+                float[] values = (float[]) node;
+                records.writeByte(KIND_SAMPLED);
+                records.writeInt(values.length);
+                for (float v : values) {
+                    records.writeFloat(v);
+                }
+            }
+        }
+        // pad so the samples section, and every float in it, is 4-byte aligned
+        while (records.size() % 4 != 0) {
+            records.writeByte(0);
+        }
+        long samplesOffset = this.bake ? (long) recordsStart + records.size() : 0;
+        if (samplesOffset + samplesSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Crv files are limited to 2 GB");
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer head = ByteBuffer.allocate(recordsStart + records.size());
+            head.putInt(MAGIC);
+            head.putShort(VERSION);
+            head.putShort(this.bake ? FLAG_SAMPLES : 0);
+            head.putInt(count);
+            head.putInt(this.roots.size());
+            head.putInt((int) samplesOffset);
+            for (int root : this.roots) {
+                head.putInt(root);
+            }
+            for (int offset : offsets) {
+                head.putInt(offset);
+            }
+            head.put(bytes.toByteArray());
+            flush(channel, head);
+            if (this.bake) {
+                ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+                for (float[] values : baked) {
+                    if (values == null) continue;
+                    for (float v : values) {
+                        if (buf.remaining() < 4) flush(channel, buf);
+                        buf.putFloat(v);
+                    }
+                }
+                flush(channel, buf);
+            }
+        }
+    }
+
+    private void writeCrv(DataOutputStream out, Crv crv, int samplesAt, int samples) throws IOException {
+        out.writeByte(KIND_CRV);
+        out.writeInt(this.ref(crv.op));
+        out.writeInt(this.ref(crv.amp));
+        out.writeInt(this.ref(crv.rate));
+        out.writeInt(this.ref(crv.phase));
+        out.writeInt(this.ref(crv.bias));
+        out.writeFloat(crv.ampOffset);
+        out.writeFloat(crv.rateOffset);
+        out.writeFloat(crv.phaseOffset);
+        out.writeFloat(crv.biasOffset);
+        out.writeFloat(crv.jitterProbability);
+        out.writeFloat(crv.jitterScale);
+        out.writeInt(crv.resolution);
+        out.writeInt(crv.quantization);
+        out.writeInt(crv.color);
+        out.writeBoolean(crv.fill);
+        Window window = crv.window;
+        writeVector(out, window.origin);
+        out.writeInt(window.width);
+        out.writeInt(window.height);
+        writeVector(out, window.translation);
+        writeVector(out, window.scale);
+        out.writeFloat(window.rotation);
+        writeVector(out, crv.origin);
+        writeVector(out, crv.translation);
+        writeVector(out, crv.scale);
+        out.writeFloat(crv.rotation);
+        out.writeFloat(crv.seed);
+        out.writeFloat(crv.gaussian);
+        out.writeByte(crv.getBounding().ordinal());
+        out.writeInt(samplesAt);
+        out.writeInt(samples);
+    }
+
+    private static void writeVector(DataOutputStream out, PVector v) throws IOException {
+        out.writeFloat(v.x);
+        out.writeFloat(v.y);
+        out.writeFloat(v.z);
+    }
+
+    private void writeOp(DataOutputStream out, OpSpec spec) throws IOException {
+        out.writeByte(KIND_OP);
+        out.writeUTF(spec.name);
+        out.writeByte(spec.args.length);
+        for (Object arg : spec.args) {
+            if (arg == null) {
+                out.writeByte(ARG_NULL);
+            } else if (arg instanceof Float) {
+                out.writeByte(ARG_FLOAT);
+                out.writeFloat((Float) arg);
+            } else if (arg instanceof Integer) {
+                out.writeByte(ARG_INT);
+                out.writeInt((Integer) arg);
+            } else if (arg instanceof FloatOp) {
+                out.writeByte(ARG_REF);
+                out.writeInt(this.ref((FloatOp) arg));
+            } else if (arg instanceof float[]) {
+                float[] values = (float[]) arg;
+                out.writeByte(ARG_FLOATS);
+                out.writeInt(values.length);
+                for (float v : values) {
+                    out.writeFloat(v);
+                }
+            } else if (arg instanceof FloatOp[]) {
+                FloatOp[] ops = (FloatOp[]) arg;
+                out.writeByte(ARG_REFS);
+                out.writeInt(ops.length);
+                for (FloatOp op : ops) {
+                    out.writeInt(this.ref(op));
+                }
+            } else {
+                throw new IllegalArgumentException("Cannot write argument " + arg + " of " + spec);
+            }
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Writes the JSON form, one node per line so that diffs stay readable. Baked
+     * samples are not included.
+     *
+     * @param out the writer
+     * @throws IOException the io exception
+     */
+    public void writeJson(Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"format\": \"crvs\",\n  \"version\": ").append(VERSION).append(",\n");
+        sb.append("  \"roots\": ").append(this.roots).append(",\n");
+        sb.append("  \"nodes\": [\n");
+        for (int i = 0; i < this.nodes.size(); i++) {
+            Object node = this.nodes.get(i);
+            sb.append("    ");
+            if (node instanceof Crv) {
+                this.jsonCrv(sb, (Crv) node);
+            } else if (node instanceof OpSpec) {
+                this.jsonOp(sb, (OpSpec) node);
+            } else {
+                sb.append("{\"type\": \"sampled\", \"values\": ");
+                jsonFloats(sb, (float[]) node);
+                sb.append('}');
+            }
+            sb.append(i < this.nodes.size() - 1 ? ",\n" : "\n");
+        }
+        sb.append("  ]\n}\n");
+        out.write(sb.toString());
+        out.flush();
+    }
+
+    private void jsonCrv(StringBuilder sb, Crv crv) {
+        sb.append("{\"type\": \"crv\"");
+        jsonRef(sb, "op", this.ref(crv.op));
+        jsonRef(sb, "amp", this.ref(crv.amp));
+        jsonRef(sb, "rate", this.ref(crv.rate));
+        jsonRef(sb, "phase", this.ref(crv.phase));
+        jsonRef(sb, "bias", this.ref(crv.bias));
+        sb.append(", \"ampOffset\": ").append(json(crv.ampOffset));
+        sb.append(", \"rateOffset\": ").append(json(crv.rateOffset));
+        sb.append(", \"phaseOffset\": ").append(json(crv.phaseOffset));
+        sb.append(", \"biasOffset\": ").append(json(crv.biasOffset));
+        // valuesOnly filters the fields values do not depend on, keeping the order
+        if (!this.valuesOnly) {
+            sb.append(", \"jitterProbability\": ").append(json(crv.jitterProbability));
+            sb.append(", \"jitterScale\": ").append(json(crv.jitterScale));
+            sb.append(", \"resolution\": ").append(crv.resolution);
+        }
+        sb.append(", \"quantization\": ").append(crv.quantization);
+        if (this.valuesOnly) {
+            sb.append('}');
+            return;
+        }
+        sb.append(", \"color\": ").append(crv.color);
+        sb.append(", \"fill\": ").append(crv.fill);
+        Window window = crv.window;
+        sb.append(", \"window\": {\"origin\": ").append(json(window.origin));
+        sb.append(", \"width\": ").append(window.width);
+        sb.append(", \"height\": ").append(window.height);
+        sb.append(", \"translation\": ").append(json(window.translation));
+        sb.append(", \"scale\": ").append(json(window.scale));
+        sb.append(", \"rotation\": ").append(json(window.rotation)).append('}');
+        sb.append(", \"origin\": ").append(json(crv.origin));
+        sb.append(", \"translation\": ").append(json(crv.translation));
+        sb.append(", \"scale\": ").append(json(crv.scale));
+        sb.append(", \"rotation\": ").append(json(crv.rotation));
+        sb.append(", \"seed\": ").append(json(crv.seed));
+        sb.append(", \"gaussian\": ").append(json(crv.gaussian));
+        sb.append(", \"bounding\": \"").append(crv.getBounding().name()).append("\"}");
+    }
+
+    private static void jsonRef(StringBuilder sb, String key, int ref) {
+        sb.append(", \"").append(key).append("\": ").append(ref < 0 ? "null" : String.valueOf(ref));
+    }
+
+    private void jsonOp(StringBuilder sb, OpSpec spec) {
+        sb.append("{\"type\": \"op\", \"name\": \"").append(spec.name).append("\", \"args\": [");
+        for (int i = 0; i < spec.args.length; i++) {
+            if (i > 0) sb.append(", ");
+            Object arg = spec.args[i];
+            if (arg == null) {
+                sb.append("null");
+            } else if (arg instanceof Float) {
+                sb.append("{\"float\": ").append(json((Float) arg)).append('}');
+            } else if (arg instanceof Integer) {
+                sb.append("{\"int\": ").append(arg).append('}');
+            } else if (arg instanceof FloatOp) {
+                sb.append("{\"ref\": ").append(this.ref((FloatOp) arg)).append('}');
+            } else if (arg instanceof float[]) {
+                sb.append("{\"floats\": ");
+                jsonFloats(sb, (float[]) arg);
+                sb.append('}');
+            } else if (arg instanceof FloatOp[]) {
+                sb.append("{\"refs\": [");
+                FloatOp[] ops = (FloatOp[]) arg;
+                for (int j = 0; j < ops.length; j++) {
+                    if (j > 0) sb.append(", ");
+                    sb.append(this.ref(ops[j]));
+                }
+                sb.append("]}");
+            } else {
+                throw new IllegalArgumentException("Cannot write argument " + arg + " of " + spec);
+            }
+        }
+        sb.append("]}");
+    }
+
+    private static void jsonFloats(StringBuilder sb, float[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(json(values[i]));
+        }
+        sb.append(']');
+    }
+
+    private static String json(PVector v) {
+        return "[" + json(v.x) + ", " + json(v.y) + ", " + json(v.z) + "]";
+    }
+
+    /**
+     * Shortest decimal that reads back as the same float; NaN and the infinities,
+     * which JSON has no numbers for, are written as strings.
+     */
+    static String json(float v) {
+        return Float.isFinite(v) ? Float.toString(v) : "\"" + v + "\"";
+    }
+
+}
@@ -1,7 +1,9 @@
 package crvs;
 
+import java.util.Arrays;
+
 import processing.core.PVector;
-import quickhull3d.QuickHull3D;
+import com.github.quickhull3d.QuickHull3D;
 
 /**
  * The type Delaunay.
@@ -24,6 +26,14 @@ public class Delaunay {
      * The Link count.
      */
     int linkCount;
+    /**
+     * The point coordinates.
+     */
+    float[] xs, ys;
+    /**
+     * The Graph, built on first use.
+     */
+    Graph graph;
 
     /**
      * Instantiates a new Delaunay.
@@ -31,7 +41,16 @@ public class Delaunay {
      * @param vectors the vectors
      */
     public Delaunay( PVector[] vectors ){
+		long start = Metrics.start();
+		JfrEvents.MeshBuild event = new JfrEvents.MeshBuild();
+		event.begin();
 		float[][] points = Utils.v2f(vectors);
+		xs = new float[points.length];
+		ys = new float[points.length];
+		for(int i=0; i<points.length; i++){
+			xs[i] = points[i][0];
+			ys[i] = points[i][1];
+		}
 		
 		if( points.length < 1 ){
 			edges = new float[0][4];
@@ -86,6 +105,7 @@ public class Delaunay {
 				}
 			}
 		}
+		links = Arrays.copyOf(links, linkCount);
 
 		// turn links into edges
 		edges = new float[linkCount][4];
@@ -96,6 +116,13 @@ public class Delaunay {
 			edges[i][3] = points[links[i][1]][1];
 		}
 
+		Metrics.time(Metric.DELAUNAY_BUILD, 0, start, points.length);
+		if (event.shouldCommit()) {
+			event.mesh = "Delaunay";
+			event.points = points.length;
+			event.faces = faces.length;
+			event.commit();
+		}
 	}
 
     /**
@@ -138,7 +165,8 @@ public class Delaunay {
      * @return the int [ ]
      */
     public int[] getLinked( int i ){
-		return mesh.get(i).links;
+		LinkedIndex index = mesh.get(i);
+		return Arrays.copyOf(index.links, index.linkCount);
 	}
 
     /**
@@ -159,8 +187,7 @@ public class Delaunay {
 		int nodeCount = this.mesh.array.length;
 		int[] weights = new int[nodeCount];
 		for (int i = 0; i < nodeCount; i++) {
-			int[] links = this.getLinked(i);
-			weights[i] = links.length;
+			weights[i] = this.mesh.get(i).linkCount;
 		}
 		return weights;
 	}
@@ -172,8 +199,25 @@ public class Delaunay {
      * @return the weight
      */
     public int getWeight( int i) {
-		int[] links = this.getLinked(i);
-		return links.length;
+		return this.mesh.get(i).linkCount;
+	}
+
+    /**
+     * Gets the mesh as a Graph in compressed sparse row form, with an edge for
+     * each link and a node for each point, in order. Built once and shared.
+     *
+     * @return the graph
+     */
+    public Graph graph() {
+		if (graph == null) {
+			int[] pairs = new int[linkCount * 2];
+			for (int i = 0; i < linkCount; i++) {
+				pairs[i * 2] = links[i][0];
+				pairs[i * 2 + 1] = links[i][1];
+			}
+			graph = new Graph(xs, ys, pairs);
+		}
+		return graph;
 	}
 
 }
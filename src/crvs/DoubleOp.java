@@ -0,0 +1,37 @@
+package crvs;
+
+/**
+ * DoubleOp is the double-precision counterpart of FloatOp, for curves evaluated
+ * over long timelines or at large rate multipliers where a float position no
+ * longer resolves the phase.
+ * <p>
+ * Crv evaluates an op through this interface on its double path when the op
+ * implements it, and otherwise hands the float op the phase after it has been
+ * reduced to [0, 1] in double precision.
+ *
+ * @see FloatOp
+ */
+@FunctionalInterface
+public interface DoubleOp {
+
+    /**
+     * Applies this function to the given operand.
+     *
+     * @param operand The operand on which the function will be applied.
+     * @return The function result as a double.
+     */
+    double apply(double operand);
+
+    /**
+     * Adapts a FloatOp, returning it unchanged if it already implements DoubleOp.
+     *
+     * @param op the float op
+     * @return the op as a DoubleOp
+     */
+    static DoubleOp of(FloatOp op) {
+        if (op instanceof DoubleOp) {
+            return (DoubleOp) op;
+        }
+        return operand -> op.apply((float) operand);
+    }
+}
@@ -245,24 +245,65 @@ public class Edg {
 	 * @return the p vector [ ]
 	 */
 	public PVector[] getCrvPoints(Crv crv, int resolution) {
-		PVector[] edgPoints = this.points(resolution);
+		return this.getCrvPoints(crv, resolution, null);
+	}
+
+	/**
+	 * Get crv points p vector [ ].
+	 *
+	 * @param crv the crv
+	 * @return the p vector [ ]
+	 */
+	public PVector[] getCrvPoints(Crv crv) {
+		return this.getCrvPoints(crv, this.resolution);
+	}
+
+	/**
+	 * Get crv points p vector [ ], with positions remapped by samplingRateOp. As
+	 * with points(resolution), the edg is stepped by 1 / resolution, so point i
+	 * sits at i / resolution of the way along it while the curve is read at
+	 * i / (resolution - 1); a remapped position is scaled the same way.
+	 *
+	 * @param crv            the crv
+	 * @param resolution     the resolution
+	 * @param samplingRateOp the sampling rate op, or null for even positions
+	 * @return the p vector [ ]
+	 */
+	public PVector[] getCrvPoints(Crv crv, int resolution, FloatOp samplingRateOp) {
 		PVector[] crvPoints = new PVector[resolution];
 		for (int i = 0; i < resolution; i++) {
 			float x = i / (resolution - 1f);
-			float mag = crv.yAt(x);
-			crvPoints[i] = this.getPerpendicularPoint(edgPoints[i], mag);
+			float edgPos = (float) i / resolution;
+			if (samplingRateOp != null) {
+				x = samplingRateOp.apply(x);
+				edgPos = x * (resolution - 1) / resolution;
+			}
+			crvPoints[i] = this.getPerpendicularPoint(this.at(edgPos), crv.yAt(x));
 		}
 		return crvPoints;
 	}
 
 	/**
-	 * Get crv points p vector [ ].
+	 * Gets crv points evenly spaced along the curve as drawn on the edg, rather than
+	 * evenly spaced along the edg, from an arc-length table of
+	 * max(resolution, 4 * numPoints) points.
 	 *
-	 * @param crv the crv
+	 * @param crv       the crv
+	 * @param numPoints the num points
 	 * @return the p vector [ ]
 	 */
-	public PVector[] getCrvPoints(Crv crv) {
-		return this.getCrvPoints(crv, this.resolution);
+	public PVector[] getEvenCrvPoints(Crv crv, int numPoints) {
+		int numSamples = Math.max(2, Math.max(this.resolution, 4 * numPoints));
+		// the curve as getCrvPoints(crv, numPoints, ...) lays it on the edg, more finely
+		PVector[] samples = new PVector[numSamples];
+		float[] positions = new float[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			float x = i / (numSamples - 1f);
+			positions[i] = x;
+			samples[i] = this.getPerpendicularPoint(this.at(x * (numPoints - 1) / numPoints), crv.yAt(x));
+		}
+		float[] even = ArcLength.of(positions, samples).evenPositions(numPoints);
+		return this.getCrvPoints(crv, numPoints, pos -> even[Math.round(pos * (numPoints - 1))]);
 	}
 
 	/**
@@ -0,0 +1,263 @@
+package crvs;
+
+import java.util.Arrays;
+
+/**
+ * Block low-pass filter over a FloatOp. The input is sampled once into a table,
+ * the table is filtered in O(n) whatever the window, and apply(pos) interpolates
+ * the filtered table. Ops.lowPassFilter(op, w) instead evaluates its input w
+ * times for every output, so a chain of filters multiplies the cost of the curve
+ * underneath by every window size in it; behind a Filter the input is evaluated
+ * resolution + 1 times in all.
+ * <p>
+ * windowSize has the meaning it has for the pointwise filter, whose w taps
+ * trail the position at steps of 1/w and clamp to 0. BOX reproduces that filter
+ * exactly at every table point. The other kernels are sized to the same spread,
+ * so a kernel can be swapped without retuning:
+ * <ul>
+ * <li>BOX: trailing running sum, the pointwise filter in block form.</li>
+ * <li>ONE_POLE: causal one-pole IIR with the variance of the box.</li>
+ * <li>GAUSSIAN: centred, zero-phase Gaussian with the variance of the box, as
+ * three box passes.</li>
+ * <li>BIQUAD: causal second-order Butterworth, cut off where the box is 3 dB
+ * down.</li>
+ * </ul>
+ * The table is filled on first use. Inputs that change over time, for example
+ * with frameCount or mouseX, need invalidate() when they change.
+ */
+public class Filter implements FloatOp {
+
+    /**
+     * The enum Kernel.
+     */
+    public enum Kernel {
+        /**
+         * Trailing box, as Ops.lowPassFilter.
+         */
+        BOX,
+        /**
+         * One-pole IIR.
+         */
+        ONE_POLE,
+        /**
+         * Centred Gaussian.
+         */
+        GAUSSIAN,
+        /**
+         * Second-order Butterworth IIR.
+         */
+        BIQUAD
+    }
+
+    /**
+     * The input.
+     */
+    public final FloatOp input;
+
+    /**
+     * The kernel.
+     */
+    public final Kernel kernel;
+
+    /**
+     * The window size, as for Ops.lowPassFilter.
+     */
+    public final int windowSize;
+
+    private final int steps;
+    private volatile float[] table;
+
+    /**
+     * Instantiates a new Filter.
+     *
+     * @param input      the input
+     * @param kernel     the kernel
+     * @param windowSize the window size, as for Ops.lowPassFilter
+     * @param resolution the minimum number of table steps over 0..1
+     */
+    public Filter(FloatOp input, Kernel kernel, int windowSize, int resolution) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1, not " + windowSize);
+        }
+        this.input = input;
+        this.kernel = kernel;
+        this.windowSize = windowSize;
+        // a whole number of table steps per tap, so the box taps land on table points
+        int perTap = Math.max(1, (Math.max(1, resolution) + windowSize - 1) / windowSize);
+        this.steps = perTap * windowSize;
+    }
+
+    /**
+     * Discards the table, so the next apply samples the input again.
+     */
+    public void invalidate() {
+        this.table = null;
+    }
+
+    /**
+     * Gets the filtered table, sampling and filtering the input if needed.
+     *
+     * @return the table, steps + 1 values at even steps over 0..1
+     */
+    public float[] table() {
+        float[] t = this.table;
+        if (t == null) {
+            float[] in = new float[this.steps + 1];
+            for (int i = 0; i <= this.steps; i++) {
+                in[i] = this.input.apply((float) i / this.steps);
+            }
+            t = new float[in.length];
+            filter(this.kernel, this.windowSize, this.steps / this.windowSize, in, t);
+            this.table = t;
+        }
+        return t;
+    }
+
+    @Override
+    public float apply(float pos) {
+        float[] t = this.table();
+        float x = Math.max(0f, Math.min(1f, pos)) * this.steps;
+        int i = Math.min((int) x, this.steps - 1);
+        float fraction = x - i;
+        return t[i] + (t[i + 1] - t[i]) * fraction;
+    }
+
+    /**
+     * Filters a block of samples.
+     *
+     * @param kernel     the kernel
+     * @param windowSize the number of box taps
+     * @param stride     the samples between taps
+     * @param in         the input
+     * @param out        the output, at least as long as in; may not be in
+     */
+    public static void filter(Kernel kernel, int windowSize, int stride, float[] in, float[] out) {
+        int n = in.length;
+        if (n == 0) {
+            return;
+        }
+        // spread of the box, in samples
+        double sigma = stride * Math.sqrt((windowSize * (double) windowSize - 1) / 12.0);
+        switch (kernel) {
+        case BOX:
+            box(windowSize, stride, in, out);
+            break;
+        case ONE_POLE:
+            onePole(sigma * sigma, in, out);
+            break;
+        case GAUSSIAN:
+            gaussian(sigma, in, out);
+            break;
+        case BIQUAD:
+            biquad(0.443 / (windowSize * (double) stride), in, out);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown kernel " + kernel);
+        }
+    }
+
+    /**
+     * out[j] is the mean of in[max(0, j - i * stride)] for i below windowSize,
+     * kept as a running sum over each residue class of the stride.
+     */
+    private static void box(int windowSize, int stride, float[] in, float[] out) {
+        int n = in.length;
+        int span = windowSize * stride;
+        double[] sums = new double[Math.min(stride, n)];
+        for (int j = 0; j < n; j++) {
+            int r = j % stride;
+            if (j < stride) {
+                // every tap but the first clamps to in[0]
+                sums[r] = in[j] + (windowSize - 1) * (double) in[0];
+            } else {
+                sums[r] += in[j] - in[Math.max(0, j - span)];
+            }
+            out[j] = (float) (sums[r] / windowSize);
+        }
+    }
+
+    /**
+     * One-pole lowpass whose impulse response has the given variance in samples,
+     * started at rest on in[0].
+     */
+    private static void onePole(double variance, float[] in, float[] out) {
+        // a geometric response with ratio r has variance r / (1 - r)^2
+        double r = variance <= 0 ? 0 : (2 * variance + 1 - Math.sqrt(4 * variance + 1)) / (2 * variance);
+        double a = 1 - r;
+        double y = in[0];
+        for (int j = 0; j < in.length; j++) {
+            y += a * (in[j] - y);
+            out[j] = (float) y;
+        }
+    }
+
+    /**
+     * Gaussian by three centred box passes, with widths chosen for the target
+     * sigma, after Kovesi, and the edges clamped.
+     */
+    private static void gaussian(double sigma, float[] in, float[] out) {
+        int passes = 3;
+        double ideal = Math.sqrt(12 * sigma * sigma / passes + 1);
+        int lower = (int) Math.floor(ideal);
+        if (lower % 2 == 0) lower--;
+        int upper = lower + 2;
+        long lowerCount = Math.round((12 * sigma * sigma - passes * lower * lower - 4 * passes * lower - 3 * passes) / (-4.0 * lower - 4));
+        float[] a = Arrays.copyOf(in, in.length);
+        float[] b = out;
+        for (int p = 0; p < passes; p++) {
+            int width = p < lowerCount ? lower : upper;
+            centredBox((width - 1) / 2, a, b);
+            float[] swap = a;
+            a = b;
+            b = swap;
+        }
+        if (a != out) {
+            System.arraycopy(a, 0, out, 0, in.length);
+        }
+    }
+
+    private static void centredBox(int radius, float[] in, float[] out) {
+        int n = in.length;
+        if (radius <= 0) {
+            System.arraycopy(in, 0, out, 0, n);
+            return;
+        }
+        int last = n - 1;
+        double sum = 0;
+        for (int k = -radius; k <= radius; k++) {
+            sum += in[Math.max(0, Math.min(last, k))];
+        }
+        double scale = 1.0 / (2 * radius + 1);
+        for (int j = 0; j < n; j++) {
+            out[j] = (float) (sum * scale);
+            sum += in[Math.min(last, j + radius + 1)] - in[Math.max(0, j - radius)];
+        }
+    }
+
+    /**
+     * Butterworth lowpass by the RBJ cookbook, cutoff in cycles per sample, started
+     * at rest on in[0].
+     */
+    private static void biquad(double cutoff, float[] in, float[] out) {
+        double w0 = 2 * Math.PI * Math.min(cutoff, 0.49);
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / Math.sqrt(2);
+        double a0 = 1 + alpha;
+        double b0 = (1 - cos) / 2 / a0;
+        double b1 = (1 - cos) / a0;
+        double b2 = b0;
+        double a1 = -2 * cos / a0;
+        double a2 = (1 - alpha) / a0;
+        double x1 = in[0], x2 = in[0], y1 = in[0], y2 = in[0];
+        for (int j = 0; j < in.length; j++) {
+            double x = in[j];
+            double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+            out[j] = (float) y;
+        }
+    }
+
+}
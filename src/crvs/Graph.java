@@ -0,0 +1,496 @@
+package crvs;
+
+import java.util.Arrays;
+
+/**
+ * An undirected graph of points in compressed sparse row form, with the usual
+ * graph algorithms over it, for driving growth and traversal along a mesh such
+ * as Delaunay.graph().
+ * <p>
+ * Everything is kept in primitive arrays: the neighbours of node i are
+ * neighbors[starts[i]] up to neighbors[starts[i + 1]], and neighborEdges holds
+ * the edge each of those entries came from, whose length is lengths[edge]. The
+ * algorithms write into arrays the caller passes and allocate little else, so
+ * they run at hundreds of thousands of nodes without building objects per node.
+ * The arrays are shared, not copied; do not modify them.
+ */
+public class Graph {
+
+    /**
+     * The number of nodes.
+     */
+    public final int nodeCount;
+    /**
+     * The number of edges.
+     */
+    public final int edgeCount;
+    /**
+     * The node x coordinates.
+     */
+    public final float[] xs;
+    /**
+     * The node y coordinates.
+     */
+    public final float[] ys;
+    /**
+     * The edges as interleaved pairs of node indices.
+     */
+    public final int[] edges;
+    /**
+     * The length of each edge.
+     */
+    public final float[] lengths;
+    /**
+     * Where each node's neighbours start in neighbors, with nodeCount + 1 entries.
+     */
+    public final int[] starts;
+    /**
+     * The neighbours of every node, node by node.
+     */
+    public final int[] neighbors;
+    /**
+     * The edge behind each entry of neighbors.
+     */
+    public final int[] neighborEdges;
+
+    /**
+     * Instantiates a new Graph, with each edge as long as the distance between
+     * its nodes.
+     *
+     * @param xs    the node x coordinates
+     * @param ys    the node y coordinates
+     * @param edges the edges as interleaved pairs of node indices
+     */
+    public Graph(float[] xs, float[] ys, int[] edges) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Got " + xs.length + " x and " + ys.length + " y coordinates");
+        }
+        this.nodeCount = xs.length;
+        this.edgeCount = edges.length / 2;
+        this.xs = xs;
+        this.ys = ys;
+        this.edges = edges;
+        this.lengths = new float[this.edgeCount];
+        this.starts = new int[this.nodeCount + 1];
+        for (int e = 0; e < this.edgeCount; e++) {
+            int a = edges[e * 2];
+            int b = edges[e * 2 + 1];
+            double dx = xs[b] - xs[a];
+            double dy = ys[b] - ys[a];
+            this.lengths[e] = (float) Math.sqrt(dx * dx + dy * dy);
+            this.starts[a + 1]++;
+            this.starts[b + 1]++;
+        }
+        for (int i = 0; i < this.nodeCount; i++) {
+            this.starts[i + 1] += this.starts[i];
+        }
+        this.neighbors = new int[this.edgeCount * 2];
+        this.neighborEdges = new int[this.edgeCount * 2];
+        int[] fill = Arrays.copyOf(this.starts, this.nodeCount);
+        for (int e = 0; e < this.edgeCount; e++) {
+            int a = edges[e * 2];
+            int b = edges[e * 2 + 1];
+            this.neighborEdges[fill[a]] = e;
+            this.neighbors[fill[a]++] = b;
+            this.neighborEdges[fill[b]] = e;
+            this.neighbors[fill[b]++] = a;
+        }
+    }
+
+    /**
+     * Gets the degree of a node.
+     *
+     * @param i the node
+     * @return the number of edges at it
+     */
+    public int degree(int i) {
+        return this.starts[i + 1] - this.starts[i];
+    }
+
+    /**
+     * Gets the degree of every node.
+     *
+     * @return the degrees
+     */
+    public int[] degrees() {
+        int[] degrees = new int[this.nodeCount];
+        for (int i = 0; i < this.nodeCount; i++) {
+            degrees[i] = this.starts[i + 1] - this.starts[i];
+        }
+        return degrees;
+    }
+
+    /**
+     * Counts the nodes of each degree.
+     *
+     * @return the histogram, where entry d is the number of nodes with degree d
+     */
+    public int[] degreeHistogram() {
+        int max = 0;
+        for (int i = 0; i < this.nodeCount; i++) {
+            max = Math.max(max, this.degree(i));
+        }
+        int[] histogram = new int[max + 1];
+        for (int i = 0; i < this.nodeCount; i++) {
+            histogram[this.degree(i)]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Breadth-first search from one node.
+     *
+     * @param source  the node to start from
+     * @param hops    the number of edges from the source to each node, -1 if unreached; nodeCount long
+     * @param parents the node each node was reached from, -1 for the source and unreached nodes; nodeCount long, or null
+     * @return the number of nodes reached
+     */
+    public int bfs(int source, int[] hops, int[] parents) {
+        return this.bfs(new int[] {source}, hops, parents);
+    }
+
+    /**
+     * Breadth-first search from many nodes at once, so every node ends up
+     * counted from its nearest source, in hops.
+     *
+     * @param sources the nodes to start from
+     * @param hops    the number of edges from the nearest source to each node, -1 if unreached; nodeCount long
+     * @param parents the node each node was reached from, -1 for sources and unreached nodes; nodeCount long, or null
+     * @return the number of nodes reached
+     */
+    public int bfs(int[] sources, int[] hops, int[] parents) {
+        Arrays.fill(hops, 0, this.nodeCount, -1);
+        if (parents != null) {
+            Arrays.fill(parents, 0, this.nodeCount, -1);
+        }
+        int[] queue = new int[this.nodeCount];
+        int tail = 0;
+        for (int source : sources) {
+            if (hops[source] < 0) {
+                hops[source] = 0;
+                queue[tail++] = source;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int k = this.starts[v], end = this.starts[v + 1]; k < end; k++) {
+                int w = this.neighbors[k];
+                if (hops[w] < 0) {
+                    hops[w] = hops[v] + 1;
+                    if (parents != null) {
+                        parents[w] = v;
+                    }
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Dijkstra's shortest paths from one node, along edge lengths.
+     *
+     * @param source    the node to start from
+     * @param distances the distance from the source to each node, infinite if unreached; nodeCount long
+     * @param parents   the node each node was reached from, -1 for the source and unreached nodes; nodeCount long, or null
+     * @return the number of nodes reached
+     */
+    public int dijkstra(int source, float[] distances, int[] parents) {
+        return this.dijkstra(new int[] {source}, distances, parents);
+    }
+
+    /**
+     * Dijkstra's shortest paths from many nodes at once, so every node ends up
+     * measured from its nearest source along edge lengths. Uses an indexed binary
+     * heap, O((n + m) log n).
+     *
+     * @param sources   the nodes to start from
+     * @param distances the distance from the nearest source to each node, infinite if unreached; nodeCount long
+     * @param parents   the node each node was reached from, -1 for sources and unreached nodes; nodeCount long, or null
+     * @return the number of nodes reached
+     */
+    public int dijkstra(int[] sources, float[] distances, int[] parents) {
+        Arrays.fill(distances, 0, this.nodeCount, Float.POSITIVE_INFINITY);
+        if (parents != null) {
+            Arrays.fill(parents, 0, this.nodeCount, -1);
+        }
+        IndexedHeap heap = new IndexedHeap(this.nodeCount);
+        for (int source : sources) {
+            if (distances[source] != 0) {
+                distances[source] = 0;
+                heap.add(source, 0);
+            }
+        }
+        int reached = 0;
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            reached++;
+            for (int k = this.starts[v], end = this.starts[v + 1]; k < end; k++) {
+                int w = this.neighbors[k];
+                // lengths are never negative, so a settled node is never improved
+                float d = distances[v] + this.lengths[this.neighborEdges[k]];
+                if (d < distances[w]) {
+                    distances[w] = d;
+                    if (parents != null) {
+                        parents[w] = v;
+                    }
+                    if (heap.contains(w)) {
+                        heap.update(w, d);
+                    } else {
+                        heap.add(w, d);
+                    }
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Follows parents back from a node to the source it was reached from.
+     *
+     * @param parents the parents from bfs or dijkstra
+     * @param target  the node to end at
+     * @return the nodes from the source to target, just target if it is a source or was not reached
+     */
+    public static int[] path(int[] parents, int target) {
+        int length = 1;
+        for (int v = parents[target]; v >= 0; v = parents[v]) {
+            length++;
+            if (length > parents.length) {
+                throw new IllegalArgumentException("Parents form a cycle");
+            }
+        }
+        int[] path = new int[length];
+        for (int v = target, i = length - 1; i >= 0; v = parents[v], i--) {
+            path[i] = v;
+        }
+        return path;
+    }
+
+    /**
+     * Labels the connected components.
+     *
+     * @param labels the component of each node, numbered from 0; nodeCount long
+     * @return the number of components
+     */
+    public int components(int[] labels) {
+        Arrays.fill(labels, 0, this.nodeCount, -1);
+        int[] stack = new int[this.nodeCount];
+        int count = 0;
+        for (int s = 0; s < this.nodeCount; s++) {
+            if (labels[s] >= 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = s;
+            labels[s] = count;
+            while (top > 0) {
+                int v = stack[--top];
+                for (int k = this.starts[v], end = this.starts[v + 1]; k < end; k++) {
+                    int w = this.neighbors[k];
+                    if (labels[w] < 0) {
+                        labels[w] = count;
+                        stack[top++] = w;
+                    }
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Finds a minimum spanning forest by Kruskal's algorithm: edges are sorted by
+     * length and taken whenever they join two different trees, tracked with a
+     * union-find.
+     *
+     * @return the edges of the forest, by index into edges, shortest first
+     */
+    public int[] mst() {
+        long[] order = new long[this.edgeCount];
+        for (int e = 0; e < this.edgeCount; e++) {
+            // the bits of a non-negative float sort as the float does
+            order[e] = ((long) Float.floatToIntBits(this.lengths[e]) << 32) | e;
+        }
+        Arrays.sort(order);
+        int[] roots = new int[this.nodeCount];
+        for (int i = 0; i < this.nodeCount; i++) {
+            roots[i] = i;
+        }
+        int[] tree = new int[Math.max(0, this.nodeCount - 1)];
+        int count = 0;
+        for (int k = 0; k < order.length && count < tree.length; k++) {
+            int e = (int) order[k];
+            int a = find(roots, this.edges[e * 2]);
+            int b = find(roots, this.edges[e * 2 + 1]);
+            if (a != b) {
+                roots[a] = b;
+                tree[count++] = e;
+            }
+        }
+        return Arrays.copyOf(tree, count);
+    }
+
+    /**
+     * Finds the edges of the Gabriel graph: those whose diametral circle holds no
+     * other node. On a Delaunay graph a blocking node is always one of the
+     * neighbours of the edge's ends, so each edge is tested against those alone.
+     *
+     * @return the edges kept, by index into edges, in order
+     */
+    public int[] gabriel() {
+        int[] kept = new int[this.edgeCount];
+        int count = 0;
+        for (int e = 0; e < this.edgeCount; e++) {
+            int a = this.edges[e * 2];
+            int b = this.edges[e * 2 + 1];
+            if (!this.blocked(a, a, b, false)) {
+                kept[count++] = e;
+            }
+        }
+        return Arrays.copyOf(kept, count);
+    }
+
+    /**
+     * Finds the edges of the relative neighbourhood graph: those whose lune, the
+     * points nearer to both ends than they are to each other, holds no other
+     * node. It lies between the minimum spanning tree and the Gabriel graph. On a
+     * Delaunay graph most edges are ruled out by a neighbour of one of their ends;
+     * the rest are checked against the nodes in a grid over the lune.
+     *
+     * @return the edges kept, by index into edges, in order
+     */
+    public int[] relativeNeighborhood() {
+        int[] kept = new int[this.edgeCount];
+        int count = 0;
+        for (int e = 0; e < this.edgeCount; e++) {
+            int a = this.edges[e * 2];
+            int b = this.edges[e * 2 + 1];
+            if (!this.blocked(a, a, b, true) && !this.blocked(b, a, b, true)) {
+                kept[count++] = e;
+            }
+        }
+        if (count == 0) {
+            return new int[0];
+        }
+        // bucket the nodes into a grid of about one per cell
+        float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY;
+        float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < this.nodeCount; i++) {
+            x0 = Math.min(x0, this.xs[i]);
+            y0 = Math.min(y0, this.ys[i]);
+            x1 = Math.max(x1, this.xs[i]);
+            y1 = Math.max(y1, this.ys[i]);
+        }
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(this.nodeCount)));
+        float sx = x1 > x0 ? side / (x1 - x0) : 0;
+        float sy = y1 > y0 ? side / (y1 - y0) : 0;
+        int[] cellStarts = new int[side * side + 1];
+        for (int i = 0; i < this.nodeCount; i++) {
+            cellStarts[cell(this.ys[i], y0, sy, side) * side + cell(this.xs[i], x0, sx, side) + 1]++;
+        }
+        for (int c = 0; c < side * side; c++) {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+        int[] cellNodes = new int[this.nodeCount];
+        int[] fill = Arrays.copyOf(cellStarts, side * side);
+        for (int i = 0; i < this.nodeCount; i++) {
+            cellNodes[fill[cell(this.ys[i], y0, sy, side) * side + cell(this.xs[i], x0, sx, side)]++] = i;
+        }
+        int written = 0;
+        for (int k = 0; k < count; k++) {
+            int e = kept[k];
+            int a = this.edges[e * 2];
+            int b = this.edges[e * 2 + 1];
+            double ax = this.xs[a], ay = this.ys[a];
+            double bx = this.xs[b], by = this.ys[b];
+            double ab = (bx - ax) * (bx - ax) + (by - ay) * (by - ay);
+            float r = (float) Math.sqrt(ab);
+            // the lune lies within r of both ends
+            int cx0 = cell((float) Math.max(ax, bx) - r, x0, sx, side);
+            int cx1 = cell((float) Math.min(ax, bx) + r, x0, sx, side);
+            int cy0 = cell((float) Math.max(ay, by) - r, y0, sy, side);
+            int cy1 = cell((float) Math.min(ay, by) + r, y0, sy, side);
+            boolean empty = true;
+            for (int cy = cy0; cy <= cy1 && empty; cy++) {
+                for (int cx = cx0; cx <= cx1 && empty; cx++) {
+                    for (int j = cellStarts[cy * side + cx], end = cellStarts[cy * side + cx + 1]; j < end; j++) {
+                        int c = cellNodes[j];
+                        double px = this.xs[c], py = this.ys[c];
+                        if ((px - ax) * (px - ax) + (py - ay) * (py - ay) < ab
+                                && (px - bx) * (px - bx) + (py - by) * (py - by) < ab) {
+                            empty = false;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (empty) {
+                kept[written++] = e;
+            }
+        }
+        return Arrays.copyOf(kept, written);
+    }
+
+    /**
+     * Whether a neighbour of node v lies strictly inside the lune of a and b, or
+     * with lune false, inside the circle on a and b as diameter.
+     */
+    private boolean blocked(int v, int a, int b, boolean lune) {
+        double ax = this.xs[a], ay = this.ys[a];
+        double bx = this.xs[b], by = this.ys[b];
+        double ab = (bx - ax) * (bx - ax) + (by - ay) * (by - ay);
+        for (int k = this.starts[v], end = this.starts[v + 1]; k < end; k++) {
+            int c = this.neighbors[k];
+            if (c == a || c == b) {
+                continue;
+            }
+            double cx = this.xs[c], cy = this.ys[c];
+            if (lune) {
+                double ac = (cx - ax) * (cx - ax) + (cy - ay) * (cy - ay);
+                double bc = (cx - bx) * (cx - bx) + (cy - by) * (cy - by);
+                if (ac < ab && bc < ab) {
+                    return true;
+                }
+            } else if ((ax - cx) * (bx - cx) + (ay - cy) * (by - cy) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the ends of some edges, as edges are given elsewhere: x1, y1, x2, y2.
+     *
+     * @param edgeIds the edges, by index into edges
+     * @return the float [ ] [ ]
+     */
+    public float[][] coords(int[] edgeIds) {
+        float[][] coords = new float[edgeIds.length][4];
+        for (int i = 0; i < edgeIds.length; i++) {
+            int a = this.edges[edgeIds[i] * 2];
+            int b = this.edges[edgeIds[i] * 2 + 1];
+            coords[i][0] = this.xs[a];
+            coords[i][1] = this.ys[a];
+            coords[i][2] = this.xs[b];
+            coords[i][3] = this.ys[b];
+        }
+        return coords;
+    }
+
+    /**
+     * Finds the root of a union-find tree, halving the path on the way.
+     */
+    static int find(int[] roots, int i) {
+        while (roots[i] != i) {
+            roots[i] = roots[roots[i]];
+            i = roots[i];
+        }
+        return i;
+    }
+
+    private static int cell(float v, float origin, float scale, int side) {
+        return Math.max(0, Math.min(side - 1, (int) ((v - origin) * scale)));
+    }
+
+}
@@ -1,6 +1,6 @@
 package crvs;
 
-import quickhull3d.QuickHull3D;
+import com.github.quickhull3d.QuickHull3D;
 
 /**
  * The type Hull.
@@ -22,7 +22,10 @@ public class Hull {
      * @param points the points
      */
     public Hull( float[][] points ){
-		
+		long start = Metrics.start();
+		JfrEvents.MeshBuild event = new JfrEvents.MeshBuild();
+		event.begin();
+
 		if( points.length < 3 ){
 			extrema = new int[points.length];
 			region = new MPolygon(points.length);
@@ -72,7 +75,14 @@ public class Hull {
 		for(int i=0; i<extrema.length; i++){
 			region.add(points[extrema[i]][0], points[extrema[i]][1]);
 		}
-		
+
+		Metrics.time(Metric.HULL_BUILD, 0, start, points.length);
+		if (event.shouldCommit()) {
+			event.mesh = "Hull";
+			event.points = points.length;
+			event.faces = extrema.length;
+			event.commit();
+		}
 	}
 
     /**
@@ -0,0 +1,154 @@
+package crvs;
+
+import java.util.Arrays;
+
+/**
+ * An indexed binary min-heap of the ints 0 to capacity - 1, keyed by double. Each
+ * item's slot in the heap is tracked, so its key can be changed or the item
+ * removed in O(log n) without searching. Shared by Graph.dijkstra and
+ * Simplify's Visvalingam-Whyatt pass.
+ */
+final class IndexedHeap {
+
+    private final double[] keys;
+    private final int[] heap;
+    // the heap slot of each item, -1 when it is not in the heap
+    private final int[] slots;
+    private int size;
+
+    /**
+     * Instantiates a new Indexed heap.
+     *
+     * @param capacity the number of items
+     */
+    IndexedHeap(int capacity) {
+        this.keys = new double[capacity];
+        this.heap = new int[capacity];
+        this.slots = new int[capacity];
+        Arrays.fill(this.slots, -1);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    boolean contains(int item) {
+        return this.slots[item] >= 0;
+    }
+
+    double key(int item) {
+        return this.keys[item];
+    }
+
+    /**
+     * Adds an item that is not in the heap.
+     */
+    void add(int item, double key) {
+        this.append(item, key);
+        this.up(this.size - 1);
+    }
+
+    /**
+     * Adds an item without restoring heap order, for filling in bulk before a
+     * single heapify().
+     */
+    void append(int item, double key) {
+        this.keys[item] = key;
+        this.heap[this.size] = item;
+        this.slots[item] = this.size++;
+    }
+
+    /**
+     * Restores heap order after append(), in O(n).
+     */
+    void heapify() {
+        for (int s = this.size / 2 - 1; s >= 0; s--) {
+            this.down(s);
+        }
+    }
+
+    /**
+     * Changes the key of an item in the heap, up or down.
+     */
+    void update(int item, double key) {
+        this.keys[item] = key;
+        this.up(this.slots[item]);
+        this.down(this.slots[item]);
+    }
+
+    /**
+     * The item with the least key, without removing it.
+     */
+    int peek() {
+        return this.heap[0];
+    }
+
+    /**
+     * Removes and returns the item with the least key.
+     */
+    int poll() {
+        int item = this.heap[0];
+        this.removeAt(0);
+        return item;
+    }
+
+    /**
+     * Removes an item in the heap.
+     */
+    void remove(int item) {
+        this.removeAt(this.slots[item]);
+    }
+
+    private void removeAt(int s) {
+        this.slots[this.heap[s]] = -1;
+        this.size--;
+        if (s < this.size) {
+            int moved = this.heap[this.size];
+            this.heap[s] = moved;
+            this.slots[moved] = s;
+            this.up(s);
+            this.down(this.slots[moved]);
+        }
+    }
+
+    private void up(int s) {
+        int v = this.heap[s];
+        while (s > 0) {
+            int parent = (s - 1) >> 1;
+            if (this.keys[this.heap[parent]] <= this.keys[v]) {
+                break;
+            }
+            this.heap[s] = this.heap[parent];
+            this.slots[this.heap[s]] = s;
+            s = parent;
+        }
+        this.heap[s] = v;
+        this.slots[v] = s;
+    }
+
+    private void down(int s) {
+        int v = this.heap[s];
+        while (true) {
+            int child = 2 * s + 1;
+            if (child >= this.size) {
+                break;
+            }
+            if (child + 1 < this.size && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+                child++;
+            }
+            if (this.keys[this.heap[child]] >= this.keys[v]) {
+                break;
+            }
+            this.heap[s] = this.heap[child];
+            this.slots[this.heap[s]] = s;
+            s = child;
+        }
+        this.heap[s] = v;
+        this.slots[v] = s;
+    }
+
+}
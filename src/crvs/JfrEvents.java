@@ -0,0 +1,97 @@
+package crvs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events emitted by the library's entry points. Each event
+ * carries its own duration, so a recording lines library work up against GC
+ * pauses and JIT activity on the same timeline. When no recording enables them,
+ * an entry point pays for one shouldCommit check.
+ * <pre>
+ * java -XX:StartFlightRecording=filename=render.jfr ...
+ * jfr print --events crvs.MeshBuild render.jfr
+ * </pre>
+ */
+final class JfrEvents {
+
+    private JfrEvents() {
+    }
+
+    @Name("crvs.CrvSample")
+    @Label("Crv Sample Batch")
+    @Description("A curve sampled into an array")
+    @Category("Crvs")
+    @StackTrace(false)
+    static class CrvSample extends Event {
+        @Label("Curve Id")
+        int curveId;
+
+        @Label("Points")
+        int points;
+
+        @Label("Depth")
+        int depth;
+    }
+
+    @Name("crvs.MeshBuild")
+    @Label("Mesh Build")
+    @Description("Construction of a Voronoi, Delaunay or Hull")
+    @Category("Crvs")
+    @StackTrace(false)
+    static class MeshBuild extends Event {
+        @Label("Mesh")
+        String mesh;
+
+        @Label("Points")
+        int points;
+
+        @Label("Faces")
+        @Description("Hull faces from quickhull; extrema for a Hull")
+        int faces;
+    }
+
+    @Name("crvs.DrawBatch")
+    @Label("Draw Batch")
+    @Description("One library draw call and the primitives it issued")
+    @Category("Crvs")
+    @StackTrace(false)
+    static class DrawBatch extends Event {
+        @Label("Call")
+        String call;
+
+        @Label("Curve Id")
+        @Description("0 when the call is not made on a curve")
+        int curveId;
+
+        @Label("Primitives")
+        @Description("Points, lines, vertices or triangles, depending on the call")
+        int primitives;
+    }
+
+    @Name("crvs.Render")
+    @Label("MIDI Render")
+    @Description("A sequence or track rendered to MIDI")
+    @Category("Crvs")
+    @StackTrace(false)
+    static class Render extends Event {
+        @Label("Call")
+        String call;
+
+        @Label("Channel")
+        @Description("-1 for a whole sequence")
+        int channel;
+
+        @Label("Ticks")
+        long ticks;
+
+        @Label("Events")
+        @Description("MIDI events added to the tracks")
+        int events;
+    }
+
+}
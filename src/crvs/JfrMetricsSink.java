@@ -0,0 +1,128 @@
+package crvs;
+
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * MetricsSink that reports to JDK Flight Recorder. Timers become one crvs.Timer
+ * event per operation. Counters and gauges are summed in memory, because one
+ * event per curve sample would cost more than the sample. Their totals are
+ * emitted once per recording period as crvs.Counter and crvs.CurveSamples
+ * events.
+ * <pre>
+ * JfrMetricsSink jfr = new JfrMetricsSink();
+ * Metrics.enable(jfr);
+ * // java -XX:StartFlightRecording=filename=render.jfr ...
+ * </pre>
+ * Call close after disabling Metrics to unregister the periodic hook.
+ */
+public class JfrMetricsSink extends MetricsRegistry implements AutoCloseable {
+
+    @Name("crvs.Counter")
+    @Label("Crvs Counter")
+    @Description("Running total of a library counter or the latest value of a gauge")
+    @Category("Crvs")
+    @Period("1 s")
+    @StackTrace(false)
+    static class CounterEvent extends Event {
+        @Label("Metric")
+        String metric;
+
+        @Label("Value")
+        long value;
+    }
+
+    @Name("crvs.CurveSamples")
+    @Label("Crvs Curve Samples")
+    @Description("Running sample count and op-tree depth of one curve")
+    @Category("Crvs")
+    @StackTrace(false)
+    static class CurveEvent extends Event {
+        @Label("Curve Id")
+        int curveId;
+
+        @Label("Samples")
+        long samples;
+
+        @Label("Depth")
+        long depth;
+    }
+
+    @Name("crvs.Timer")
+    @Label("Crvs Timer")
+    @Description("One timed library operation")
+    @Category("Crvs")
+    static class TimerEvent extends Event {
+        @Label("Metric")
+        String metric;
+
+        @Label("Id")
+        int id;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+
+        @Label("Size")
+        long size;
+    }
+
+    private final Runnable hook = this::emit;
+
+    /**
+     * Instantiates the sink and registers its periodic event.
+     */
+    public JfrMetricsSink() {
+        FlightRecorder.addPeriodicEvent(CounterEvent.class, hook);
+    }
+
+    @Override
+    public void time(Metric metric, int id, long nanos, long size) {
+        super.time(metric, id, nanos, size);
+        TimerEvent event = new TimerEvent();
+        if (event.shouldCommit()) {
+            event.metric = metric.name();
+            event.id = id;
+            event.nanos = nanos;
+            event.size = size;
+            event.commit();
+        }
+    }
+
+    private void emit() {
+        for (Metric metric : Metric.values()) {
+            if (metric.kind == Metric.Kind.TIMER) continue;
+            CounterEvent event = new CounterEvent();
+            event.metric = metric.name();
+            event.value = metric.kind == Metric.Kind.COUNTER ? total(metric) : gauge(metric);
+            event.commit();
+        }
+        CurveEvent probe = new CurveEvent();
+        if (!probe.isEnabled()) return;
+        for (Map.Entry<Integer, Long> entry : samplesByCurve().entrySet()) {
+            CurveEvent event = new CurveEvent();
+            event.curveId = entry.getKey();
+            event.samples = entry.getValue();
+            event.depth = depth(entry.getKey());
+            event.commit();
+        }
+    }
+
+    /**
+     * Unregisters the periodic event.
+     */
+    @Override
+    public void close() {
+        FlightRecorder.removePeriodicEvent(hook);
+    }
+
+}
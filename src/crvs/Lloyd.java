@@ -0,0 +1,339 @@
+package crvs;
+
+import java.util.stream.IntStream;
+
+import processing.core.PVector;
+
+/**
+ * Lloyd relaxation: moves each site to the centroid of its Voronoi cell, clipped
+ * to a rectangle, and repeats, so the sites spread into a centroidal Voronoi
+ * tessellation. With a density the centroids are weighted by it and the sites
+ * gather where it is high, which is weighted Voronoi stippling. Sites drift
+ * slowly over long distances, so for stippling seed them roughly by the density
+ * and let relaxation even them out.
+ * <pre>
+ * Lloyd lloyd = new Lloyd(crv.vectorArray(2000, true, true), 0, 0, width, height);
+ * lloyd.density = Lloyd.density(null, crv);
+ * lloyd.relax(50, 0.1f);
+ * PVector[] stipples = lloyd.sites();
+ * </pre>
+ * Sites, cell areas and centroids are kept in primitive arrays that every step
+ * reuses. Each step builds one Voronoi, whose hull is the Delaunay triangulation,
+ * and reads the cells straight from it; cells are clipped and integrated in
+ * parallel on the common fork-join pool unless parallel is false. A density that
+ * calls back into the PApplet (noise, random) is not safe to evaluate in
+ * parallel.
+ */
+public class Lloyd {
+
+    /**
+     * A density over the rectangle.
+     */
+    public interface Density {
+        /**
+         * Gets the density at a point.
+         *
+         * @param u the x position across the rectangle, 0..1
+         * @param v the y position down the rectangle, 0..1
+         * @return the density, not negative
+         */
+        float at(float u, float v);
+    }
+
+    /**
+     * The x coordinate of each site, updated by every step.
+     */
+    public final float[] xs;
+    /**
+     * The y coordinate of each site, updated by every step.
+     */
+    public final float[] ys;
+    /**
+     * The area of each site's clipped cell at the last step.
+     */
+    public final float[] areas;
+    /**
+     * The x coordinate of each cell's centroid at the last step.
+     */
+    public final float[] centroidXs;
+    /**
+     * The y coordinate of each cell's centroid at the last step.
+     */
+    public final float[] centroidYs;
+
+    /**
+     * The rectangle cells are clipped to.
+     */
+    public final float minX, minY, maxX, maxY;
+
+    /**
+     * The density to weight centroids by, or null for an even one.
+     */
+    public Density density;
+
+    /**
+     * How finely each cell triangle is split to integrate the density: into
+     * subdivisions squared smaller triangles.
+     */
+    public int subdivisions = 4;
+
+    /**
+     * Whether cells are integrated in parallel.
+     */
+    public boolean parallel = true;
+
+    /**
+     * The furthest any site moved in the last step.
+     */
+    public float maxMove;
+
+    /**
+     * The root mean square distance the sites moved in the last step.
+     */
+    public float meanMove;
+
+    /**
+     * The number of steps taken.
+     */
+    public int iterations;
+
+    private Voronoi voronoi;
+
+    /**
+     * Instantiates a new Lloyd.
+     *
+     * @param xs   the site x coordinates, used in place
+     * @param ys   the site y coordinates, used in place
+     * @param minX the left of the rectangle
+     * @param minY the top of the rectangle
+     * @param maxX the right of the rectangle
+     * @param maxY the bottom of the rectangle
+     */
+    public Lloyd(float[] xs, float[] ys, float minX, float minY, float maxX, float maxY) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Got " + xs.length + " x and " + ys.length + " y coordinates");
+        }
+        if (!(maxX > minX && maxY > minY)) {
+            throw new IllegalArgumentException("Empty rectangle");
+        }
+        this.xs = xs;
+        this.ys = ys;
+        this.areas = new float[xs.length];
+        this.centroidXs = new float[xs.length];
+        this.centroidYs = new float[xs.length];
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Instantiates a new Lloyd.
+     *
+     * @param sites the sites, copied
+     * @param minX  the left of the rectangle
+     * @param minY  the top of the rectangle
+     * @param maxX  the right of the rectangle
+     * @param maxY  the bottom of the rectangle
+     */
+    public Lloyd(PVector[] sites, float minX, float minY, float maxX, float maxY) {
+        this(xs(sites), ys(sites), minX, minY, maxX, maxY);
+    }
+
+    private static float[] xs(PVector[] sites) {
+        float[] xs = new float[sites.length];
+        for (int i = 0; i < sites.length; i++) {
+            xs[i] = sites[i].x;
+        }
+        return xs;
+    }
+
+    private static float[] ys(PVector[] sites) {
+        float[] ys = new float[sites.length];
+        for (int i = 0; i < sites.length; i++) {
+            ys[i] = sites[i].y;
+        }
+        return ys;
+    }
+
+    /**
+     * A density that is the product of a curve across the rectangle and a curve
+     * down it, each read at 0..1.
+     *
+     * @param xOp the density across, or null for an even one
+     * @param yOp the density down, or null for an even one
+     * @return the density
+     */
+    public static Density density(FloatOp xOp, FloatOp yOp) {
+        return (u, v) -> (xOp == null ? 1f : xOp.apply(u)) * (yOp == null ? 1f : yOp.apply(v));
+    }
+
+    /**
+     * Moves every site to the centroid of its clipped cell. Sites whose cell has
+     * no area or no mass stay where they are.
+     *
+     * @return the furthest any site moved
+     */
+    public float step() {
+        int n = this.xs.length;
+        PVector[] sites = new PVector[n];
+        for (int i = 0; i < n; i++) {
+            sites[i] = new PVector(this.xs[i], this.ys[i]);
+        }
+        this.voronoi = new Voronoi(sites);
+        MPolygon[] regions = this.voronoi.getRegions();
+        IntStream indices = IntStream.range(0, n);
+        if (this.parallel && n > 1) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> this.integrate(i, regions[i]));
+        double max = 0;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = this.centroidXs[i] - this.xs[i];
+            double dy = this.centroidYs[i] - this.ys[i];
+            double d2 = dx * dx + dy * dy;
+            max = Math.max(max, d2);
+            sum += d2;
+            this.xs[i] = this.centroidXs[i];
+            this.ys[i] = this.centroidYs[i];
+        }
+        this.maxMove = (float) Math.sqrt(max);
+        this.meanMove = n > 0 ? (float) Math.sqrt(sum / n) : 0;
+        this.iterations++;
+        return this.maxMove;
+    }
+
+    /**
+     * Steps until no site moves further than tolerance, or maxIterations steps.
+     *
+     * @param maxIterations the most steps to take
+     * @param tolerance     the move below which the sites count as settled
+     * @return the number of steps taken
+     */
+    public int relax(int maxIterations, float tolerance) {
+        int steps = 0;
+        while (steps < maxIterations) {
+            steps++;
+            if (this.step() <= tolerance) {
+                break;
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Gets the sites as PVectors.
+     *
+     * @return the sites
+     */
+    public PVector[] sites() {
+        PVector[] sites = new PVector[this.xs.length];
+        for (int i = 0; i < sites.length; i++) {
+            sites[i] = new PVector(this.xs[i], this.ys[i]);
+        }
+        return sites;
+    }
+
+    /**
+     * Gets the Voronoi diagram the last step was computed from, before the sites
+     * moved, or null before the first step.
+     *
+     * @return the voronoi
+     */
+    public Voronoi voronoi() {
+        return this.voronoi;
+    }
+
+    /**
+     * Clips cell i to the rectangle and stores its area and centroid.
+     */
+    private void integrate(int i, MPolygon region) {
+        int count = region.count();
+        float[][] coords = region.getCoords();
+        float[] cell = new float[(count + 4) * 2];
+        for (int k = 0; k < count; k++) {
+            cell[k * 2] = coords[k][0];
+            cell[k * 2 + 1] = coords[k][1];
+        }
+        float[] scratch = new float[(count + 4) * 2];
+        // Sutherland-Hodgman against each side; a convex cell gains at most one
+        // vertex per side
+        count = clip(cell, count, scratch, 0, this.minX, 1);
+        count = clip(scratch, count, cell, 0, this.maxX, -1);
+        count = clip(cell, count, scratch, 1, this.minY, 1);
+        count = clip(scratch, count, cell, 1, this.maxY, -1);
+        double area = 0, mass = 0, mx = 0, my = 0;
+        float width = this.maxX - this.minX;
+        float height = this.maxY - this.minY;
+        int parts = Math.max(1, this.subdivisions);
+        for (int k = 1; k + 1 < count; k++) {
+            double ax = cell[0], ay = cell[1];
+            double bx = cell[k * 2], by = cell[k * 2 + 1];
+            double cx = cell[k * 2 + 2], cy = cell[k * 2 + 3];
+            double a = ((bx - ax) * (cy - ay) - (by - ay) * (cx - ax)) / 2;
+            area += a;
+            if (this.density == null) {
+                mass += a;
+                mx += a * (ax + bx + cx) / 3;
+                my += a * (ay + by + cy) / 3;
+                continue;
+            }
+            // split the triangle into parts^2 equal triangles and weight each by the
+            // density at its centroid
+            double ux = (bx - ax) / parts, uy = (by - ay) / parts;
+            double vx = (cx - ax) / parts, vy = (cy - ay) / parts;
+            double small = a / (parts * parts);
+            for (int s = 0; s < parts; s++) {
+                for (int t = 0; t < parts - s; t++) {
+                    for (int flip = 0; flip < (t < parts - s - 1 ? 2 : 1); flip++) {
+                        // upright triangles have their centroid at +1/3, inverted at +2/3
+                        double f = flip == 0 ? 1.0 / 3 : 2.0 / 3;
+                        double px = ax + ux * (s + f) + vx * (t + f);
+                        double py = ay + uy * (s + f) + vy * (t + f);
+                        double w = small * this.density.at((float) ((px - this.minX) / width), (float) ((py - this.minY) / height));
+                        mass += w;
+                        mx += w * px;
+                        my += w * py;
+                    }
+                }
+            }
+        }
+        this.areas[i] = (float) Math.abs(area);
+        if (mass != 0 && mass == mass) {
+            this.centroidXs[i] = (float) (mx / mass);
+            this.centroidYs[i] = (float) (my / mass);
+        } else {
+            this.centroidXs[i] = this.xs[i];
+            this.centroidYs[i] = this.ys[i];
+        }
+    }
+
+    /**
+     * Clips a polygon to the side of the line coordinate axis = edge where
+     * sign * (value - edge) is not negative, writing into out.
+     */
+    private static int clip(float[] in, int count, float[] out, int axis, float edge, int sign) {
+        int written = 0;
+        for (int k = 0; k < count; k++) {
+            int j = k == 0 ? count - 1 : k - 1;
+            float px = in[j * 2], py = in[j * 2 + 1];
+            float qx = in[k * 2], qy = in[k * 2 + 1];
+            float pd = sign * ((axis == 0 ? px : py) - edge);
+            float qd = sign * ((axis == 0 ? qx : qy) - edge);
+            if ((pd >= 0) != (qd >= 0)) {
+                float t = pd / (pd - qd);
+                out[written * 2] = px + (qx - px) * t;
+                out[written * 2 + 1] = py + (qy - py) * t;
+                written++;
+            }
+            if (qd >= 0) {
+                out[written * 2] = qx;
+                out[written * 2 + 1] = qy;
+                written++;
+            }
+        }
+        return written;
+    }
+
+}
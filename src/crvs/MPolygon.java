@@ -1,6 +1,8 @@
 package crvs;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 import processing.core.*;
 
@@ -10,6 +12,31 @@ import processing.core.*;
 @SuppressWarnings("unused")
 public class MPolygon {
 
+    /**
+     * Direction numbers of the second Sobol dimension (primitive polynomial x + 1).
+     */
+    private static final int[] SOBOL_DIRECTIONS = new int[32];
+	static {
+		SOBOL_DIRECTIONS[0] = 1 << 31;
+		for (int i = 1; i < 32; i++) {
+			SOBOL_DIRECTIONS[i] = SOBOL_DIRECTIONS[i - 1] ^ (SOBOL_DIRECTIONS[i - 1] >>> 1);
+		}
+	}
+
+    /**
+     * Points placed per squared radius when deriving the Poisson radius. A saturated
+     * Bridson fill holds roughly 1 / (1.5 r^2) points per unit area, so this stays
+     * just under it and the fill covers the whole polygon before hitting the cap.
+     */
+    private static final double POISSON_DENSITY = 1.4;
+
+    /**
+     * Candidates tried around an active point before it is retired.
+     */
+    private static final int POISSON_ATTEMPTS = 30;
+
+    private static final double TWO_POW_32 = 4294967296.0;
+
     /**
      * The Coords.
      */
@@ -18,6 +45,14 @@ public class MPolygon {
      * The Count.
      */
     int count;
+    /**
+     * The cached triangle index buffer, null until first requested.
+     */
+    int[] triangles;
+    /**
+     * The cached prepared polygon, null until first requested.
+     */
+    PreparedPolygon prepared;
 
     /**
      * Instantiates a new M polygon.
@@ -45,6 +80,17 @@ public class MPolygon {
     public void add(float x, float y){
 		coords[count][0] = x;
 		coords[count++][1] = y;
+		triangles = null;
+		prepared = null;
+	}
+
+    /**
+     * Drops the cached triangulation and prepared polygon. Call this after editing
+     * the array returned by getCoords() in place.
+     */
+    public void invalidate() {
+		triangles = null;
+		prepared = null;
 	}
 
     /**
@@ -63,14 +109,89 @@ public class MPolygon {
      * @param fill the fill
      */
     public void draw(PGraphics g, boolean fill) {
+		JfrEvents.DrawBatch event = new JfrEvents.DrawBatch();
+		event.begin();
 		if (!fill) {
 			g.noFill();
 		}
+		this.outline(g);
+		if (event.shouldCommit()) {
+			event.call = "MPolygon.draw";
+			event.primitives = count;
+			event.commit();
+		}
+	}
+
+    private void outline(PGraphics g) {
 		g.beginShape();
 		for(int i=0; i<count; i++){
 			g.vertex(coords[i][0], coords[i][1]);
 		}
 		g.endShape(PApplet.CLOSE);
+		Metrics.count(Metric.EDGES_DRAWN, 0, count);
+	}
+
+    /**
+     * Fills many polygons with a single TRIANGLES shape using their cached
+     * triangulations, so the renderer never re-tessellates them.
+     *
+     * @param g        the g
+     * @param polygons the polygons
+     */
+    public static void fill(PGraphics g, MPolygon[] polygons) {
+		JfrEvents.DrawBatch event = new JfrEvents.DrawBatch();
+		event.begin();
+		int triangles = 0;
+		g.beginShape(PApplet.TRIANGLES);
+		for (MPolygon polygon : polygons) {
+			polygon.triangleVertices(g);
+			triangles += polygon.triangleCount();
+		}
+		g.endShape();
+		if (event.shouldCommit()) {
+			event.call = "MPolygon.fill";
+			event.primitives = triangles;
+			event.commit();
+		}
+	}
+
+    /**
+     * Emits the cached triangles as vertices into a shape that was opened with
+     * beginShape(TRIANGLES).
+     *
+     * @param g the g
+     */
+    public void triangleVertices(PGraphics g) {
+		int[] tris = this.getTriangles();
+		for (int idx : tris) {
+			g.vertex(coords[idx][0], coords[idx][1]);
+		}
+	}
+
+    /**
+     * Get triangles int [ ].
+     * <p>
+     * Returns the polygon's triangulation as an index buffer into getCoords(),
+     * three indices per triangle. It is computed on first use, as a fan for convex
+     * polygons such as Voronoi cells and by ear-clipping otherwise, then cached
+     * until the polygon changes. Callers must not modify the returned array.
+     *
+     * @return the triangle index buffer
+     */
+    public int[] getTriangles() {
+		if (triangles == null) {
+			triangles = Triangulator.triangulate(coords, count);
+		}
+		return triangles;
+	}
+
+    /**
+     * Triangle count int.
+     *
+     * @return the number of triangles in the triangulation
+     */
+    public int triangleCount() {
+		return this.getTriangles().length / 3;
 	}
 
     /**
@@ -119,7 +240,7 @@ public class MPolygon {
     public boolean contains(float px, float py) {
 	    float[][] polygon = this.getCoords();
 	    boolean result = false;
-	    for (int i = 0, j = polygon.length - 1; i < polygon.length; j = i++) {
+	    for (int i = 0, j = count - 1; i < count; j = i++) {
 	        if ((polygon[i][1] > py) != (polygon[j][1] > py) &&
 	            (px < (polygon[j][0] - polygon[i][0]) * (py - polygon[i][1]) / (polygon[j][1]-polygon[i][1]) + polygon[i][0])) {
 	            result = !result;
@@ -128,6 +249,20 @@ public class MPolygon {
 	    return result;
 	}
 
+    /**
+     * Gets the polygon prepared for many contains tests, with a cached bounding box
+     * and edges bucketed by height. It is built on first use and cached until the
+     * polygon changes.
+     *
+     * @return the prepared polygon
+     */
+    public PreparedPolygon prepared() {
+		if (prepared == null) {
+			prepared = new PreparedPolygon(this);
+		}
+		return prepared;
+	}
+
     /**
      * Get web edgs edg [ ].
      *
@@ -169,6 +304,46 @@ public class MPolygon {
 		return points;
 	}
 
+    /**
+     * The Sampling enum defines how points are distributed by getPointsWithin and
+     * pointsWithin.
+     *
+     * <ul>
+     * <li>UNIFORM: Independent, area-weighted uniform random points.</li>
+     * <li>POISSON: Blue-noise points no closer than a radius derived from the
+     * polygon's area and the requested point count.</li>
+     * <li>HALTON: Low-discrepancy points from the base 2 / base 3 Halton sequence.</li>
+     * <li>SOBOL: Low-discrepancy points from the first two Sobol dimensions.</li>
+     * </ul>
+     */
+    public enum Sampling {
+		/**
+		 * Area-weighted uniform random sampling.
+		 */
+		UNIFORM,
+		/**
+		 * Poisson-disk sampling.
+		 */
+		POISSON,
+		/**
+		 * Halton sequence sampling.
+		 */
+		HALTON,
+		/**
+		 * Sobol sequence sampling.
+		 */
+		SOBOL
+	}
+
+    /**
+     * Area float.
+     *
+     * @return the unsigned area of the polygon
+     */
+    public float area() {
+		return Math.abs(Triangulator.signedArea2(coords, count)) * 0.5f;
+	}
+
     /**
      * Get points within p vector [ ].
      *
@@ -176,23 +351,284 @@ public class MPolygon {
      * @return the p vector [ ]
      */
     public PVector[] getPointsWithin(int numPoints) {
-	    Random random = new Random();
-	    PVector[] bbox = getBoundingBox();
-	    PVector[] points = new PVector[numPoints];
-
-	    for (int i = 0; i < numPoints; i++) {
-	        float x, y;
-	        do {
-	            x = bbox[0].x + (bbox[1].x - bbox[0].x) * random.nextFloat();
-	            y = bbox[0].y + (bbox[1].y - bbox[0].y) * random.nextFloat();
-	        } while (!this.contains(x, y));
-	        PVector p = new PVector();
-	        p.x = x;
-	        p.y = y;
-	        points[i] = p;
-	    }
+		return getPointsWithin(numPoints, Sampling.UNIFORM, new Random().nextLong());
+	}
 
-	    return points;
+    /**
+     * Get points within p vector [ ].
+     * <p>
+     * POISSON sampling may saturate the polygon before numPoints are placed, in
+     * which case the returned array is shorter.
+     *
+     * @param numPoints the num points
+     * @param sampling  the sampling mode
+     * @param seed      the seed for the random number generator
+     * @return the p vector [ ]
+     */
+    public PVector[] getPointsWithin(int numPoints, Sampling sampling, long seed) {
+		float[] buffer = new float[numPoints * 2];
+		int written = sampleWithin(buffer, numPoints, sampling, seed);
+		PVector[] points = new PVector[written];
+		for (int i = 0; i < written; i++) {
+			points[i] = new PVector(buffer[i * 2], buffer[i * 2 + 1]);
+		}
+		return points;
+	}
+
+    /**
+     * Writes points lying inside the polygon into a primitive buffer as
+     * interleaved x, y pairs.
+     * <p>
+     * The polygon is triangulated once and every point is placed directly inside
+     * a triangle chosen by area, so no candidate is ever rejected. Only POISSON
+     * sampling tests candidates, against its minimum distance.
+     *
+     * @param out       the buffer to write into, at least numPoints * 2 long
+     * @param numPoints the num points
+     * @param sampling  the sampling mode
+     * @param seed      the seed for the random number generator
+     * @return the number of points written
+     */
+    public int pointsWithin(float[] out, int numPoints, Sampling sampling, long seed) {
+		if (out.length < numPoints * 2) {
+			throw new IllegalArgumentException("Buffer holds " + out.length / 2 + " points, " + numPoints + " requested");
+		}
+		int written = sampleWithin(out, numPoints, sampling, seed);
+		Metrics.count(Metric.PVECTORS_AVOIDED, 0, written);
+		return written;
+	}
+
+    private int sampleWithin(float[] out, int numPoints, Sampling sampling, long seed) {
+		int[] tris = this.getTriangles();
+		double[] cumulative = cumulativeAreas(tris);
+		if (cumulative.length == 0 || cumulative[cumulative.length - 1] <= 0) {
+			return 0;
+		}
+		Random random = new Random(seed);
+		if (sampling == Sampling.POISSON) {
+			return poissonWithin(out, numPoints, tris, cumulative, random);
+		}
+
+		// Cranley-Patterson rotation / digital shift so seeds decorrelate sequences
+		double haltonU = random.nextDouble();
+		double haltonV = random.nextDouble();
+		int sobolU = random.nextInt();
+		int sobolV = random.nextInt();
+		int sobolX = 0;
+		int sobolY = 0;
+
+		for (int i = 0; i < numPoints; i++) {
+			double u, v;
+			switch (sampling) {
+				case HALTON:
+					u = (radicalInverse(i + 1, 2) + haltonU) % 1.0;
+					v = (radicalInverse(i + 1, 3) + haltonV) % 1.0;
+					break;
+				case SOBOL:
+					if (i > 0) {
+						int c = Integer.numberOfTrailingZeros(~(i - 1));
+						sobolX ^= 1 << (31 - c);
+						sobolY ^= SOBOL_DIRECTIONS[c];
+					}
+					u = Integer.toUnsignedLong(sobolX ^ sobolU) / TWO_POW_32;
+					v = Integer.toUnsignedLong(sobolY ^ sobolV) / TWO_POW_32;
+					break;
+				default:
+					u = random.nextDouble();
+					v = random.nextDouble();
+			}
+			sampleTriangles(tris, cumulative, u, v, out, i * 2);
+		}
+		return numPoints;
+	}
+
+    /**
+     * Cumulative triangle areas, one entry per triangle in tris.
+     */
+    private double[] cumulativeAreas(int[] tris) {
+		double[] cumulative = new double[tris.length / 3];
+		double total = 0;
+		for (int t = 0; t < cumulative.length; t++) {
+			float[] a = coords[tris[t * 3]];
+			float[] b = coords[tris[t * 3 + 1]];
+			float[] c = coords[tris[t * 3 + 2]];
+			total += Math.abs((b[0] - a[0]) * (double) (c[1] - a[1]) - (c[0] - a[0]) * (double) (b[1] - a[1])) * 0.5;
+			cumulative[t] = total;
+		}
+		return cumulative;
+	}
+
+    /**
+     * Maps a point of the unit square onto the triangulated polygon. The first
+     * coordinate picks a triangle by area and is then rescaled so it can be reused
+     * inside that triangle, which keeps low-discrepancy sequences stratified.
+     */
+    private void sampleTriangles(int[] tris, double[] cumulative, double u, double v, float[] out, int offset) {
+		double target = u * cumulative[cumulative.length - 1];
+		int lo = 0;
+		int hi = cumulative.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (cumulative[mid] <= target) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		double start = lo == 0 ? 0 : cumulative[lo - 1];
+		double width = cumulative[lo] - start;
+		double w = width > 0 ? Math.min(1.0, (target - start) / width) : 0;
+
+		float[] a = coords[tris[lo * 3]];
+		float[] b = coords[tris[lo * 3 + 1]];
+		float[] c = coords[tris[lo * 3 + 2]];
+		double su = Math.sqrt(w);
+		double wa = 1 - su;
+		double wb = su * (1 - v);
+		double wc = su * v;
+		out[offset] = (float) (a[0] * wa + b[0] * wb + c[0] * wc);
+		out[offset + 1] = (float) (a[1] * wa + b[1] * wb + c[1] * wc);
+	}
+
+    /**
+     * Bridson's Poisson-disk sampling, restricted to the polygon.
+     */
+    private int poissonWithin(float[] out, int numPoints, int[] tris, double[] cumulative, Random random) {
+		if (numPoints <= 0) {
+			return 0;
+		}
+		double area = cumulative[cumulative.length - 1];
+		float radius = (float) Math.sqrt(area / (numPoints * POISSON_DENSITY));
+		float radius2 = radius * radius;
+		float cell = radius / (float) Math.sqrt(2);
+
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			minX = Math.min(minX, coords[i][0]);
+			minY = Math.min(minY, coords[i][1]);
+			maxX = Math.max(maxX, coords[i][0]);
+			maxY = Math.max(maxY, coords[i][1]);
+		}
+		int cols = Math.max(1, (int) Math.ceil((maxX - minX) / cell));
+		int rows = Math.max(1, (int) Math.ceil((maxY - minY) / cell));
+		int[] grid = new int[cols * rows];
+		Arrays.fill(grid, -1);
+		int[] active = new int[numPoints];
+		int activeCount = 0;
+
+		sampleTriangles(tris, cumulative, random.nextDouble(), random.nextDouble(), out, 0);
+		grid[gridIndex(out[0], out[1], minX, minY, cell, cols, rows)] = 0;
+		active[activeCount++] = 0;
+		int written = 1;
+
+		while (activeCount > 0 && written < numPoints) {
+			int slot = random.nextInt(activeCount);
+			int parentIdx = active[slot];
+			float px = out[parentIdx * 2];
+			float py = out[parentIdx * 2 + 1];
+			boolean placed = false;
+			for (int k = 0; k < POISSON_ATTEMPTS && !placed; k++) {
+				double angle = random.nextDouble() * Math.PI * 2;
+				double dist = radius * (1 + random.nextDouble());
+				float x = (float) (px + Math.cos(angle) * dist);
+				float y = (float) (py + Math.sin(angle) * dist);
+				if (x < minX || x > maxX || y < minY || y > maxY || !this.contains(x, y)) {
+					continue;
+				}
+				int gx = Math.min(cols - 1, (int) ((x - minX) / cell));
+				int gy = Math.min(rows - 1, (int) ((y - minY) / cell));
+				boolean clear = true;
+				for (int yy = Math.max(0, gy - 2); yy <= Math.min(rows - 1, gy + 2) && clear; yy++) {
+					for (int xx = Math.max(0, gx - 2); xx <= Math.min(cols - 1, gx + 2); xx++) {
+						int n = grid[yy * cols + xx];
+						if (n < 0) continue;
+						float dx = out[n * 2] - x;
+						float dy = out[n * 2 + 1] - y;
+						if (dx * dx + dy * dy < radius2) {
+							clear = false;
+							break;
+						}
+					}
+				}
+				if (clear) {
+					out[written * 2] = x;
+					out[written * 2 + 1] = y;
+					grid[gy * cols + gx] = written;
+					active[activeCount++] = written;
+					written++;
+					placed = true;
+				}
+			}
+			if (!placed) {
+				active[slot] = active[--activeCount];
+			}
+		}
+		return written;
+	}
+
+    private static int gridIndex(float x, float y, float minX, float minY, float cell, int cols, int rows) {
+		int gx = Math.max(0, Math.min(cols - 1, (int) ((x - minX) / cell)));
+		int gy = Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cell)));
+		return gy * cols + gx;
+	}
+
+    private static double radicalInverse(int index, int base) {
+		double inverse = 1.0 / base;
+		double fraction = inverse;
+		double result = 0;
+		while (index > 0) {
+			result += (index % base) * fraction;
+			index /= base;
+			fraction *= inverse;
+		}
+		return result;
+	}
+
+    /**
+     * Simplified m polygon.
+     * <p>
+     * Returns a new polygon with the vertices Simplify keeps of this ring, for
+     * outlines sampled far finer than they are drawn.
+     *
+     * @param method    the method
+     * @param tolerance the tolerance, as for Simplify
+     * @return the simplified polygon
+     */
+    public MPolygon simplified(Simplify.Method method, float tolerance) {
+		float[] xy = new float[count * 2];
+		for (int i = 0; i < count; i++) {
+			xy[i * 2] = coords[i][0];
+			xy[i * 2 + 1] = coords[i][1];
+		}
+		int kept = Simplify.simplify(method, xy, count, tolerance, true, xy);
+		MPolygon polygon = new MPolygon(kept);
+		for (int i = 0; i < kept; i++) {
+			polygon.add(xy[i * 2], xy[i * 2 + 1]);
+		}
+		return polygon;
+	}
+
+    /**
+     * Simplified m polygon [ ].
+     * <p>
+     * Simplifies each polygon as simplified(method, tolerance) does, in parallel on
+     * the common fork-join pool if asked.
+     *
+     * @param polygons  the polygons
+     * @param method    the method
+     * @param tolerance the tolerance, as for Simplify
+     * @param parallel  whether to simplify polygons in parallel
+     * @return the simplified polygons, in order
+     */
+    public static MPolygon[] simplified(MPolygon[] polygons, Simplify.Method method, float tolerance, boolean parallel) {
+		MPolygon[] out = new MPolygon[polygons.length];
+		IntStream indices = IntStream.range(0, polygons.length);
+		if (parallel && polygons.length > 1) {
+			indices = indices.parallel();
+		}
+		indices.forEach(i -> out[i] = polygons[i].simplified(method, tolerance));
+		return out;
 	}
 
     /**
@@ -205,12 +641,12 @@ public class MPolygon {
 	    
 	    float minX = Float.MAX_VALUE;
 	    float minY = Float.MAX_VALUE;
-	    float maxX = Float.MIN_VALUE;
-	    float maxY = Float.MIN_VALUE;
+	    float maxX = -Float.MAX_VALUE;
+	    float maxY = -Float.MAX_VALUE;
 
-		for (float[] coord : coords) {
-			float x = coord[0];
-			float y = coord[1];
+		for (int i = 0; i < count; i++) {
+			float x = coords[i][0];
+			float y = coords[i][1];
 
 			if (x < minX) minX = x;
 			if (y < minY) minY = y;
@@ -34,8 +34,9 @@ public class Mdvnt {
         if (this.command == ShortMessage.NOTE_ON) {
             ShortMessage noteOff = new ShortMessage();
             noteOff.setMessage(ShortMessage.NOTE_OFF, this.trk.channel, this.getData1(), 0);
-            this.trk.track.add(new MidiEvent(noteOff, this.tick + this.trk.sqnc.sequence.getResolution()/4));
+            this.trk.track.add(new MidiEvent(noteOff, this.tick + this.trk.noteLength()));
         }
+        Metrics.count(Metric.MIDI_EVENTS, 0, this.command == ShortMessage.NOTE_ON ? 2 : 1);
     }
 
     public int getData1() {
@@ -0,0 +1,168 @@
+package crvs;
+
+import java.util.Arrays;
+
+/**
+ * The type Mdvnt array. A growable list of short MIDI events held in parallel
+ * primitive arrays, so rendering a track allocates nothing per event.
+ */
+public class MdvntArray {
+
+    /**
+     * The Ticks.
+     */
+    long[] ticks;
+    /**
+     * The Status bytes, command | channel.
+     */
+    byte[] status;
+    /**
+     * The first data bytes.
+     */
+    byte[] data1;
+    /**
+     * The second data bytes.
+     */
+    byte[] data2;
+    /**
+     * The Length.
+     */
+    int length;
+
+    /**
+     * Instantiates a new Mdvnt array.
+     */
+    public MdvntArray() {
+        this(64);
+    }
+
+    /**
+     * Instantiates a new Mdvnt array.
+     *
+     * @param capacity the initial capacity
+     */
+    public MdvntArray(int capacity) {
+        capacity = Math.max(1, capacity);
+        ticks = new long[capacity];
+        status = new byte[capacity];
+        data1 = new byte[capacity];
+        data2 = new byte[capacity];
+        length = 0;
+    }
+
+    /**
+     * Add. Data values are clamped to the MIDI range 0-127.
+     *
+     * @param tick    the tick
+     * @param command the command, e.g. ShortMessage.NOTE_ON
+     * @param channel the channel
+     * @param d1      the first data byte
+     * @param d2      the second data byte
+     */
+    public void add(long tick, int command, int channel, int d1, int d2) {
+        if (length == ticks.length) {
+            int capacity = length * 2;
+            ticks = Arrays.copyOf(ticks, capacity);
+            status = Arrays.copyOf(status, capacity);
+            data1 = Arrays.copyOf(data1, capacity);
+            data2 = Arrays.copyOf(data2, capacity);
+        }
+        ticks[length] = tick;
+        status[length] = (byte) ((command & 0xF0) | (channel & 0x0F));
+        data1[length] = (byte) Math.max(0, Math.min(127, d1));
+        data2[length] = (byte) Math.max(0, Math.min(127, d2));
+        length++;
+    }
+
+    /**
+     * Sorts the events by tick in a single pass over packed primitive keys. Events
+     * on the same tick keep their insertion order, except that note-offs move
+     * ahead so a re-struck note is not cut short.
+     */
+    public void sort() {
+        if (length > INDEX_MASK + 1) {
+            throw new IllegalStateException("Too many events to sort: " + length);
+        }
+        long[] keys = new long[length];
+        boolean sorted = true;
+        for (int i = 0; i < length; i++) {
+            if (ticks[i] > MAX_TICK) {
+                throw new IllegalStateException("Tick out of range: " + ticks[i]);
+            }
+            long late = (status[i] & 0xF0) == 0x80 ? 0 : 1;
+            keys[i] = (ticks[i] << 27) | (late << 26) | i;
+            if (i > 0 && keys[i] < keys[i - 1]) sorted = false;
+        }
+        if (sorted) return;
+        Arrays.sort(keys);
+
+        long[] t = new long[length];
+        byte[] s = new byte[length];
+        byte[] a = new byte[length];
+        byte[] b = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int src = (int) (keys[i] & INDEX_MASK);
+            t[i] = ticks[src];
+            s[i] = status[src];
+            a[i] = data1[src];
+            b[i] = data2[src];
+        }
+        ticks = t;
+        status = s;
+        data1 = a;
+        data2 = b;
+    }
+
+    /**
+     * Length int.
+     *
+     * @return the number of events
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Get tick long.
+     *
+     * @param i the index
+     * @return the tick
+     */
+    public long getTick(int i) {
+        return ticks[i];
+    }
+
+    /**
+     * Get status int.
+     *
+     * @param i the index
+     * @return the status byte
+     */
+    public int getStatus(int i) {
+        return status[i] & 0xFF;
+    }
+
+    /**
+     * Get data 1 int.
+     *
+     * @param i the index
+     * @return the first data byte
+     */
+    public int getData1(int i) {
+        return data1[i];
+    }
+
+    /**
+     * Get data 2 int.
+     *
+     * @param i the index
+     * @return the second data byte
+     */
+    public int getData2(int i) {
+        return data2[i];
+    }
+
+    private static final int INDEX_MASK = (1 << 26) - 1;
+    private static final long MAX_TICK = (1L << 36) - 1;
+
+}
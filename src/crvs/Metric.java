@@ -0,0 +1,77 @@
+package crvs;
+
+/**
+ * The quantities the library reports to a MetricsSink while Metrics is enabled.
+ */
+public enum Metric {
+    /**
+     * Curve evaluations, counted per Crv id. Includes the evaluations a modulating
+     * child makes on behalf of its parent.
+     */
+    CRV_SAMPLES(Kind.COUNTER),
+    /**
+     * Depth of a Crv's amp/rate/phase/bias tree, reported per Crv id at each
+     * batch sample.
+     */
+    CRV_DEPTH(Kind.GAUGE),
+    /**
+     * Voronoi construction, sized by input point count.
+     */
+    VORONOI_BUILD(Kind.TIMER),
+    /**
+     * Delaunay construction, sized by input point count.
+     */
+    DELAUNAY_BUILD(Kind.TIMER),
+    /**
+     * Hull construction, sized by input point count.
+     */
+    HULL_BUILD(Kind.TIMER),
+    /**
+     * Lines drawn by the edge and outline draw calls.
+     */
+    EDGES_DRAWN(Kind.COUNTER),
+    /**
+     * PVectors a primitive path did not allocate where its PVector counterpart
+     * would have.
+     */
+    PVECTORS_AVOIDED(Kind.COUNTER),
+    /**
+     * MIDI messages rendered into a track or sent to a receiver.
+     */
+    MIDI_EVENTS(Kind.COUNTER),
+    /**
+     * SampleCache lookups served from disk, counted per Crv id.
+     */
+    CACHE_HITS(Kind.COUNTER),
+    /**
+     * SampleCache lookups that had to evaluate the curve, counted per Crv id.
+     */
+    CACHE_MISSES(Kind.COUNTER);
+
+    /**
+     * How a metric's values combine.
+     */
+    public enum Kind {
+        /**
+         * Values are summed.
+         */
+        COUNTER,
+        /**
+         * The latest value replaces the previous one.
+         */
+        GAUGE,
+        /**
+         * Each value is one timed operation with a duration and a size.
+         */
+        TIMER
+    }
+
+    /**
+     * The kind of this metric.
+     */
+    public final Kind kind;
+
+    Metric(Kind kind) {
+        this.kind = kind;
+    }
+}
@@ -0,0 +1,84 @@
+package crvs;
+
+/**
+ * Switch between the library's instrumented entry points and a MetricsSink.
+ * Disabled by default. While disabled every instrumented call reduces to one
+ * read of a null field, so hot paths pay nothing measurable.
+ * <pre>
+ * MetricsRegistry registry = new MetricsRegistry();
+ * Metrics.enable(registry);
+ * ...
+ * println(registry);
+ * </pre>
+ */
+public final class Metrics {
+
+    private static volatile MetricsSink sink;
+
+    private Metrics() {
+    }
+
+    /**
+     * Routes metrics to the given sink, replacing any previous one.
+     *
+     * @param sink the sink, or null to disable
+     */
+    public static void enable(MetricsSink sink) {
+        Metrics.sink = sink;
+    }
+
+    /**
+     * Stops reporting metrics.
+     */
+    public static void disable() {
+        Metrics.sink = null;
+    }
+
+    /**
+     * Whether a sink is installed.
+     *
+     * @return true if metrics are being reported
+     */
+    public static boolean enabled() {
+        return sink != null;
+    }
+
+    /**
+     * The installed sink.
+     *
+     * @return the sink, or null when disabled
+     */
+    public static MetricsSink sink() {
+        return sink;
+    }
+
+    static void count(Metric metric, int id, long n) {
+        MetricsSink s = sink;
+        if (s != null) {
+            s.count(metric, id, n);
+        }
+    }
+
+    static void gauge(Metric metric, int id, long value) {
+        MetricsSink s = sink;
+        if (s != null) {
+            s.gauge(metric, id, value);
+        }
+    }
+
+    /**
+     * Start time for a later call to time, or 0 when disabled so the clock is not
+     * read.
+     */
+    static long start() {
+        return sink != null ? System.nanoTime() : 0L;
+    }
+
+    static void time(Metric metric, int id, long start, long size) {
+        MetricsSink s = sink;
+        if (s != null && start != 0L) {
+            s.time(metric, id, System.nanoTime() - start, size);
+        }
+    }
+
+}
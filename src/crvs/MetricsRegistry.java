@@ -0,0 +1,197 @@
+package crvs;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory MetricsSink that keeps running totals, for printing from a sketch or
+ * reading in a test. Counters and timers are striped so concurrent renders do
+ * not contend; per-curve values are kept for every Crv id seen.
+ */
+public class MetricsRegistry implements MetricsSink {
+
+    private final Map<Metric, LongAdder> totals = new EnumMap<>(Metric.class);
+    private final Map<Metric, AtomicLong> gauges = new EnumMap<>(Metric.class);
+    private final Map<Metric, LongAdder> timerCounts = new EnumMap<>(Metric.class);
+    private final Map<Metric, LongAdder> timerNanos = new EnumMap<>(Metric.class);
+    private final Map<Metric, LongAccumulator> timerMaxNanos = new EnumMap<>(Metric.class);
+    private final Map<Metric, LongAdder> timerSizes = new EnumMap<>(Metric.class);
+    private final Map<Integer, LongAdder> curveSamples = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> curveDepths = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates an empty registry.
+     */
+    public MetricsRegistry() {
+        // fill every map up front so the hot methods only read them
+        for (Metric metric : Metric.values()) {
+            totals.put(metric, new LongAdder());
+            gauges.put(metric, new AtomicLong());
+            timerCounts.put(metric, new LongAdder());
+            timerNanos.put(metric, new LongAdder());
+            timerMaxNanos.put(metric, new LongAccumulator(Math::max, 0));
+            timerSizes.put(metric, new LongAdder());
+        }
+    }
+
+    @Override
+    public void count(Metric metric, int id, long n) {
+        totals.get(metric).add(n);
+        if (metric == Metric.CRV_SAMPLES) {
+            curveSamples.computeIfAbsent(id, k -> new LongAdder()).add(n);
+        }
+    }
+
+    @Override
+    public void gauge(Metric metric, int id, long value) {
+        gauges.get(metric).set(value);
+        if (metric == Metric.CRV_DEPTH) {
+            curveDepths.computeIfAbsent(id, k -> new AtomicLong()).set(value);
+        }
+    }
+
+    @Override
+    public void time(Metric metric, int id, long nanos, long size) {
+        timerCounts.get(metric).increment();
+        timerNanos.get(metric).add(nanos);
+        timerMaxNanos.get(metric).accumulate(nanos);
+        timerSizes.get(metric).add(size);
+    }
+
+    /**
+     * Sum of a COUNTER metric.
+     *
+     * @param metric the metric
+     * @return the total
+     */
+    public long total(Metric metric) {
+        return totals.get(metric).sum();
+    }
+
+    /**
+     * Latest value of a GAUGE metric.
+     *
+     * @param metric the metric
+     * @return the value
+     */
+    public long gauge(Metric metric) {
+        return gauges.get(metric).get();
+    }
+
+    /**
+     * Number of operations recorded for a TIMER metric.
+     *
+     * @param metric the metric
+     * @return the count
+     */
+    public long timerCount(Metric metric) {
+        return timerCounts.get(metric).sum();
+    }
+
+    /**
+     * Total duration of a TIMER metric.
+     *
+     * @param metric the metric
+     * @return nanoseconds
+     */
+    public long timerNanos(Metric metric) {
+        return timerNanos.get(metric).sum();
+    }
+
+    /**
+     * Longest single operation of a TIMER metric.
+     *
+     * @param metric the metric
+     * @return nanoseconds
+     */
+    public long timerMaxNanos(Metric metric) {
+        return timerMaxNanos.get(metric).get();
+    }
+
+    /**
+     * Total size of the operations of a TIMER metric, e.g. points triangulated.
+     *
+     * @param metric the metric
+     * @return the summed size
+     */
+    public long timerSize(Metric metric) {
+        return timerSizes.get(metric).sum();
+    }
+
+    /**
+     * Samples evaluated by one curve.
+     *
+     * @param id the Crv id
+     * @return the sample count
+     */
+    public long samples(int id) {
+        LongAdder adder = curveSamples.get(id);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Last reported op-tree depth of one curve.
+     *
+     * @param id the Crv id
+     * @return the depth, or 0 if never reported
+     */
+    public long depth(int id) {
+        AtomicLong depth = curveDepths.get(id);
+        return depth == null ? 0 : depth.get();
+    }
+
+    /**
+     * Snapshot of the per-curve sample counts.
+     *
+     * @return Crv id to sample count
+     */
+    public Map<Integer, Long> samplesByCurve() {
+        Map<Integer, Long> snapshot = new TreeMap<>();
+        curveSamples.forEach((id, adder) -> snapshot.put(id, adder.sum()));
+        return snapshot;
+    }
+
+    /**
+     * Clears every value.
+     */
+    public void reset() {
+        for (Metric metric : Metric.values()) {
+            totals.get(metric).reset();
+            gauges.get(metric).set(0);
+            timerCounts.get(metric).reset();
+            timerNanos.get(metric).reset();
+            timerMaxNanos.get(metric).reset();
+            timerSizes.get(metric).reset();
+        }
+        curveSamples.clear();
+        curveDepths.clear();
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("MetricsRegistry(");
+        for (Metric metric : Metric.values()) {
+            if (sb.length() > 16) sb.append(", ");
+            sb.append(metric).append(": ");
+            switch (metric.kind) {
+                case COUNTER:
+                    sb.append(total(metric));
+                    break;
+                case GAUGE:
+                    sb.append(gauge(metric));
+                    break;
+                case TIMER:
+                    long n = timerCount(metric);
+                    sb.append(n).append("x ");
+                    sb.append(n == 0 ? 0 : timerNanos(metric) / n / 1000).append("us");
+                    break;
+            }
+        }
+        return sb.append(")").toString();
+    }
+
+}
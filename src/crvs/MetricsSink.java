@@ -0,0 +1,40 @@
+package crvs;
+
+/**
+ * Receives the library's metrics while it is installed with Metrics.enable.
+ * Implementations are called from whichever thread does the work, including
+ * the fork-join pool during parallel renders and the Plyr scheduler thread, so
+ * they must be thread safe. The id is the Crv id for per-curve metrics and 0
+ * otherwise.
+ */
+public interface MetricsSink {
+
+    /**
+     * Adds n to a COUNTER metric.
+     *
+     * @param metric the metric
+     * @param id     the curve id, or 0
+     * @param n      the amount to add
+     */
+    void count(Metric metric, int id, long n);
+
+    /**
+     * Sets a GAUGE metric.
+     *
+     * @param metric the metric
+     * @param id     the curve id, or 0
+     * @param value  the current value
+     */
+    void gauge(Metric metric, int id, long value);
+
+    /**
+     * Records one operation of a TIMER metric.
+     *
+     * @param metric the metric
+     * @param id     the curve id, or 0
+     * @param nanos  the duration in nanoseconds
+     * @param size   the size of the operation, e.g. its point count
+     */
+    void time(Metric metric, int id, long nanos, long size);
+
+}
@@ -2,7 +2,7 @@ package crvs;
 
 import java.util.Arrays;
 
-public class NR {
+public class NR implements Rhythm {
     private static final int[] primes = {
             0x8888, 0x888A, 0x8892, 0x8894, 0x88A2, 0x88A4, 0x8912, 0x8914, 0x8922,
             0x8924, 0x8A8A, 0x8AAA, 0x9292, 0x92AA, 0x94AA, 0x952A, 0x8282, 0x828A,
@@ -23,6 +23,18 @@ public class NR {
     }
 
     public boolean next(int prime, int mask, int factor) {
+        int finalPattern = pattern(prime, mask, factor);
+        boolean bitStatus = ((finalPattern >>> (15 - ix)) & 1) == 1;
+
+        ix = (ix + 1) % 16;
+
+        return bitStatus;
+    }
+
+    /**
+     * The 16-step pattern for a prime, mask and factor, with step 0 in bit 15.
+     */
+    static int pattern(int prime, int mask, int factor) {
         int p = prime;
         int m = mask;
         int f = factor;
@@ -56,12 +68,7 @@ public class NR {
         }
 
         int modified = rhythm * f;
-        int finalPattern = (modified & 0xFFFF) | (modified >>> 16);
-        boolean bitStatus = ((finalPattern >>> (15 - ix)) & 1) == 1;
-
-        ix = (ix + 1) % 16;
-
-        return bitStatus;
+        return (modified & 0xFFFF) | (modified >>> 16);
     }
 
     public boolean next() {
@@ -0,0 +1,124 @@
+package crvs;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The Ops factory call that built a FloatOp: the method name and its arguments.
+ * Ops records one for every op it builds, in a weak table keyed by the op itself,
+ * so serialization can name ops without wrapping them and evaluation costs the
+ * same as before. Ops from elsewhere, such as a lambda in a sketch, have none.
+ * <p>
+ * Arguments are Float, Integer, FloatOp (possibly a Crv), FloatOp[], float[] or
+ * null, as passed to the factory.
+ */
+public final class OpSpec {
+
+    private static final Map<FloatOp, OpSpec> SPECS = Collections.synchronizedMap(new WeakHashMap<FloatOp, OpSpec>());
+
+    /**
+     * The Ops method name.
+     */
+    public final String name;
+
+    /**
+     * The arguments, in order.
+     */
+    public final Object[] args;
+
+    /**
+     * Instantiates a new OpSpec.
+     *
+     * @param name the Ops method name
+     * @param args the arguments
+     */
+    public OpSpec(String name, Object... args) {
+        this.name = name;
+        this.args = args;
+    }
+
+    /**
+     * Records the spec of op and returns op.
+     *
+     * @param op   the op
+     * @param name the Ops method name
+     * @param args the arguments
+     * @return op
+     */
+    static FloatOp register(FloatOp op, String name, Object... args) {
+        SPECS.put(op, new OpSpec(name, args));
+        return op;
+    }
+
+    /**
+     * Gets the spec op was built from.
+     *
+     * @param op the op
+     * @return the spec, or null if op was not built by Ops
+     */
+    public static OpSpec of(FloatOp op) {
+        return SPECS.get(op);
+    }
+
+    /**
+     * Builds the op again by calling the named method on ops.
+     *
+     * @param ops the Ops to build with
+     * @return the op
+     */
+    public FloatOp build(Ops ops) {
+        if (this.name.equals("table") && this.args.length == 1 && this.args[0] instanceof float[]) {
+            // table() reads the wavetable of its Ops, so carry the table along
+            return new Ops(ops.parent, (float[]) this.args[0]).table();
+        }
+        for (Method method : Ops.class.getMethods()) {
+            if (method.getName().equals(this.name) && FloatOp.class.isAssignableFrom(method.getReturnType()) && this.accepts(method.getParameterTypes())) {
+                try {
+                    return (FloatOp) method.invoke(ops, this.args);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new IllegalStateException("Could not build " + this, e);
+                }
+            }
+        }
+        throw new IllegalArgumentException("No Ops method matches " + this);
+    }
+
+    private boolean accepts(Class<?>[] types) {
+        if (types.length != this.args.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            Object arg = this.args[i];
+            Class<?> type = types[i];
+            boolean match;
+            if (type == float.class) {
+                match = arg instanceof Float;
+            } else if (type == int.class) {
+                match = arg instanceof Integer;
+            } else {
+                match = arg == null || type.isInstance(arg);
+            }
+            if (!match) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(this.name).append('(');
+        for (int i = 0; i < this.args.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object arg = this.args[i];
+            sb.append(arg instanceof FloatOp ? "op" : arg instanceof Object[] || arg instanceof float[] ? "[...]" : String.valueOf(arg));
+        }
+        return sb.append(')').toString();
+    }
+
+}
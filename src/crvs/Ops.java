@@ -49,6 +49,19 @@ public class Ops {
     	this(parent, null);
     }
 
+    /**
+     * Records the factory call that built op, so CrvWriter can describe it by
+     * name, and returns op unchanged. Nothing is added to the evaluation path.
+     *
+     * @param name the factory method name
+     * @param op   the op it built
+     * @param args the factory arguments
+     * @return op
+     */
+    private FloatOp named(String name, FloatOp op, Object... args) {
+        return OpSpec.register(op, name, args);
+    }
+
     /**
      * Transforms a unipolar FloatOp into a bipolar FloatOp.
      * The resulting FloatOp takes a position as an argument and applies the unipolar operation,
@@ -58,10 +71,10 @@ public class Ops {
      * @return A new FloatOp that applies the unipolar operation and scales the result to the bipolar range.
      */
     public FloatOp bipolarize(FloatOp unipolarOp) {
-    	return pos -> {
+    	return named("bipolarize", pos -> {
     		float unipolarValue = unipolarOp.apply(pos);
     		return unipolarValue * 2f - 1f;
-    	};
+    	}, unipolarOp);
     }
 
     /**
@@ -73,10 +86,10 @@ public class Ops {
      * @return A new FloatOp that applies the bipolar operation and scales the result to the unipolar range.
      */
     public FloatOp rectify(FloatOp bipolarOp) {
-    	return pos -> {
+    	return named("rectify", pos -> {
     		float bipolarValue = bipolarOp.apply(pos);
     		return bipolarValue * 0.5f + 0.5f;
-    	};
+    	}, bipolarOp);
     }
 
     /**
@@ -126,7 +139,7 @@ public class Ops {
      * @return FloatOp that returns a constant value.
      */
     public FloatOp c(float value) {
-        return (float pos) -> value;
+        return named("c", (float pos) -> value, value);
     }
 
     /**
@@ -135,7 +148,7 @@ public class Ops {
      * @return A FloatOp that always returns 0.0.
      */
     public FloatOp zero() {
-        return (float pos) -> 0.0f;
+        return named("zero", (float pos) -> 0.0f);
     }
 
     /**
@@ -144,7 +157,7 @@ public class Ops {
      * @return A FloatOp that always returns 0.25.
      */
     public FloatOp fourth() {
-        return (float pos) -> 0.25f;
+        return named("fourth", (float pos) -> 0.25f);
     }
 
     /**
@@ -153,7 +166,7 @@ public class Ops {
      * @return A FloatOp that always returns 1/3.
      */
     public FloatOp third() {
-        return (float pos) -> 1.0f/3.0f;
+        return named("third", (float pos) -> 1.0f/3.0f);
     }
 
     /**
@@ -162,7 +175,7 @@ public class Ops {
      * @return A FloatOp that always returns 0.5.
      */
     public FloatOp half() {
-        return (float pos) -> 0.5f;
+        return named("half", (float pos) -> 0.5f);
     }
 
     /**
@@ -171,7 +184,7 @@ public class Ops {
      * @return A FloatOp that always returns 1.0.
      */
     public FloatOp one() {
-        return (float pos) -> 1.0f;
+        return named("one", (float pos) -> 1.0f);
     }
 
     /**
@@ -180,7 +193,7 @@ public class Ops {
      * @return A FloatOp that always returns 2.0.
      */
     public FloatOp two() {
-        return (float pos) -> 2.0f;
+        return named("two", (float pos) -> 2.0f);
     }
 
     /**
@@ -189,7 +202,7 @@ public class Ops {
      * @return A FloatOp that always returns 3.0.
      */
     public FloatOp three() {
-        return (float pos) -> 3.0f;
+        return named("three", (float pos) -> 3.0f);
     }
 
     /**
@@ -198,7 +211,7 @@ public class Ops {
      * @return A FloatOp that always returns 4.0.
      */
     public FloatOp four() {
-        return (float pos) -> 4.0f;
+        return named("four", (float pos) -> 4.0f);
     }
 
     /**
@@ -207,7 +220,7 @@ public class Ops {
      * @return A FloatOp that always returns quarter pi.
      */
     public FloatOp quarterPi() {
-        return (float pos) -> PConstants.QUARTER_PI;
+        return named("quarterPi", (float pos) -> PConstants.QUARTER_PI);
     }
 
     /**
@@ -216,7 +229,7 @@ public class Ops {
      * @return A FloatOp that always returns quarter pi.
      */
     public FloatOp thirdPi() {
-        return (float pos) -> PConstants.THIRD_PI;
+        return named("thirdPi", (float pos) -> PConstants.THIRD_PI);
     }
 
     /**
@@ -225,7 +238,7 @@ public class Ops {
      * @return A FloatOp that always returns half pi.
      */
     public FloatOp halfPi() {
-        return (float pos) -> PConstants.HALF_PI;
+        return named("halfPi", (float pos) -> PConstants.HALF_PI);
     }
 
     /**
@@ -234,7 +247,7 @@ public class Ops {
      * @return A FloatOp that always returns pi.
      */
     public FloatOp pi() {
-        return (float pos) -> PConstants.PI;
+        return named("pi", (float pos) -> PConstants.PI);
     }
 
     /**
@@ -243,7 +256,7 @@ public class Ops {
      * @return A FloatOp that always returns two pi.
      */
     public FloatOp twoPi() {
-        return (float pos) -> PConstants.TWO_PI;
+        return named("twoPi", (float pos) -> PConstants.TWO_PI);
     }
 
     /**
@@ -252,7 +265,7 @@ public class Ops {
      * @return A FloatOp that always returns the current width of the parent PApplet.
      */
     public FloatOp width() {
-        return (float pos) -> parent.width;
+        return named("width", (float pos) -> parent.width);
     }
 
     /**
@@ -261,7 +274,7 @@ public class Ops {
      * @return A FloatOp that always returns the current height of the parent PApplet.
      */
     public FloatOp height() {
-        return (float pos) -> parent.height;
+        return named("height", (float pos) -> parent.height);
     }
 
     /**
@@ -270,7 +283,7 @@ public class Ops {
      * @return A FloatOp that always returns the current frame count of the parent PApplet.
      */
     public FloatOp frameCount() {
-        return (float pos) -> parent.frameCount;
+        return named("frameCount", (float pos) -> parent.frameCount);
     }
 
     /**
@@ -279,7 +292,7 @@ public class Ops {
      * @return A FloatOp that always returns the current x position of the mouse in the parent PApplet.
      */
     public FloatOp mouseX() {
-        return (float pos) -> parent.mouseX;
+        return named("mouseX", (float pos) -> parent.mouseX);
     }
 
     /**
@@ -288,7 +301,7 @@ public class Ops {
      * @return A FloatOp that always returns the current y position of the mouse in the parent PApplet.
      */
     public FloatOp mouseY() {
-        return (float pos) -> (float)parent.mouseY;
+        return named("mouseY", (float pos) -> (float)parent.mouseY);
     }
 
     /**
@@ -297,7 +310,7 @@ public class Ops {
      * @return A FloatOp that always returns the previous x position of the mouse in the parent PApplet.
      */
     public FloatOp pmouseX() {
-        return (float pos) -> (float)parent.pmouseX;
+        return named("pmouseX", (float pos) -> (float)parent.pmouseX);
     }
 
     /**
@@ -306,7 +319,7 @@ public class Ops {
      * @return A FloatOp that always returns the previous y position of the mouse in the parent PApplet.
      */
     public FloatOp pmouseY() {
-        return (float pos) -> (float)parent.pmouseY;
+        return named("pmouseY", (float pos) -> (float)parent.pmouseY);
     }
 
     /**
@@ -315,11 +328,11 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp table() {
-		return pos -> {
+		return named("table", pos -> {
 			int t = (int) PApplet.map(pos, 0, 1, 0, this.table.length);
 			float samp = this.table[t];
 			return (samp + 1f) / 2f;
-		};
+		}, (Object) this.table);
     }
 
     /**
@@ -332,7 +345,7 @@ public class Ops {
      * @return A new FloatOp that applies the Gaussian operation and scales it between the values provided by the lo and hi FloatOps.
      */
     public FloatOp gaussian(FloatOp lo, FloatOp hi) {
-        return pos -> {
+        return named("gaussian", pos -> {
             float g = parent.randomGaussian();
             if (g < -1f) {
             	g = g % -1f;
@@ -343,7 +356,7 @@ public class Ops {
             float loVal = (lo != null) ? lo.apply(pos) : 0f;
             float hiVal = (hi != null) ? hi.apply(pos) : 1f;
             return loVal + (g * (hiVal - loVal));
-        };
+        }, lo, hi);
     }
 
     /**
@@ -388,7 +401,7 @@ public class Ops {
      * @return A new FloatOp that applies the random operation according to the parameters.
      */
     public FloatOp random(FloatOp lo, FloatOp hi, FloatOp mode) {
-        return pos -> {
+        return named("random", pos -> {
             float loVal = (lo != null) ? lo.apply(pos) : 0f;
             float hiVal = (hi != null) ? hi.apply(pos) : 1f;
             if (mode != null) {
@@ -397,7 +410,7 @@ public class Ops {
             } else {
                 return loVal + parent.random(hiVal - loVal);
             }
-        };
+        }, lo, hi, mode);
     }
 
     /**
@@ -444,7 +457,7 @@ public class Ops {
      * @return A new FloatOp that applies the Perlin noise operation according to the parameters.
      */
     public FloatOp perlin(FloatOp x, FloatOp y, FloatOp z, FloatOp octaves, FloatOp falloff) {
-        return pos -> {
+        return named("perlin", pos -> {
         	int lod = 4;
         	float fof = 0.5f;
         	if (octaves != null) {
@@ -464,7 +477,7 @@ public class Ops {
             }
             float zV = z.apply(pos);
             return parent.noise(xV, yV, zV);
-        };
+        }, x, y, z, octaves, falloff);
     }
 
     /**
@@ -545,7 +558,7 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp phasor() {
-        return pos -> pos;
+        return named("phasor", pos -> pos);
     }
 
     /**
@@ -554,7 +567,7 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp saw() {
-        return pos -> 1f - pos;
+        return named("saw", pos -> 1f - pos);
     }
 
     /**
@@ -564,11 +577,11 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp tri(FloatOp s) {
-        return pos -> {
+        return named("tri", pos -> {
         	float sValue = 0.5f;
         	if (s != null) sValue = s.apply(pos);
             return pos < sValue ? pos / sValue : 1f - ((pos - sValue) / (1f - sValue));
-        };
+        }, s);
     }
 
     /**
@@ -597,13 +610,13 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp sine(FloatOp fb) {
-        return pos -> {
+        return named("sine", pos -> {
             if (fb != null) {
             	float fbScale = fb.apply(pos);
             	pos = pos + fbScale * (float) (Math.sin(pos2Rad(pos)) * 0.5f) + 0.5f;
             }
             return (float) (Math.sin(pos2Rad(pos % 1f)) * 0.5f) + 0.5f;
-        };
+        }, fb);
     }
 
     /**
@@ -631,10 +644,10 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp asin() {
-    	return pos -> {
+    	return named("asin", pos -> {
     		pos = pos * 2f - 1f;
     		return (PApplet.asin(pos) + PConstants.HALF_PI) / PConstants.PI;
-    	};
+    	});
     }
 
     /**
@@ -644,13 +657,13 @@ public class Ops {
      * @return a FloatOp representing the function
      */
     public FloatOp cos(FloatOp fb) {
-        return pos -> {
+        return named("cos", pos -> {
             if (fb != null) {
             	float fbScale = fb.apply(pos);
             	pos = pos + fbScale * (float) ((Math.cos(pos2Rad(pos)) * 0.5f) + 0.5f);
             }
             return (float) (Math.cos(pos2Rad(pos % 1f)) * 0.5f) + 0.5f;
-        };
+        }, fb);
     }
 
     /**
@@ -678,10 +691,10 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp acos() {
-    	return pos -> {
+    	return named("acos", pos -> {
     		pos = pos * 2f - 1f;
     		return PApplet.acos(pos) / PConstants.PI;
-    	};
+    	});
     }
 
     /**
@@ -691,13 +704,13 @@ public class Ops {
      * @return a FloatOp representing the function
      */
     public FloatOp tan(FloatOp fb) {
-        return pos -> {
+        return named("tan", pos -> {
             if (fb != null) {
             	float fbScale = fb.apply(pos);
             	pos = pos + fbScale * (float) ((Math.tan(pos2Rad(pos)) * 0.5f) + 0.5f);
             }
             return (float) (Math.tan(pos2Rad(pos % 1f)) * 0.5f) + 0.5f;
-        };
+        }, fb);
     }
 
     /**
@@ -726,11 +739,11 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp pulse(FloatOp w) {
-        return pos -> {
+        return named("pulse", pos -> {
         	float wValue = 0.5f;
         	if (w != null) wValue = w.apply(pos);
             return pos < wValue ? 0f : 1f;
-        };
+        }, w);
     }
 
     /**
@@ -761,6 +774,55 @@ public class Ops {
     	return pulse(c(w));
     }
 
+    /**
+     * Returns a streaming sine oscillator, the block-rate counterpart of sine().
+     *
+     * @param frequency  the frequency in Hz
+     * @param sampleRate the sample rate in Hz
+     * @return the oscillator
+     */
+    public Osc sineOsc(double frequency, double sampleRate) {
+        return new Osc.Sine(frequency, sampleRate);
+    }
+
+    /**
+     * Returns a streaming sawtooth oscillator, the block-rate counterpart of saw().
+     *
+     * @param frequency   the frequency in Hz
+     * @param sampleRate  the sample rate in Hz
+     * @param bandLimited whether to suppress aliasing with polyBLEP
+     * @return the oscillator
+     */
+    public Osc sawOsc(double frequency, double sampleRate, boolean bandLimited) {
+        return new Osc.Saw(frequency, sampleRate, bandLimited);
+    }
+
+    /**
+     * Returns a streaming triangle oscillator, the block-rate counterpart of tri(s).
+     *
+     * @param frequency   the frequency in Hz
+     * @param sampleRate  the sample rate in Hz
+     * @param s           symmetry, between 0 and 1 exclusive
+     * @param bandLimited whether to suppress aliasing with polyBLAMP
+     * @return the oscillator
+     */
+    public Osc triOsc(double frequency, double sampleRate, float s, boolean bandLimited) {
+        return new Osc.Tri(frequency, sampleRate, s, bandLimited);
+    }
+
+    /**
+     * Returns a streaming pulse oscillator, the block-rate counterpart of pulse(w).
+     *
+     * @param frequency   the frequency in Hz
+     * @param sampleRate  the sample rate in Hz
+     * @param w           width, between 0 and 1
+     * @param bandLimited whether to suppress aliasing with polyBLEP
+     * @return the oscillator
+     */
+    public Osc pulseOsc(double frequency, double sampleRate, float w, boolean bandLimited) {
+        return new Osc.Pulse(frequency, sampleRate, w, bandLimited);
+    }
+
     /**
      * Returns a FloatOp which represents an ease-in curve function.
      *
@@ -768,11 +830,11 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp easeIn(FloatOp e) {
-        return pos -> {
+        return named("easeIn", pos -> {
         	float eValue = 2.0f;
         	if (e != null) eValue = e.apply(pos);
             return (float) Math.pow(pos, eValue);
-        };
+        }, e);
     }
 
     /**
@@ -801,11 +863,11 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp easeOut(FloatOp e) {
-        return pos -> {
+        return named("easeOut", pos -> {
             float eValue = 3.0f;
             if (e != null) eValue = e.apply(pos);
             return (float) (1 - Math.pow((1 - pos), eValue));
-        };
+        }, e);
     }
 
     /**
@@ -834,7 +896,7 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp easeInOut(FloatOp e) {
-        return pos -> {
+        return named("easeInOut", pos -> {
             float value = pos * 2f;
             float eValue = 3.0f;
             if (e != null) eValue = e.apply(pos);
@@ -843,7 +905,7 @@ public class Ops {
             } else {
                 return 0.5f * (float) (2f - Math.pow((2f - value), eValue));
             }
-        };
+        }, e);
     }
 
     /**
@@ -872,7 +934,7 @@ public class Ops {
      * @return FloatOp representing the described function.
      */
     public FloatOp easeOutIn(FloatOp e) {
-        return pos -> {
+        return named("easeOutIn", pos -> {
         	float value = pos * 2f;
             float eValue = 3.0f;
             if (e != null) eValue = e.apply(pos);
@@ -882,7 +944,7 @@ public class Ops {
             	value = value - 1;
             	return (float) (Math.pow(value, eValue) * 0.5f) + 0.5f;
             }
-        };
+        }, e);
     }
 
     /**
@@ -912,10 +974,10 @@ public class Ops {
      * @return A new FloatOp that multiplies the output of the original FloatOp by the scalar.
      */
     public FloatOp mult(FloatOp op, float scalar) {
-    	return pos -> {
+    	return named("mult", pos -> {
     		float v = op.apply(pos);
     		return v * scalar;
-    	};
+    	}, op, scalar);
     }
 
     /**
@@ -926,10 +988,10 @@ public class Ops {
      * @return A new FloatOp that adds the offset to the output of the original FloatOp.
      */
     public FloatOp bias(FloatOp op, float offset) {
-    	return pos -> {
+    	return named("bias", pos -> {
     		float v = op.apply(pos);
     		return v + offset;
-    	};
+    	}, op, offset);
     }
 
     /**
@@ -940,11 +1002,11 @@ public class Ops {
      * @return A new FloatOp that adds the output of the offset FloatOp to the output of the original FloatOp.
      */
     public FloatOp bias(FloatOp op, FloatOp offset) {
-    	return pos -> {
+    	return named("bias", pos -> {
     		float v = op.apply(pos);
     		float offV = offset.apply(pos);
     		return v + offV;
-    	};
+    	}, op, offset);
     }
 
     /**
@@ -955,12 +1017,12 @@ public class Ops {
      * @return the float op
      */
     public FloatOp phase(FloatOp op, float phaseOffset) {
-        return pos -> {
+        return named("phase", pos -> {
             pos = pos + phaseOffset;
             if (pos > 1.0f)
                 pos = pos % 1.0f;
             return op.apply(pos);
-        };
+        }, op, phaseOffset);
     }
 
     /**
@@ -971,13 +1033,13 @@ public class Ops {
      * @return the float op
      */
     public FloatOp phase(FloatOp op, FloatOp phaseOffset) {
-        return pos -> {
+        return named("phase", pos -> {
             float po = phaseOffset.apply(pos);
             pos = pos + po;
             if (pos > 1.0f)
                 pos = pos % 1.0f;
             return op.apply(pos);
-        };
+        }, op, phaseOffset);
     }
 
     /**
@@ -988,12 +1050,12 @@ public class Ops {
      * @return the float op
      */
     public FloatOp rate(FloatOp op, float rateOffset) {
-        return pos -> {
+        return named("rate", pos -> {
             pos = pos * rateOffset;
             if (pos > 1.0f)
                 pos = pos % 1.0f;
             return op.apply(pos);
-        };
+        }, op, rateOffset);
     }
 
     /**
@@ -1004,13 +1066,13 @@ public class Ops {
      * @return the float op
      */
     public FloatOp rate(FloatOp op, FloatOp rateOffset) {
-        return pos -> {
+        return named("rate", pos -> {
             float ro = rateOffset.apply(pos);
             pos = pos * ro;
             if (pos > 1.0f)
                 pos = pos % 1.0f;
             return op.apply(pos);
-        };
+        }, op, rateOffset);
     }
 
     /**
@@ -1021,11 +1083,11 @@ public class Ops {
      * @return A new FloatOp that multiplies the outputs of the two original FloatOps.
      */
     public FloatOp ring(FloatOp opA, FloatOp opB) {
-    	return pos -> {
+    	return named("ring", pos -> {
     		float aVal = opA.apply(pos);
     		float bVal = opB.apply(pos);
     		return aVal * bVal;
-    	};
+    	}, opA, opB);
     }
 
     /**
@@ -1038,14 +1100,14 @@ public class Ops {
      * @return A new FloatOp that applies the fold operation on the output of the original FloatOp.
      */
     public FloatOp fold(FloatOp op, FloatOp threshold) {
-        return pos -> {
+        return named("fold", pos -> {
         	float tVal = threshold.apply(pos);
             float value = op.apply(pos);
             while (value > tVal) {
             	value = tVal - (value - tVal);
             }
             return value;
-        };
+        }, op, threshold);
     }
 
     /**
@@ -1056,13 +1118,13 @@ public class Ops {
      * @return the float op
      */
     public FloatOp fold(FloatOp op, float threshold) {
-        return pos -> {
+        return named("fold", pos -> {
             float value = op.apply(pos);
             while (value > threshold) {
                 value = threshold - (value - threshold);
             }
             return value;
-        };
+        }, op, threshold);
     }
 
     /**
@@ -1072,24 +1134,25 @@ public class Ops {
      * @return the float op
      */
     public FloatOp fold(FloatOp op) {
-        return pos -> {
+        return named("fold", pos -> {
             float value = op.apply(pos);
             while (value > 1f) {
                 value = 1f - (value - 1f);
             }
             return value;
-        };
+        }, op);
     }
 
     /**
-     * Low pass filter float op.
+     * Low pass filter float op. Evaluates inputOp windowSize times per call; see
+     * boxFilter for the same filter in block form.
      *
      * @param inputOp    the input op
      * @param windowSize the window size
      * @return the float op
      */
     public FloatOp lowPassFilter(FloatOp inputOp, int windowSize) {
-        return pos -> {
+        return named("lowPassFilter", pos -> {
             float sum = 0;
             for(int i = 0; i < windowSize; i++) {
                 float offsetPos = pos - ((float) i / windowSize);
@@ -1098,7 +1161,60 @@ public class Ops {
                 sum += inputOp.apply(offsetPos);
             }
             return sum / windowSize;
-        };
+        }, inputOp, windowSize);
+    }
+
+    /**
+     * Low pass filter in block form: the same result as lowPassFilter(inputOp,
+     * windowSize) at each of resolution or more table points, with inputOp
+     * evaluated once per point instead of windowSize times per output.
+     *
+     * @param inputOp    the input op
+     * @param windowSize the window size
+     * @param resolution the minimum number of table steps
+     * @return the filter
+     */
+    public Filter boxFilter(FloatOp inputOp, int windowSize, int resolution) {
+        return (Filter) named("boxFilter", new Filter(inputOp, Filter.Kernel.BOX, windowSize, resolution), inputOp, windowSize, resolution);
+    }
+
+    /**
+     * One-pole low pass filter in block form, as smooth as lowPassFilter(inputOp,
+     * windowSize) but with an exponential tail.
+     *
+     * @param inputOp    the input op
+     * @param windowSize the window size
+     * @param resolution the minimum number of table steps
+     * @return the filter
+     */
+    public Filter onePoleFilter(FloatOp inputOp, int windowSize, int resolution) {
+        return (Filter) named("onePoleFilter", new Filter(inputOp, Filter.Kernel.ONE_POLE, windowSize, resolution), inputOp, windowSize, resolution);
+    }
+
+    /**
+     * Centred Gaussian low pass filter in block form, as smooth as
+     * lowPassFilter(inputOp, windowSize) but without its lag.
+     *
+     * @param inputOp    the input op
+     * @param windowSize the window size
+     * @param resolution the minimum number of table steps
+     * @return the filter
+     */
+    public Filter gaussianFilter(FloatOp inputOp, int windowSize, int resolution) {
+        return (Filter) named("gaussianFilter", new Filter(inputOp, Filter.Kernel.GAUSSIAN, windowSize, resolution), inputOp, windowSize, resolution);
+    }
+
+    /**
+     * Butterworth biquad low pass filter in block form, with the cutoff of
+     * lowPassFilter(inputOp, windowSize) and a steeper rolloff.
+     *
+     * @param inputOp    the input op
+     * @param windowSize the window size
+     * @param resolution the minimum number of table steps
+     * @return the filter
+     */
+    public Filter biquadFilter(FloatOp inputOp, int windowSize, int resolution) {
+        return (Filter) named("biquadFilter", new Filter(inputOp, Filter.Kernel.BIQUAD, windowSize, resolution), inputOp, windowSize, resolution);
     }
 
     /**
@@ -1108,13 +1224,13 @@ public class Ops {
      * @return the float op
      */
     public FloatOp chain(FloatOp[] ops) {
-    	return pos -> {
+    	return named("chain", pos -> {
     		float value = ops[0].apply(pos);
     		for (int i = 1; i < ops.length; i++) {
     			value = ops[i].apply(value);
     		}
     		return value;
-    	};
+    	}, (Object) ops);
     }
 
     /**
@@ -1124,10 +1240,10 @@ public class Ops {
      * @return the float op
      */
     public FloatOp choose(FloatOp[] ops) {
-    	return pos -> {
+    	return named("choose", pos -> {
     		int idx = (int) parent.random(ops.length);
     		return ops[idx].apply(pos);
-    	};
+    	}, (Object) ops);
     }
 
     /**
@@ -1137,17 +1253,16 @@ public class Ops {
      * @return Array of normalized values.
      */
     public float[] normalize(float[] values) {
-        double[] dValues = new double[values.length];
-        for (int i = 0; i < values.length; i++)
-        {
-        	dValues[i] = values[i];
+        // one pass for the range and one for the output, in double as before
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (float v : values) {
+            if (v < min) min = v;
+            if (v > max) max = v;
         }
-        double min = Arrays.stream(dValues).min().getAsDouble();
-        double max = Arrays.stream(dValues).max().getAsDouble();
-        double[] normDVals = Arrays.stream(dValues).map(v -> (v - min) / (max - min)).toArray();
         float[] normFloats = new float[values.length];
-        for (int i=0; i< values.length; i++) {
-        	normFloats[i] = (float) normDVals[i];
+        for (int i = 0; i < values.length; i++) {
+        	normFloats[i] = (float) ((values[i] - min) / (max - min));
         }
         return normFloats;
     }
@@ -1160,11 +1275,28 @@ public class Ops {
      */
     public FloatOp timeseries(float[] yvalues) {
     	float[] normalizedYvalues = normalize(yvalues);
-        return pos -> {
-            int index = (int) (pos * (normalizedYvalues.length - 1f));
-            float fraction = pos * (normalizedYvalues.length - 1f) - index;
+    	int last = normalizedYvalues.length - 1;
+        return named("timeseries", pos -> {
+            if (last <= 0) {
+                // no range to normalize by, as in Series.op
+                return 0f;
+            }
+            int index = Math.min((int) (pos * last), last - 1);
+            float fraction = pos * last - index;
             return (normalizedYvalues[index] * (1.0f - fraction)) + (normalizedYvalues[index + 1] * fraction);
-        };
+        }, normalizedYvalues);
+    }
+
+    /**
+     * Returns a FloatOp which interpolates across every value of a series, for
+     * logs too large for timeseries(float[]). See Series.minOp and Series.maxOp to
+     * plot one at the resolution of a Crv instead.
+     *
+     * @param series the series
+     * @return FloatOp representing the described function.
+     */
+    public FloatOp timeseries(Series series) {
+        return series.op();
     }
 
     /**
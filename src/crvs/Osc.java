@@ -0,0 +1,452 @@
+package crvs;
+
+/**
+ * Streaming oscillator with a phase accumulator, the stateful counterpart of
+ * the Ops waveforms for audio-rate control signals and per-tick MIDI.
+ * <p>
+ * Where Ops.sine() maps a position to a value and recomputes Math.sin for every
+ * call, an Osc advances its own phase and produces a block of samples per fill
+ * call. The phase is a 64-bit fixed-point fraction of a cycle that wraps by
+ * integer overflow, so it never drifts, however long the stream runs. Outputs
+ * are unipolar, 0 to 1, with the same shape and phase as the matching Ops
+ * waveform.
+ * <pre>
+ * Osc lfo = new Osc.Sine(0.25, 48000);
+ * float[] block = new float[256];
+ * lfo.fill(block, block.length);
+ * </pre>
+ * Frequency changes take effect from the next sample, so modulating it once per
+ * block gives block-rate FM without touching the phase.
+ */
+public abstract class Osc {
+
+    /**
+     * Value of one cycle in phase units.
+     */
+    static final double CYCLE = 0x1p64;
+
+    /**
+     * Current phase, a fraction of a cycle in units of 2^-64.
+     */
+    protected long phase;
+
+    /**
+     * Phase added per sample, in units of 2^-64.
+     */
+    protected long increment;
+
+    /**
+     * Frequency in cycles per sample, kept as a double for the band-limiting
+     * corrections.
+     */
+    protected double dt;
+
+    /**
+     * Instantiates a new Osc.
+     *
+     * @param frequency  the frequency in Hz
+     * @param sampleRate the sample rate in Hz
+     */
+    protected Osc(double frequency, double sampleRate) {
+        this.setFrequency(frequency, sampleRate);
+    }
+
+    /**
+     * Sets the frequency. Must stay below the sample rate.
+     *
+     * @param frequency  the frequency in Hz, negative to run backwards
+     * @param sampleRate the sample rate in Hz
+     */
+    public void setFrequency(double frequency, double sampleRate) {
+        double ratio = frequency / sampleRate;
+        if (!(Math.abs(ratio) < 1)) {
+            throw new IllegalArgumentException("Frequency " + frequency + " must be below the sample rate " + sampleRate);
+        }
+        // ratio * 2^64 does not fit a signed long for ratio >= 0.5, so scale by 2^63 and shift
+        this.increment = (long) (ratio * 0x1p63) << 1;
+        this.dt = Math.abs(ratio);
+    }
+
+    /**
+     * Gets the frequency in cycles per sample.
+     *
+     * @return the frequency over the sample rate
+     */
+    public double getIncrement() {
+        return this.increment / CYCLE;
+    }
+
+    /**
+     * Sets the phase.
+     *
+     * @param phase the phase, any value, of which only the fractional part is used
+     */
+    public void setPhase(double phase) {
+        this.phase = toFixed(phase);
+    }
+
+    /**
+     * Gets the phase.
+     *
+     * @return the phase, from 0 inclusive to 1 exclusive
+     */
+    public double getPhase() {
+        return toUnit(this.phase);
+    }
+
+    /**
+     * Resets the phase to 0.
+     */
+    public void reset() {
+        this.setPhase(0);
+    }
+
+    /**
+     * Produces one sample and advances the phase.
+     *
+     * @return the sample, from 0 to 1
+     */
+    public abstract float next();
+
+    /**
+     * Writes the next n samples into out, starting at index offset.
+     *
+     * @param out    the buffer
+     * @param offset the first index to write
+     * @param n      the number of samples
+     */
+    public abstract void fill(float[] out, int offset, int n);
+
+    /**
+     * Writes the next n samples into the start of out.
+     *
+     * @param out the buffer
+     * @param n   the number of samples
+     */
+    public void fill(float[] out, int n) {
+        this.fill(out, 0, n);
+    }
+
+    static double toUnit(long phase) {
+        return (phase >>> 11) * 0x1p-53;
+    }
+
+    static long toFixed(double phase) {
+        double fraction = phase - Math.floor(phase);
+        return (long) (fraction * 0x1p63) << 1;
+    }
+
+    /**
+     * Polynomial band-limited step residual for a discontinuity at t = 0, for t a
+     * phase in [0, 1) and dt the phase increment.
+     */
+    static double polyBlep(double t, double dt) {
+        if (t < dt) {
+            t /= dt;
+            return t + t - t * t - 1.0;
+        }
+        if (t > 1.0 - dt) {
+            t = (t - 1.0) / dt;
+            return t * t + t + t + 1.0;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Polynomial band-limited ramp residual for a change of slope at t = 0, the
+     * integral of polyBlep.
+     */
+    static double polyBlamp(double t, double dt) {
+        if (t < dt) {
+            t = t / dt - 1.0;
+            return -1.0 / 3.0 * t * t * t;
+        }
+        if (t > 1.0 - dt) {
+            t = (t - 1.0) / dt + 1.0;
+            return 1.0 / 3.0 * t * t * t;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Sine oscillator by rotation-matrix recurrence: each sample is one complex
+     * multiply, with no call to Math.sin. The recurrence is resynchronised with
+     * the phase accumulator at every block and every RESYNC samples, so rounding
+     * never accumulates into amplitude or phase error.
+     */
+    public static class Sine extends Osc {
+
+        static final int RESYNC = 1024;
+
+        private double sin;
+        private double cos;
+        private double rotSin;
+        private double rotCos;
+        private int untilResync;
+
+        /**
+         * Instantiates a new Sine.
+         *
+         * @param frequency  the frequency in Hz
+         * @param sampleRate the sample rate in Hz
+         */
+        public Sine(double frequency, double sampleRate) {
+            super(frequency, sampleRate);
+            this.resync();
+        }
+
+        @Override
+        public void setFrequency(double frequency, double sampleRate) {
+            super.setFrequency(frequency, sampleRate);
+            double w = 2 * Math.PI * this.getIncrement();
+            this.rotSin = Math.sin(w);
+            this.rotCos = Math.cos(w);
+        }
+
+        @Override
+        public void setPhase(double phase) {
+            super.setPhase(phase);
+            this.resync();
+        }
+
+        private void resync() {
+            double w = 2 * Math.PI * toUnit(this.phase);
+            this.sin = Math.sin(w);
+            this.cos = Math.cos(w);
+            this.untilResync = RESYNC;
+        }
+
+        private float step() {
+            float value = (float) (this.sin * 0.5 + 0.5);
+            double s = this.sin * this.rotCos + this.cos * this.rotSin;
+            this.cos = this.cos * this.rotCos - this.sin * this.rotSin;
+            this.sin = s;
+            this.phase += this.increment;
+            return value;
+        }
+
+        @Override
+        public float next() {
+            if (--this.untilResync <= 0) {
+                this.resync();
+            }
+            return this.step();
+        }
+
+        @Override
+        public void fill(float[] out, int offset, int n) {
+            this.resync();
+            int end = offset + n;
+            for (int i = offset; i < end; i++) {
+                out[i] = this.step();
+            }
+            this.untilResync -= n;
+        }
+    }
+
+    /**
+     * Falling sawtooth, 1 - phase, like Ops.saw(). The band-limited variant
+     * smooths the jump at the cycle boundary with polyBLEP, which removes most of
+     * the aliasing of the naive ramp at audio rates.
+     */
+    public static class Saw extends Osc {
+
+        private final boolean bandLimited;
+
+        /**
+         * Instantiates a new Saw.
+         *
+         * @param frequency   the frequency in Hz
+         * @param sampleRate  the sample rate in Hz
+         * @param bandLimited whether to apply polyBLEP
+         */
+        public Saw(double frequency, double sampleRate, boolean bandLimited) {
+            super(frequency, sampleRate);
+            this.bandLimited = bandLimited;
+        }
+
+        /**
+         * Instantiates a naive Saw, for control rates.
+         *
+         * @param frequency  the frequency in Hz
+         * @param sampleRate the sample rate in Hz
+         */
+        public Saw(double frequency, double sampleRate) {
+            this(frequency, sampleRate, false);
+        }
+
+        private float step() {
+            double t = toUnit(this.phase);
+            double value = 1.0 - t;
+            if (this.bandLimited) {
+                // the wrap is a rising step of 1
+                value += 0.5 * polyBlep(t, this.dt);
+            }
+            this.phase += this.increment;
+            return (float) value;
+        }
+
+        @Override
+        public float next() {
+            return this.step();
+        }
+
+        @Override
+        public void fill(float[] out, int offset, int n) {
+            int end = offset + n;
+            for (int i = offset; i < end; i++) {
+                out[i] = this.step();
+            }
+        }
+    }
+
+    /**
+     * Triangle with adjustable symmetry, like Ops.tri(s): rising over [0, s) and
+     * falling over [s, 1). The band-limited variant smooths both corners with
+     * polyBLAMP.
+     */
+    public static class Tri extends Osc {
+
+        private final boolean bandLimited;
+        private double symmetry;
+        private double corner;
+
+        /**
+         * Instantiates a new Tri.
+         *
+         * @param frequency   the frequency in Hz
+         * @param sampleRate  the sample rate in Hz
+         * @param symmetry    where the peak falls in the cycle, between 0 and 1 exclusive
+         * @param bandLimited whether to apply polyBLAMP
+         */
+        public Tri(double frequency, double sampleRate, double symmetry, boolean bandLimited) {
+            super(frequency, sampleRate);
+            this.bandLimited = bandLimited;
+            this.setSymmetry(symmetry);
+        }
+
+        /**
+         * Instantiates a naive symmetric Tri, for control rates.
+         *
+         * @param frequency  the frequency in Hz
+         * @param sampleRate the sample rate in Hz
+         */
+        public Tri(double frequency, double sampleRate) {
+            this(frequency, sampleRate, 0.5, false);
+        }
+
+        /**
+         * Sets the symmetry.
+         *
+         * @param symmetry where the peak falls in the cycle, between 0 and 1 exclusive
+         */
+        public void setSymmetry(double symmetry) {
+            if (!(symmetry > 0 && symmetry < 1)) {
+                throw new IllegalArgumentException("Symmetry " + symmetry + " must lie strictly between 0 and 1");
+            }
+            this.symmetry = symmetry;
+            // total change of slope at each corner, in value per cycle
+            this.corner = 1.0 / symmetry + 1.0 / (1.0 - symmetry);
+        }
+
+        private float step() {
+            double t = toUnit(this.phase);
+            double s = this.symmetry;
+            double value = t < s ? t / s : 1.0 - (t - s) / (1.0 - s);
+            if (this.bandLimited) {
+                double ts = t - s;
+                if (ts < 0) ts += 1.0;
+                // half the change of slope per sample, as for polyBlep's half step
+                double scale = 0.5 * this.corner * this.dt;
+                value += scale * polyBlamp(t, this.dt);
+                value -= scale * polyBlamp(ts, this.dt);
+            }
+            this.phase += this.increment;
+            return (float) value;
+        }
+
+        @Override
+        public float next() {
+            return this.step();
+        }
+
+        @Override
+        public void fill(float[] out, int offset, int n) {
+            int end = offset + n;
+            for (int i = offset; i < end; i++) {
+                out[i] = this.step();
+            }
+        }
+    }
+
+    /**
+     * Pulse with adjustable width, like Ops.pulse(w): 0 over [0, w) and 1 over
+     * [w, 1). The band-limited variant smooths both edges with polyBLEP.
+     */
+    public static class Pulse extends Osc {
+
+        private final boolean bandLimited;
+        private double width;
+
+        /**
+         * Instantiates a new Pulse.
+         *
+         * @param frequency   the frequency in Hz
+         * @param sampleRate  the sample rate in Hz
+         * @param width       the fraction of the cycle spent low, between 0 and 1
+         * @param bandLimited whether to apply polyBLEP
+         */
+        public Pulse(double frequency, double sampleRate, double width, boolean bandLimited) {
+            super(frequency, sampleRate);
+            this.bandLimited = bandLimited;
+            this.width = width;
+        }
+
+        /**
+         * Instantiates a naive square wave, for control rates.
+         *
+         * @param frequency  the frequency in Hz
+         * @param sampleRate the sample rate in Hz
+         */
+        public Pulse(double frequency, double sampleRate) {
+            this(frequency, sampleRate, 0.5, false);
+        }
+
+        /**
+         * Sets the width.
+         *
+         * @param width the fraction of the cycle spent low, between 0 and 1
+         */
+        public void setWidth(double width) {
+            this.width = width;
+        }
+
+        private float step() {
+            double t = toUnit(this.phase);
+            double value = t < this.width ? 0.0 : 1.0;
+            if (this.bandLimited) {
+                double tw = t - this.width;
+                if (tw < 0) tw += 1.0;
+                // falling step of 1 at the wrap, rising step of 1 at the width
+                value -= 0.5 * polyBlep(t, this.dt);
+                value += 0.5 * polyBlep(tw, this.dt);
+            }
+            this.phase += this.increment;
+            return (float) value;
+        }
+
+        @Override
+        public float next() {
+            return this.step();
+        }
+
+        @Override
+        public void fill(float[] out, int offset, int n) {
+            int end = offset + n;
+            for (int i = offset; i < end; i++) {
+                out[i] = this.step();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+package crvs;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a Sqnc live to a MIDI Receiver.
+ * <p>
+ * A dedicated scheduler thread wakes every periodMicros, evaluates every Trk's
+ * rhythm, pitch, velocity and controller curves for all ticks that fall within
+ * lookaheadMicros of the clock, and queues the resulting messages. Queued
+ * messages are sent with their due timestamp as soon as they enter the
+ * lookahead window, or at their due time when timestamped is false, for
+ * receivers that ignore timestamps.
+ * <p>
+ * Timestamps are microseconds on the player's clock, which starts at zero on
+ * start(), plus timestampOffset. When constructed from a MidiDevice the offset is
+ * taken from the device's own microsecond position on start().
+ */
+public class Plyr {
+    protected Sqnc sqnc;
+    protected Receiver receiver;
+    protected MidiDevice device;
+
+    public volatile float bpm = 120f;
+    public long lookaheadMicros = 50_000;
+    public long periodMicros = 2_000;
+    public long timestampOffset;
+    public boolean timestamped = true;
+    public boolean loop;
+
+    private volatile boolean running;
+    private Thread thread;
+    private long startNanos;
+    private long nextTick;
+    // due time of nextTick, advanced one tick length at a time so a bpm change
+    // only affects the ticks after it
+    private double nextDue;
+    // latest timestamp handed to the receiver, before timestampOffset
+    private long sentUntil;
+    private final PriorityQueue<Pending> pending = new PriorityQueue<>();
+
+    private volatile long wakeups;
+    private volatile long eventsSent;
+    private volatile long lateEvents;
+    private volatile long maxJitterMicros;
+    private volatile long totalJitterMicros;
+    private volatile long maxLatenessMicros;
+
+    public Plyr(Sqnc sqnc, Receiver receiver) {
+        this.sqnc = sqnc;
+        this.receiver = receiver;
+    }
+
+    public Plyr(Sqnc sqnc, MidiDevice device) throws MidiUnavailableException {
+        this(sqnc, device.getReceiver());
+        this.device = device;
+    }
+
+    public synchronized void start() {
+        if (this.running) return;
+        for (Trk trk : this.sqnc.trks) {
+            trk.rhythm.reset();
+        }
+        this.pending.clear();
+        this.nextTick = 0;
+        this.nextDue = 0;
+        this.sentUntil = 0;
+        this.resetStats();
+        if (this.device != null && this.device.getMicrosecondPosition() >= 0) {
+            this.timestampOffset = this.device.getMicrosecondPosition();
+        }
+        this.startNanos = System.nanoTime();
+        this.running = true;
+        this.thread = new Thread(this::run, "crvs-plyr");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MAX_PRIORITY);
+        this.thread.start();
+    }
+
+    public synchronized void stop() {
+        if (!this.running) return;
+        this.running = false;
+        LockSupport.unpark(this.thread);
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.allNotesOff();
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Microseconds elapsed on the player's clock since start().
+     */
+    public long clockMicros() {
+        return (System.nanoTime() - this.startNanos) / 1000;
+    }
+
+    public double tickMicros() {
+        return 60_000_000.0 / (this.bpm * this.sqnc.sequence.getResolution());
+    }
+
+    private void run() {
+        long periodNanos = this.periodMicros * 1000;
+        long plannedWake = System.nanoTime();
+        while (this.running) {
+            long now = System.nanoTime();
+            this.recordWake((now - plannedWake) / 1000);
+
+            long nowMicros = (now - this.startNanos) / 1000;
+            if (!this.schedule(nowMicros + this.lookaheadMicros) && this.pending.isEmpty()) {
+                this.running = false;
+                break;
+            }
+            this.dispatch(this.timestamped ? nowMicros + this.lookaheadMicros : nowMicros, nowMicros);
+
+            plannedWake += periodNanos;
+            long sleep = plannedWake - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            } else {
+                plannedWake = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Evaluates all ticks due before the horizon. Returns false once a
+     * non-looping sequence has been fully scheduled.
+     */
+    private boolean schedule(long horizonMicros) {
+        double tickMicros = this.tickMicros();
+        long length = this.sqnc.songLengthTicks;
+        while (this.nextDue <= horizonMicros) {
+            if (!this.loop && this.nextTick >= length) {
+                return false;
+            }
+            long due = Math.round(this.nextDue);
+            long tick = length > 0 ? this.nextTick % length : this.nextTick;
+            for (Trk trk : this.sqnc.trks) {
+                this.evaluate(trk, tick, due, tickMicros);
+            }
+            this.nextTick++;
+            this.nextDue += tickMicros;
+        }
+        return true;
+    }
+
+    private void evaluate(Trk trk, long tick, long due, double tickMicros) {
+        if (trk.rhythm.next()) {
+            double x = trk.notePos(tick);
+            int pitch = (int) trk.pitch.yAt(x);
+            int velocity = (int) trk.velocity.yAt(x);
+            this.queue(ShortMessage.NOTE_ON, trk.channel, pitch, velocity, due);
+            this.queue(ShortMessage.NOTE_OFF, trk.channel, pitch, 0,
+                    due + Math.round(trk.noteLength() * tickMicros));
+        }
+        for (Map.Entry<Integer, Crv> entry : trk.cntrls.entrySet()) {
+            int value = (int) entry.getValue().yAt(trk.cntrlPos(tick));
+            this.queue(ShortMessage.CONTROL_CHANGE, trk.channel, entry.getKey(), value, due);
+        }
+    }
+
+    private void queue(int command, int channel, int data1, int data2, long due) {
+        ShortMessage message = new ShortMessage();
+        try {
+            message.setMessage(command, channel, data1, data2);
+        } catch (InvalidMidiDataException e) {
+            e.printStackTrace();
+            return;
+        }
+        this.pending.add(new Pending(message, due));
+    }
+
+    private void dispatch(long horizonMicros, long nowMicros) {
+        while (!this.pending.isEmpty() && this.pending.peek().due <= horizonMicros) {
+            Pending p = this.pending.poll();
+            long lateness = nowMicros - p.due;
+            if (lateness > 0) {
+                this.lateEvents++;
+                this.maxLatenessMicros = Math.max(this.maxLatenessMicros, lateness);
+            }
+            this.send(p.message, p.due);
+        }
+    }
+
+    private void send(ShortMessage message, long due) {
+        this.sentUntil = Math.max(this.sentUntil, due);
+        this.receiver.send(message, this.timestamped ? due + this.timestampOffset : -1);
+        this.eventsSent++;
+        Metrics.count(Metric.MIDI_EVENTS, 0, 1);
+    }
+
+    /**
+     * Releases every note. With timestamped set, note-ons up to lookaheadMicros
+     * ahead have already gone out, so the queued note-offs are sent rather than
+     * dropped, and all-notes-off is stamped after the last message sent instead of
+     * now, where a receiver honouring timestamps would play it before them.
+     */
+    private void allNotesOff() {
+        while (!this.pending.isEmpty()) {
+            Pending p = this.pending.poll();
+            if (p.message.getCommand() == ShortMessage.NOTE_OFF) {
+                this.send(p.message, p.due);
+            }
+        }
+        long due = Math.max(this.clockMicros(), this.sentUntil);
+        for (Trk trk : this.sqnc.trks) {
+            try {
+                this.send(new ShortMessage(ShortMessage.CONTROL_CHANGE, trk.channel, 123, 0), due);
+            } catch (InvalidMidiDataException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void recordWake(long jitterMicros) {
+        jitterMicros = Math.max(0, jitterMicros);
+        this.wakeups++;
+        this.totalJitterMicros += jitterMicros;
+        this.maxJitterMicros = Math.max(this.maxJitterMicros, jitterMicros);
+    }
+
+    /*
+     * JITTER METRICS
+     */
+
+    public void resetStats() {
+        this.wakeups = 0;
+        this.eventsSent = 0;
+        this.lateEvents = 0;
+        this.maxJitterMicros = 0;
+        this.totalJitterMicros = 0;
+        this.maxLatenessMicros = 0;
+    }
+
+    public long getEventsSent() {
+        return this.eventsSent;
+    }
+
+    /**
+     * Events that left the queue after their due time, i.e. the lookahead was too
+     * short to cover a scheduler stall.
+     */
+    public long getLateEvents() {
+        return this.lateEvents;
+    }
+
+    public long getMaxLatenessMicros() {
+        return this.maxLatenessMicros;
+    }
+
+    /**
+     * Worst delay between a planned scheduler wakeup and the actual one.
+     */
+    public long getMaxJitterMicros() {
+        return this.maxJitterMicros;
+    }
+
+    public double getMeanJitterMicros() {
+        long w = this.wakeups;
+        return w == 0 ? 0 : (double) this.totalJitterMicros / w;
+    }
+
+    public String toString() {
+        return "Plyr(sent: " + this.eventsSent + ", late: " + this.lateEvents
+                + ", jitter mean/max us: " + String.format("%.1f", this.getMeanJitterMicros()) + "/" + this.maxJitterMicros + ")";
+    }
+
+    private static class Pending implements Comparable<Pending> {
+        final ShortMessage message;
+        final long due;
+
+        Pending(ShortMessage message, long due) {
+            this.message = message;
+            this.due = due;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            int order = Long.compare(this.due, other.due);
+            // release before re-striking the same key on the same tick
+            return order != 0 ? order : Integer.compare(this.message.getCommand(), other.message.getCommand());
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package crvs;
+
+import java.util.Arrays;
+
+/**
+ * An MPolygon prepared for many point-in-polygon tests. The bounding box is
+ * cached, so most points outside are rejected with four comparisons, and the
+ * edges are bucketed into horizontal slabs, so a point is ray-cast against the
+ * few edges crossing its own slab rather than every edge. Tests give the same
+ * answer as MPolygon.contains.
+ * <p>
+ * A prepared polygon is a snapshot of the vertices it was made from, and is
+ * safe to share between threads. locate() classifies points against a whole set
+ * of polygons, such as the cells of a Voronoi diagram, through a grid over their
+ * bounding boxes.
+ */
+public final class PreparedPolygon {
+
+    private static final int MAX_SLABS = 4096;
+
+    /**
+     * The least x of any vertex.
+     */
+    public final float minX;
+    /**
+     * The least y of any vertex.
+     */
+    public final float minY;
+    /**
+     * The greatest x of any vertex.
+     */
+    public final float maxX;
+    /**
+     * The greatest y of any vertex.
+     */
+    public final float maxY;
+
+    private final float[] xs;
+    private final float[] ys;
+    private final float slabScale;
+    private final int slabCount;
+    // edges crossing slab s are slabEdges[slabStarts[s]] up to slabStarts[s + 1];
+    // edge i runs from vertex i - 1 to vertex i
+    private final int[] slabStarts;
+    private final int[] slabEdges;
+
+    /**
+     * Prepares the first count vertices of a polygon.
+     *
+     * @param polygon the polygon
+     */
+    public PreparedPolygon(MPolygon polygon) {
+        int n = polygon.count();
+        float[][] coords = polygon.getCoords();
+        this.xs = new float[n];
+        this.ys = new float[n];
+        float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY;
+        float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            float x = coords[i][0];
+            float y = coords[i][1];
+            this.xs[i] = x;
+            this.ys[i] = y;
+            x0 = Math.min(x0, x);
+            y0 = Math.min(y0, y);
+            x1 = Math.max(x1, x);
+            y1 = Math.max(y1, y);
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.maxX = x1;
+        this.maxY = y1;
+        this.slabCount = Math.max(1, Math.min(n, MAX_SLABS));
+        float height = y1 - y0;
+        this.slabScale = height > 0 ? this.slabCount / height : 0;
+        int[] counts = new int[this.slabCount + 1];
+        for (int i = 0; i < n; i++) {
+            int j = i == 0 ? n - 1 : i - 1;
+            int from = this.slab(Math.min(this.ys[i], this.ys[j]));
+            int to = this.slab(Math.max(this.ys[i], this.ys[j]));
+            for (int s = from; s <= to; s++) {
+                counts[s + 1]++;
+            }
+        }
+        for (int s = 0; s < this.slabCount; s++) {
+            counts[s + 1] += counts[s];
+        }
+        this.slabStarts = counts.clone();
+        this.slabEdges = new int[counts[this.slabCount]];
+        for (int i = 0; i < n; i++) {
+            int j = i == 0 ? n - 1 : i - 1;
+            int from = this.slab(Math.min(this.ys[i], this.ys[j]));
+            int to = this.slab(Math.max(this.ys[i], this.ys[j]));
+            for (int s = from; s <= to; s++) {
+                this.slabEdges[counts[s]++] = i;
+            }
+        }
+    }
+
+    private int slab(float y) {
+        int s = (int) ((y - this.minY) * this.slabScale);
+        return Math.max(0, Math.min(this.slabCount - 1, s));
+    }
+
+    /**
+     * Contains boolean.
+     *
+     * @param px the px
+     * @param py the py
+     * @return the boolean
+     */
+    public boolean contains(float px, float py) {
+        if (!(px >= this.minX && px <= this.maxX && py >= this.minY && py <= this.maxY)) {
+            return false;
+        }
+        int n = this.xs.length;
+        int s = this.slab(py);
+        boolean result = false;
+        for (int k = this.slabStarts[s], end = this.slabStarts[s + 1]; k < end; k++) {
+            int i = this.slabEdges[k];
+            int j = i == 0 ? n - 1 : i - 1;
+            float xi = this.xs[i], yi = this.ys[i];
+            float xj = this.xs[j], yj = this.ys[j];
+            // the same crossing test as MPolygon.contains
+            if ((yi > py) != (yj > py) && (px < (xj - xi) * (py - yi) / (yj - yi) + xi)) {
+                result = !result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests a batch of points.
+     *
+     * @param xs  the x coordinates
+     * @param ys  the y coordinates
+     * @param out whether each point is inside, at least as long as xs
+     * @return the number of points inside
+     */
+    public int containsAll(float[] xs, float[] ys, boolean[] out) {
+        int inside = 0;
+        for (int i = 0; i < xs.length; i++) {
+            boolean in = this.contains(xs[i], ys[i]);
+            out[i] = in;
+            if (in) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Finds the polygon holding each point. Polygons are bucketed by bounding box
+     * into a grid over all of them, so each point is tested against the few whose
+     * boxes cover its grid cell.
+     *
+     * @param polygons the polygons
+     * @param xs       the x coordinates
+     * @param ys       the y coordinates
+     * @param out      for each point the index of the first polygon holding it, or -1; at least as long as xs
+     * @return the number of points inside some polygon
+     */
+    public static int locate(PreparedPolygon[] polygons, float[] xs, float[] ys, int[] out) {
+        int m = polygons.length;
+        Arrays.fill(out, 0, xs.length, -1);
+        if (m == 0) {
+            return 0;
+        }
+        float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY;
+        float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY;
+        for (PreparedPolygon p : polygons) {
+            if (p.xs.length > 0) {
+                x0 = Math.min(x0, p.minX);
+                y0 = Math.min(y0, p.minY);
+                x1 = Math.max(x1, p.maxX);
+                y1 = Math.max(y1, p.maxY);
+            }
+        }
+        // the grid only needs to cover the points, which also keeps huge border
+        // cells from stretching it
+        float px0 = Float.POSITIVE_INFINITY, py0 = Float.POSITIVE_INFINITY;
+        float px1 = Float.NEGATIVE_INFINITY, py1 = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            px0 = Math.min(px0, xs[i]);
+            py0 = Math.min(py0, ys[i]);
+            px1 = Math.max(px1, xs[i]);
+            py1 = Math.max(py1, ys[i]);
+        }
+        x0 = Math.max(x0, px0);
+        y0 = Math.max(y0, py0);
+        x1 = Math.min(x1, px1);
+        y1 = Math.min(y1, py1);
+        if (!(x1 >= x0 && y1 >= y0)) {
+            return 0;
+        }
+        // about one polygon per cell
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(m)));
+        float sx = x1 > x0 ? side / (x1 - x0) : 0;
+        float sy = y1 > y0 ? side / (y1 - y0) : 0;
+        int[] starts = new int[side * side + 1];
+        int[] ranges = new int[m * 4];
+        for (int k = 0; k < m; k++) {
+            PreparedPolygon p = polygons[k];
+            int r = k * 4;
+            ranges[r] = cell(p.minX, x0, sx, side);
+            ranges[r + 1] = cell(p.maxX, x0, sx, side);
+            ranges[r + 2] = cell(p.minY, y0, sy, side);
+            ranges[r + 3] = cell(p.maxY, y0, sy, side);
+            if (p.xs.length == 0 || p.maxX < x0 || p.minX > x1 || p.maxY < y0 || p.minY > y1) {
+                // covers no cells
+                ranges[r + 3] = ranges[r + 2] - 1;
+            }
+            for (int cy = ranges[r + 2]; cy <= ranges[r + 3]; cy++) {
+                for (int cx = ranges[r]; cx <= ranges[r + 1]; cx++) {
+                    starts[cy * side + cx + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < side * side; c++) {
+            starts[c + 1] += starts[c];
+        }
+        int[] cells = new int[starts[side * side]];
+        int[] fill = starts.clone();
+        for (int k = 0; k < m; k++) {
+            int r = k * 4;
+            for (int cy = ranges[r + 2]; cy <= ranges[r + 3]; cy++) {
+                for (int cx = ranges[r]; cx <= ranges[r + 1]; cx++) {
+                    cells[fill[cy * side + cx]++] = k;
+                }
+            }
+        }
+        return locate(polygons, starts, cells, x0, y0, x1, y1, sx, sy, side, xs, ys, out);
+    }
+
+    private static int locate(PreparedPolygon[] polygons, int[] starts, int[] cells, float x0, float y0, float x1, float y1,
+                              float sx, float sy, int side, float[] xs, float[] ys, int[] out) {
+        int inside = 0;
+        for (int i = 0; i < xs.length; i++) {
+            float x = xs[i];
+            float y = ys[i];
+            if (!(x >= x0 && x <= x1 && y >= y0 && y <= y1)) {
+                continue;
+            }
+            int c = cell(y, y0, sy, side) * side + cell(x, x0, sx, side);
+            for (int k = starts[c], end = starts[c + 1]; k < end; k++) {
+                int index = cells[k];
+                if (polygons[index].contains(x, y)) {
+                    out[i] = index;
+                    inside++;
+                    break;
+                }
+            }
+        }
+        return inside;
+    }
+
+    private static int cell(float v, float origin, float scale, int side) {
+        return Math.max(0, Math.min(side - 1, (int) ((v - origin) * scale)));
+    }
+
+}
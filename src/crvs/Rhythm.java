@@ -0,0 +1,29 @@
+package crvs;
+
+/**
+ * The interface Rhythm. A stateful step sequence of gates, advanced one step per
+ * call to next(). Implemented by NR and ZR so tracks can be driven by either.
+ */
+public interface Rhythm {
+    /**
+     * Advances one step.
+     *
+     * @return true if the step is a hit
+     */
+    boolean next();
+
+    /**
+     * Reads a step without moving on from it. Which step is up to the
+     * implementation: NR re-reads the step next() last returned, and plays step
+     * 0 (advancing past it) when at step 0; ZR reads the step next() will return,
+     * but from the last step it wraps to step 0 as next() would.
+     *
+     * @return true if the step is a hit
+     */
+    boolean peek();
+
+    /**
+     * Rewinds to the first step.
+     */
+    void reset();
+}
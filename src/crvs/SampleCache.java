@@ -0,0 +1,218 @@
+package crvs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * An on-disk cache of curve sample tables, for offline renders that sample the
+ * same expensive curves every frame, in one process or many.
+ * <p>
+ * Tables are keyed by a hash of the curve graph (its CrvWriter JSON form, so two
+ * curves built the same way share a key), the resolution and a time chosen by
+ * the caller, typically the frame number for curves that read frameCount or
+ * other sketch state. Each table is a file in the cache directory holding a
+ * small header and the floats, little-endian. A miss evaluates the curve, writes
+ * the table to a temporary file and renames it into place, so another process
+ * never sees half a table; a hit maps the file read-only. Every process mapping
+ * the same table shares the same pages of the OS page cache, so tables are
+ * neither recomputed nor copied onto the heap.
+ * <pre>
+ * SampleCache cache = new SampleCache(new File("cache"));
+ * long key = SampleCache.key(crv);
+ * FloatBuffer ys = cache.samples(crv, key, 1920, frameCount);
+ * </pre>
+ * Curves built on random ops are cached as whichever realisation was computed
+ * first. Tables are never evicted from disk; delete the directory to clear it.
+ */
+public class SampleCache {
+
+    private static final int MAGIC = 0x53565243; // CRVS, little-endian
+    private static final int HEADER_SIZE = 24;
+    // the table file layout, versioned apart from the CrvWriter formats
+    private static final int VERSION = 1;
+
+    /**
+     * The cache directory.
+     */
+    public final File dir;
+
+    /**
+     * How many mapped tables to keep open in this process. Evicted tables stay on
+     * disk and are mapped again on their next hit.
+     */
+    public int maxMapped = 4096;
+
+    private final Map<String, FloatBuffer> mapped = new LinkedHashMap<String, FloatBuffer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FloatBuffer> eldest) {
+            return this.size() > SampleCache.this.maxMapped;
+        }
+    };
+
+    /**
+     * Instantiates a new SampleCache, creating the directory if needed.
+     *
+     * @param dir the cache directory
+     * @throws IOException the io exception
+     */
+    public SampleCache(File dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir.toPath());
+    }
+
+    /**
+     * Hashes a curve graph: the curve, its modulators and ops, and the fields its
+     * values depend on, leaving out the seed, colour, window and the like.
+     * Computing it serializes the graph, so compute it once per curve rather than
+     * once per frame.
+     *
+     * @param crv the curve
+     * @return the key
+     */
+    public static long key(Crv crv) {
+        StringWriter json = new StringWriter();
+        try {
+            CrvWriter writer = new CrvWriter().add(crv);
+            writer.valuesOnly = true;
+            writer.writeJson(json);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json.toString().getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the table of floatArray(resolution) for a curve, computing and storing
+     * it on a miss.
+     *
+     * @param crv        the curve
+     * @param key        the curve's key, from key(crv)
+     * @param resolution the number of samples
+     * @param time       the time the samples belong to
+     * @return a read-only view of the table
+     * @throws IOException the io exception
+     */
+    public FloatBuffer samples(Crv crv, long key, int resolution, double time) throws IOException {
+        return this.samples(crv.id, key, resolution, time, () -> crv.floatArray(resolution));
+    }
+
+    /**
+     * Gets the table of floatArray(resolution) for a curve, computing and storing
+     * it on a miss.
+     *
+     * @param crv        the curve
+     * @param resolution the number of samples
+     * @param time       the time the samples belong to
+     * @return a read-only view of the table
+     * @throws IOException the io exception
+     */
+    public FloatBuffer samples(Crv crv, int resolution, double time) throws IOException {
+        return this.samples(crv, key(crv), resolution, time);
+    }
+
+    /**
+     * Gets a table by key, calling compute on a miss. The table compute returns
+     * must hold resolution values.
+     *
+     * @param id         the Crv id to report metrics against, or 0
+     * @param key        the graph key
+     * @param resolution the number of samples
+     * @param time       the time the samples belong to
+     * @param compute    produces the table on a miss
+     * @return a read-only view of the table
+     * @throws IOException the io exception
+     */
+    public FloatBuffer samples(int id, long key, int resolution, double time, Supplier<float[]> compute) throws IOException {
+        String name = String.format("%016x-%d-%016x.f32", key, resolution, Double.doubleToLongBits(time));
+        FloatBuffer table;
+        synchronized (this.mapped) {
+            table = this.mapped.get(name);
+        }
+        if (table == null) {
+            Path path = new File(this.dir, name).toPath();
+            table = map(path, key, resolution);
+            if (table == null) {
+                if (Metrics.enabled()) Metrics.count(Metric.CACHE_MISSES, id, 1);
+                float[] values = compute.get();
+                if (values.length != resolution) {
+                    throw new IllegalArgumentException("Computed " + values.length + " samples, expected " + resolution);
+                }
+                this.store(path, key, values);
+                table = map(path, key, resolution);
+            } else if (Metrics.enabled()) {
+                Metrics.count(Metric.CACHE_HITS, id, 1);
+            }
+            synchronized (this.mapped) {
+                this.mapped.put(name, table);
+            }
+        } else if (Metrics.enabled()) {
+            Metrics.count(Metric.CACHE_HITS, id, 1);
+        }
+        return table.duplicate();
+    }
+
+    /**
+     * Maps a table, or returns null if it is missing or does not match.
+     */
+    private static FloatBuffer map(Path path, long key, int resolution) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            long size = HEADER_SIZE + 4L * resolution;
+            if (channel.size() != size) {
+                return null;
+            }
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getLong(8) != key || buf.getInt(16) != resolution) {
+                return null;
+            }
+            buf.position(HEADER_SIZE);
+            return buf.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().asReadOnlyBuffer();
+        }
+    }
+
+    private void store(Path path, long key, float[] values) throws IOException {
+        Path tmp = Files.createTempFile(this.dir.toPath(), "table", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocateDirect(HEADER_SIZE + 4 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+                buf.putInt(MAGIC);
+                buf.putInt(VERSION);
+                buf.putLong(key);
+                buf.putInt(values.length);
+                buf.putInt(0);
+                buf.asFloatBuffer().put(values);
+                buf.clear();
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+}
@@ -0,0 +1,578 @@
+package crvs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A long series of values, such as one column of a sensor log, with a min/max
+ * pyramid for plotting it at any resolution. The streaming counterpart of
+ * Ops.timeseries for inputs too large to pass around as a float[].
+ * <p>
+ * Values are ingested in a single pass that also finds the overall minimum and
+ * maximum and builds the pyramid: level l holds the min and max of each run of
+ * FANOUT^l values, about 2/7 of a float per value in all. The min and max over
+ * any range of rows then take O(log n) reads, so a curve sampled at a few
+ * thousand points over hundreds of millions of rows touches only a few values per
+ * point.
+ * <pre>
+ * Series log = Series.readCsv(new File("log.csv"), 2, true);
+ * Crv lo = new Crv(this, log.minOp(width));
+ * Crv hi = new Crv(this, log.maxOp(width));
+ * </pre>
+ * The values themselves stay on the heap when read from CSV, 4 bytes a row, and
+ * are memory-mapped in place when read from a single-column binary file. NaN
+ * values, such as empty CSV fields, are kept as rows but ignored by min and max.
+ */
+public class Series {
+
+    /**
+     * Values per pyramid bucket, at each level. A power of two, 1 << 3.
+     */
+    public static final int FANOUT = 8;
+
+    private static final int HEAP_CHUNK_BITS = 20;
+    private static final int MAPPED_CHUNK_BITS = 28;
+
+    private final FloatBuffer[] chunks;
+    private final int chunkBits;
+    private final int chunkMask;
+    private final long size;
+    private final float min;
+    private final float max;
+    private final float[][] mins;
+    private final float[][] maxs;
+
+    private Series(FloatBuffer[] chunks, int chunkBits, long size, float min, float max, float[][] mins, float[][] maxs) {
+        this.chunks = chunks;
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1 << chunkBits) - 1;
+        this.size = size;
+        this.min = min;
+        this.max = max;
+        this.mins = mins;
+        this.maxs = maxs;
+    }
+
+    /**
+     * Wraps an array, without copying it.
+     *
+     * @param values the values
+     * @return the series
+     */
+    public static Series of(float[] values) {
+        Builder builder = new Builder(false);
+        builder.add(values, 0, values.length);
+        return builder.build(new FloatBuffer[] { FloatBuffer.wrap(values) }, 31);
+    }
+
+    /**
+     * Reads one column of a CSV file, streaming it through a direct buffer.
+     * Fields are separated by commas and rows by LF or CRLF; quoted fields are not
+     * supported. Empty or unparseable fields read as NaN.
+     *
+     * @param file   the file
+     * @param column the zero-based column
+     * @param header whether to skip the first line
+     * @return the series
+     * @throws IOException the io exception
+     */
+    public static Series readCsv(File file, int column, boolean header) throws IOException {
+        Builder builder = new Builder(true);
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+            byte[] field = new byte[64];
+            int fieldLength = 0;
+            int col = 0;
+            boolean skipping = header;
+            boolean lineHasData = false;
+            // the column's value once it has been passed, NaN until then
+            float value = Float.NaN;
+            while (channel.read(buf) > 0) {
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    byte b = buf.get();
+                    if (b == '\n') {
+                        if (!skipping && lineHasData) {
+                            builder.add(col == column ? parse(field, fieldLength) : value);
+                        }
+                        skipping = false;
+                        lineHasData = false;
+                        value = Float.NaN;
+                        col = 0;
+                        fieldLength = 0;
+                    } else if (b == '\r') {
+                        continue;
+                    } else if (skipping) {
+                        continue;
+                    } else {
+                        lineHasData = true;
+                        if (b == ',') {
+                            if (col == column) {
+                                value = parse(field, fieldLength);
+                            }
+                            col++;
+                            fieldLength = 0;
+                        } else if (col == column) {
+                            if (fieldLength == field.length) {
+                                field = Arrays.copyOf(field, field.length * 2);
+                            }
+                            field[fieldLength++] = b;
+                        }
+                    }
+                }
+                buf.clear();
+            }
+            if (!skipping && lineHasData) {
+                builder.add(col == column ? parse(field, fieldLength) : value);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Maps a file of raw 32-bit floats, one value per row, without copying it.
+     *
+     * @param file  the file
+     * @param order the byte order of the file
+     * @return the series
+     * @throws IOException the io exception
+     */
+    public static Series readBinary(File file, ByteOrder order) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            long size = channel.size() / 4;
+            long chunk = 1L << MAPPED_CHUNK_BITS;
+            FloatBuffer[] chunks = new FloatBuffer[(int) ((size + chunk - 1) / chunk)];
+            Builder builder = new Builder(false);
+            float[] block = new float[4096];
+            for (int c = 0; c < chunks.length; c++) {
+                long from = c * chunk;
+                long length = Math.min(chunk, size - from);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, from * 4, length * 4).order(order).asFloatBuffer();
+                FloatBuffer values = chunks[c].duplicate();
+                while (values.hasRemaining()) {
+                    int n = Math.min(block.length, values.remaining());
+                    values.get(block, 0, n);
+                    builder.add(block, 0, n);
+                }
+            }
+            return builder.build(chunks, MAPPED_CHUNK_BITS);
+        }
+    }
+
+    /**
+     * Reads one column of a file of raw 32-bit float records, streaming it
+     * through a direct buffer and keeping the column on the heap.
+     *
+     * @param file    the file
+     * @param order   the byte order of the file
+     * @param columns the floats per record
+     * @param column  the zero-based column
+     * @return the series
+     * @throws IOException the io exception
+     */
+    public static Series readBinary(File file, ByteOrder order, int columns, int column) throws IOException {
+        if (columns == 1) {
+            return readBinary(file, order);
+        }
+        Builder builder = new Builder(true);
+        int record = 4 * columns;
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            ByteBuffer buf = ByteBuffer.allocateDirect((1 << 20) / record * record).order(order);
+            while (channel.read(buf) > 0) {
+                buf.flip();
+                int records = buf.remaining() / record;
+                for (int r = 0; r < records; r++) {
+                    builder.add(buf.getFloat(r * record + 4 * column));
+                }
+                buf.position(records * record);
+                buf.compact();
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parses a decimal float. Short decimals, the common case for logged data,
+     * take Clinger's fast path: a mantissa below 2^24 and a power of ten up to
+     * 10^10 are both exact floats, so one float multiply or divide gives the
+     * correctly rounded result without building a String. Anything else goes
+     * through Float.parseFloat.
+     */
+    static float parse(byte[] field, int length) {
+        int i = 0;
+        while (i < length && field[i] == ' ') i++;
+        while (length > i && field[length - 1] == ' ') length--;
+        if (i == length) {
+            return Float.NaN;
+        }
+        int start = i;
+        boolean negative = field[i] == '-';
+        if (negative || field[i] == '+') i++;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean any = false;
+        for (; i < length; i++) {
+            byte b = field[i];
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (mantissa != 0 || b != '0') digits++;
+                mantissa = mantissa * 10 + (b - '0');
+                if (dot) scale++;
+                if (digits > 18) break;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (i == length && any && mantissa < (1 << 24) && scale <= 10) {
+            float value = scale == 0 ? mantissa : mantissa / POWERS[scale];
+            return negative ? -value : value;
+        }
+        try {
+            return Float.parseFloat(new String(field, start, length - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    private static final float[] POWERS = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+    /**
+     * Gets the number of values.
+     *
+     * @return the size
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the smallest value, ignoring NaN.
+     *
+     * @return the minimum
+     */
+    public float min() {
+        return this.min;
+    }
+
+    /**
+     * Gets the largest value, ignoring NaN.
+     *
+     * @return the maximum
+     */
+    public float max() {
+        return this.max;
+    }
+
+    /**
+     * Gets value i.
+     *
+     * @param i the row
+     * @return the value
+     */
+    public float get(long i) {
+        return this.chunks[(int) (i >>> this.chunkBits)].get((int) (i & this.chunkMask));
+    }
+
+    /**
+     * Gets the smallest value in rows from inclusive to to exclusive, ignoring NaN.
+     *
+     * @param from the first row
+     * @param to   the row after the last
+     * @return the minimum, or NaN for an empty or all-NaN range
+     */
+    public float min(long from, long to) {
+        return this.range(from, to, true);
+    }
+
+    /**
+     * Gets the largest value in rows from inclusive to to exclusive, ignoring NaN.
+     *
+     * @param from the first row
+     * @param to   the row after the last
+     * @return the maximum, or NaN for an empty or all-NaN range
+     */
+    public float max(long from, long to) {
+        return this.range(from, to, false);
+    }
+
+    private float range(long from, long to, boolean lowest) {
+        from = Math.max(0, from);
+        to = Math.min(this.size, to);
+        float result = Float.NaN;
+        int level = 0;
+        // scan the unaligned ends at each level and climb with what is left in the middle
+        while (from < to) {
+            if (level == this.mins.length) {
+                for (long i = from; i < to; i++) {
+                    result = pick(result, this.value(level, i, lowest), lowest);
+                }
+                break;
+            }
+            while (from < to && from % FANOUT != 0) {
+                result = pick(result, this.value(level, from++, lowest), lowest);
+            }
+            while (from < to && to % FANOUT != 0) {
+                result = pick(result, this.value(level, --to, lowest), lowest);
+            }
+            from /= FANOUT;
+            to /= FANOUT;
+            level++;
+        }
+        return result;
+    }
+
+    private float value(int level, long i, boolean lowest) {
+        if (level == 0) {
+            return this.get(i);
+        }
+        return (lowest ? this.mins : this.maxs)[level - 1][(int) i];
+    }
+
+    private static float pick(float a, float b, boolean lowest) {
+        // comparisons are false for NaN, so a NaN never replaces a number
+        if (a != a) return b;
+        return (lowest ? b < a : b > a) ? b : a;
+    }
+
+    /**
+     * Normalizes a value to 0..1 over the series range, as Ops.timeseries does.
+     *
+     * @param v the value
+     * @return the normalized value
+     */
+    public float normalize(float v) {
+        float range = this.max - this.min;
+        return range > 0 ? (float) (((double) v - this.min) / range) : 0f;
+    }
+
+    /**
+     * Returns a FloatOp reading the series at full resolution: position 0 to 1 is
+     * interpolated linearly across every row and normalized to 0..1, like
+     * Ops.timeseries.
+     *
+     * @return the op
+     */
+    public FloatOp op() {
+        long last = this.size - 1;
+        return pos -> {
+            if (last <= 0) {
+                return last < 0 ? 0f : this.normalize(this.get(0));
+            }
+            double x = Math.max(0.0, Math.min(1.0, pos)) * last;
+            long i = Math.min((long) x, last - 1);
+            float fraction = (float) (x - i);
+            float a = this.get(i);
+            return this.normalize(a + (this.get(i + 1) - a) * fraction);
+        };
+    }
+
+    /**
+     * Returns a FloatOp giving the normalized minimum of the rows under each of
+     * resolution evenly spaced samples, so that sampling a Crv at that resolution
+     * draws the lower envelope of every row.
+     *
+     * @param resolution the number of samples the curve will take
+     * @return the op
+     */
+    public FloatOp minOp(int resolution) {
+        return this.envelope(resolution, true);
+    }
+
+    /**
+     * Returns a FloatOp giving the normalized maximum of the rows under each of
+     * resolution evenly spaced samples, the upper counterpart of minOp.
+     *
+     * @param resolution the number of samples the curve will take
+     * @return the op
+     */
+    public FloatOp maxOp(int resolution) {
+        return this.envelope(resolution, false);
+    }
+
+    private FloatOp envelope(int resolution, boolean lowest) {
+        double rows = (double) this.size / resolution;
+        return pos -> {
+            long from = (long) (Math.max(0.0, Math.min(1.0, pos)) * this.size);
+            long to = Math.max(from + 1, (long) Math.ceil(from + rows));
+            if (from >= this.size) {
+                from = this.size - 1;
+                to = this.size;
+            }
+            float v = this.range(from, to, lowest);
+            return v != v ? v : this.normalize(v);
+        };
+    }
+
+    /**
+     * Accumulates values and their pyramid in a single pass.
+     */
+    static final class Builder {
+
+        /**
+         * Levels enough for any long count.
+         */
+        private static final int LEVELS = 22;
+
+        final List<float[]> stored;
+        float[] chunk;
+        int inChunk;
+        long size;
+
+        // per level above 0: finished buckets, how many, and the bucket being filled
+        final float[][] mins = new float[LEVELS][16];
+        final float[][] maxs = new float[LEVELS][16];
+        final int[] lengths = new int[LEVELS];
+        final float[] openMin = new float[LEVELS];
+        final float[] openMax = new float[LEVELS];
+
+        Builder(boolean store) {
+            this.stored = store ? new ArrayList<float[]>() : null;
+            Arrays.fill(this.openMin, Float.NaN);
+            Arrays.fill(this.openMax, Float.NaN);
+        }
+
+        void add(float v) {
+            if (this.stored != null) {
+                if (this.chunk == null || this.inChunk == this.chunk.length) {
+                    this.chunk = new float[1 << HEAP_CHUNK_BITS];
+                    this.stored.add(this.chunk);
+                    this.inChunk = 0;
+                }
+                this.chunk[this.inChunk++] = v;
+            }
+            // each test is also true while the bound is still NaN
+            if (v == v) {
+                if (!(v >= this.openMin[0])) this.openMin[0] = v;
+                if (!(v <= this.openMax[0])) this.openMax[0] = v;
+            }
+            if ((++this.size & (FANOUT - 1)) == 0) {
+                this.carry(0, this.size / FANOUT);
+            }
+        }
+
+        /**
+         * Adds n values from offset, a bucket at a time, without storing them.
+         */
+        void add(float[] values, int offset, int n) {
+            int end = offset + n;
+            for (int i = offset; i < end; ) {
+                int take = (int) Math.min(end - i, FANOUT - (this.size & (FANOUT - 1)));
+                // Math.min and max compile without branches, which matters for noisy
+                // data, but let NaN through; redo the rare bucket that holds one
+                float lo = Float.POSITIVE_INFINITY;
+                float hi = Float.NEGATIVE_INFINITY;
+                boolean nan = false;
+                int k = i + take;
+                for (int j = i; j < k; j++) {
+                    float v = values[j];
+                    lo = Math.min(lo, v);
+                    hi = Math.max(hi, v);
+                    nan |= v != v;
+                }
+                if (nan) {
+                    lo = Float.POSITIVE_INFINITY;
+                    hi = Float.NEGATIVE_INFINITY;
+                    for (int j = i; j < k; j++) {
+                        float v = values[j];
+                        if (v == v) {
+                            lo = Math.min(lo, v);
+                            hi = Math.max(hi, v);
+                        }
+                    }
+                }
+                if (lo <= hi) {
+                    this.openMin[0] = pick(this.openMin[0], lo, true);
+                    this.openMax[0] = pick(this.openMax[0], hi, false);
+                }
+                i = k;
+                this.size += take;
+                if ((this.size & (FANOUT - 1)) == 0) {
+                    this.carry(0, this.size / FANOUT);
+                }
+            }
+        }
+
+        /**
+         * Closes the full bucket at level, whose parent level now holds count
+         * values, and carries it up.
+         */
+        private void carry(int level, long count) {
+            while (true) {
+                this.close(level);
+                this.merge(level);
+                if ((count & (FANOUT - 1)) != 0) {
+                    return;
+                }
+                level++;
+                count >>>= 3;
+            }
+        }
+
+        private void close(int level) {
+            int length = this.lengths[level];
+            if (length == this.mins[level].length) {
+                this.mins[level] = Arrays.copyOf(this.mins[level], length * 2);
+                this.maxs[level] = Arrays.copyOf(this.maxs[level], length * 2);
+            }
+            this.mins[level][length] = this.openMin[level];
+            this.maxs[level][length] = this.openMax[level];
+            this.lengths[level] = length + 1;
+        }
+
+        private void merge(int level) {
+            this.openMin[level + 1] = pick(this.openMin[level + 1], this.openMin[level], true);
+            this.openMax[level + 1] = pick(this.openMax[level + 1], this.openMax[level], false);
+            this.openMin[level] = Float.NaN;
+            this.openMax[level] = Float.NaN;
+        }
+
+        Series build() {
+            FloatBuffer[] chunks = new FloatBuffer[this.stored.size()];
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = FloatBuffer.wrap(this.stored.get(c));
+            }
+            return this.build(chunks, HEAP_CHUNK_BITS);
+        }
+
+        Series build(FloatBuffer[] chunks, int chunkBits) {
+            // close the partial buckets bottom up, merging each into its parent, and
+            // stop at the first level of a single bucket
+            long count = this.size;
+            boolean merged = false;
+            int levels = 0;
+            for (; count > 1; levels++) {
+                if (count % FANOUT != 0 || merged) {
+                    this.close(levels);
+                    this.merge(levels);
+                    merged = true;
+                } else {
+                    merged = false;
+                }
+                count = (count + FANOUT - 1) / FANOUT;
+            }
+            float[][] lo = new float[levels][];
+            float[][] hi = new float[levels][];
+            for (int level = 0; level < levels; level++) {
+                lo[level] = Arrays.copyOf(this.mins[level], this.lengths[level]);
+                hi[level] = Arrays.copyOf(this.maxs[level], this.lengths[level]);
+            }
+            // the overall range is that of the single bucket the levels end in
+            float min = this.openMin[levels];
+            float max = this.openMax[levels];
+            return new Series(chunks, chunkBits, this.size, min, max, lo, hi);
+        }
+    }
+
+}
@@ -0,0 +1,283 @@
+package crvs;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Polyline and polygon simplification on primitive buffers of interleaved x, y
+ * pairs. Curves sampled at window resolution are mostly runs of nearly collinear
+ * points; dropping those before shape(), export or meshing cuts vertex counts by
+ * an order of magnitude or more without a visible change.
+ * <ul>
+ * <li>RDP (Ramer-Douglas-Peucker) keeps every point needed so that no dropped
+ * point lies further than tolerance from the simplified line. It keeps corners
+ * sharp and is the one to use for plotter output.</li>
+ * <li>VISVALINGAM (Visvalingam-Whyatt) repeatedly drops the point whose triangle
+ * with its neighbours has the smallest area, until every triangle left has an
+ * area of at least tolerance squared. It trims small wiggles evenly and tends
+ * to look smoother at high reductions.</li>
+ * </ul>
+ * Both keep the first and last points of an open line; a closed ring keeps at
+ * least three points. The output may be the input buffer.
+ */
+public final class Simplify {
+
+    /**
+     * The enum Method.
+     */
+    public enum Method {
+        /**
+         * Ramer-Douglas-Peucker, tolerance is a distance.
+         */
+        RDP,
+        /**
+         * Visvalingam-Whyatt, tolerance squared is an area.
+         */
+        VISVALINGAM
+    }
+
+    private Simplify() {
+    }
+
+    /**
+     * Simplifies a line or ring.
+     *
+     * @param method    the method
+     * @param xy        the points, interleaved
+     * @param count     the number of points
+     * @param tolerance the tolerance
+     * @param closed    whether the last point joins the first
+     * @param out       the buffer to write into, at least count * 2 long; may be xy
+     * @return the number of points written
+     */
+    public static int simplify(Method method, float[] xy, int count, float tolerance, boolean closed, float[] out) {
+        if (xy.length < count * 2 || out.length < count * 2) {
+            throw new IllegalArgumentException("Buffers must hold " + count + " points");
+        }
+        int min = closed ? 3 : 2;
+        if (count <= min) {
+            System.arraycopy(xy, 0, out, 0, count * 2);
+            return count;
+        }
+        boolean[] keep = method == Method.RDP
+                ? rdp(xy, count, tolerance, closed)
+                : visvalingam(xy, count, tolerance * tolerance, closed);
+        int written = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                // written never passes i, so out may be xy
+                out[written * 2] = xy[i * 2];
+                out[written * 2 + 1] = xy[i * 2 + 1];
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Simplifies a line or ring into a new buffer.
+     *
+     * @param method    the method
+     * @param xy        the points, interleaved
+     * @param tolerance the tolerance
+     * @param closed    whether the last point joins the first
+     * @return the simplified points, interleaved
+     */
+    public static float[] simplify(Method method, float[] xy, float tolerance, boolean closed) {
+        float[] out = new float[xy.length - xy.length % 2];
+        int written = simplify(method, xy, out.length / 2, tolerance, closed, out);
+        return Arrays.copyOf(out, written * 2);
+    }
+
+    /**
+     * Simplifies a batch of lines or rings, each into a new buffer.
+     * <p>
+     * With parallel set the batch is split over the common fork-join pool; each
+     * line is simplified on one thread.
+     *
+     * @param method    the method
+     * @param xys       the lines, each interleaved
+     * @param tolerance the tolerance
+     * @param closed    whether each line is a ring
+     * @param parallel  whether to simplify lines in parallel
+     * @return the simplified lines, in order
+     */
+    public static float[][] simplify(Method method, float[][] xys, float tolerance, boolean closed, boolean parallel) {
+        float[][] out = new float[xys.length][];
+        IntStream indices = IntStream.range(0, xys.length);
+        if (parallel && xys.length > 1) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> out[i] = simplify(method, xys[i], tolerance, closed));
+        return out;
+    }
+
+    /**
+     * Marks the points RDP keeps, splitting spans with an explicit stack so long
+     * lines cannot overflow the call stack. A ring is split at its first point and
+     * the point furthest from it, and each half simplified as a line; if that
+     * leaves only those two, the point furthest from the chord of each half is
+     * kept too.
+     */
+    private static boolean[] rdp(float[] xy, int count, float tolerance, boolean closed) {
+        boolean[] keep = new boolean[count];
+        int[] stack = new int[64];
+        int top = 0;
+        int half = 0;
+        keep[0] = true;
+        if (closed) {
+            int far = 0;
+            double best = -1;
+            for (int i = 1; i < count; i++) {
+                double dx = xy[i * 2] - xy[0];
+                double dy = xy[i * 2 + 1] - xy[1];
+                double d = dx * dx + dy * dy;
+                if (d > best) {
+                    best = d;
+                    far = i;
+                }
+            }
+            keep[far] = true;
+            half = far;
+            stack[top++] = 0;
+            stack[top++] = far;
+            // the second half ends back on the first point, indexed as count
+            stack[top++] = far;
+            stack[top++] = count;
+        } else {
+            keep[count - 1] = true;
+            stack[top++] = 0;
+            stack[top++] = count - 1;
+        }
+        double limit = (double) tolerance * tolerance;
+        while (top > 0) {
+            int b = stack[--top];
+            int a = stack[--top];
+            int far = farthest(xy, count, a, b, limit);
+            if (far >= 0) {
+                keep[far] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = a;
+                stack[top++] = far;
+                stack[top++] = far;
+                stack[top++] = b;
+            }
+        }
+        if (closed) {
+            int kept = 0;
+            for (boolean k : keep) {
+                if (k) {
+                    kept++;
+                }
+            }
+            if (kept < 3) {
+                // both halves fit their chord, which would leave a two-point ring;
+                // keep the farthest point of each half whatever the tolerance
+                int first = farthest(xy, count, 0, half, -1);
+                int second = farthest(xy, count, half, count, -1);
+                if (first >= 0) {
+                    keep[first] = true;
+                }
+                if (second >= 0) {
+                    keep[second] = true;
+                }
+            }
+        }
+        return keep;
+    }
+
+    /**
+     * Finds the point strictly between a and b furthest from the line through
+     * them, further than the square root of limit, or -1. b may be count, standing
+     * for the first point again.
+     */
+    private static int farthest(float[] xy, int count, int a, int b, double limit) {
+        if (b - a < 2) {
+            return -1;
+        }
+        int bi = b % count;
+        double ax = xy[a * 2], ay = xy[a * 2 + 1];
+        double dx = xy[bi * 2] - ax, dy = xy[bi * 2 + 1] - ay;
+        double length2 = dx * dx + dy * dy;
+        int far = -1;
+        double best = limit;
+        for (int i = a + 1; i < b; i++) {
+            double px = xy[i * 2] - ax, py = xy[i * 2 + 1] - ay;
+            double d;
+            if (length2 > 0) {
+                double cross = dx * py - dy * px;
+                d = cross * cross / length2;
+            } else {
+                d = px * px + py * py;
+            }
+            if (d > best) {
+                best = d;
+                far = i;
+            }
+        }
+        return far;
+    }
+
+    /**
+     * Marks the points Visvalingam-Whyatt keeps, with the candidates in an indexed
+     * min-heap by triangle area so a removal updates its neighbours in place.
+     */
+    private static boolean[] visvalingam(float[] xy, int count, double minArea, boolean closed) {
+        boolean[] keep = new boolean[count];
+        Arrays.fill(keep, true);
+        int[] prev = new int[count];
+        int[] next = new int[count];
+        for (int i = 0; i < count; i++) {
+            prev[i] = i - 1;
+            next[i] = i + 1;
+        }
+        if (closed) {
+            prev[0] = count - 1;
+            next[count - 1] = 0;
+        }
+        IndexedHeap heap = new IndexedHeap(count);
+        for (int i = 0; i < count; i++) {
+            if (prev[i] >= 0 && next[i] < count) {
+                heap.append(i, area(xy, prev[i], i, next[i]));
+            }
+        }
+        heap.heapify();
+        int remaining = count;
+        int min = closed ? 3 : 2;
+        while (!heap.isEmpty() && remaining > min) {
+            int i = heap.peek();
+            if (heap.key(i) >= minArea) {
+                break;
+            }
+            heap.poll();
+            keep[i] = false;
+            remaining--;
+            int p = prev[i];
+            int n = next[i];
+            next[p] = n;
+            prev[n] = p;
+            update(xy, prev, next, heap, p);
+            update(xy, prev, next, heap, n);
+        }
+        return keep;
+    }
+
+    /**
+     * Recomputes the area of point j after a neighbour was removed.
+     */
+    private static void update(float[] xy, int[] prev, int[] next, IndexedHeap heap, int j) {
+        if (heap.contains(j)) {
+            heap.update(j, area(xy, prev[j], j, next[j]));
+        }
+    }
+
+    private static double area(float[] xy, int a, int b, int c) {
+        double abx = xy[b * 2] - xy[a * 2], aby = xy[b * 2 + 1] - xy[a * 2 + 1];
+        double acx = xy[c * 2] - xy[a * 2], acy = xy[c * 2 + 1] - xy[a * 2 + 1];
+        double area = Math.abs(abx * acy - aby * acx) / 2;
+        return area == area ? area : Double.POSITIVE_INFINITY;
+    }
+
+}
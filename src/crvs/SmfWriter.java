@@ -0,0 +1,137 @@
+package crvs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The type Smf writer. Streams sorted MdvntArrays to disk as a type 1 Standard
+ * MIDI File, one MTrk chunk per array, through a single reusable buffer.
+ * Running status is used to keep the file small. Gaps longer than the largest
+ * delta time a file can hold are bridged with empty text events.
+ */
+public class SmfWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The largest delta time a variable-length quantity may hold, four bytes.
+     */
+    static final long MAX_DELTA = 0x0FFFFFFF;
+
+    /**
+     * Write.
+     *
+     * @param file       the file
+     * @param resolution the ticks per quarter note
+     * @param tracks     the tracks, each already sorted
+     * @throws IOException the io exception
+     */
+    public static void write(File file, int resolution, MdvntArray[] tracks) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            buf.putInt(0x4D546864); // MThd
+            buf.putInt(6);
+            buf.putShort((short) 1);
+            buf.putShort((short) tracks.length);
+            buf.putShort((short) resolution);
+
+            for (MdvntArray track : tracks) {
+                buf.putInt(0x4D54726B); // MTrk
+                buf.putInt(chunkLength(track));
+                long last = 0;
+                int running = -1;
+                for (int i = 0; i < track.length; i++) {
+                    if (buf.remaining() < 16) flush(channel, buf);
+                    long tick = track.ticks[i];
+                    long delta = tick - last;
+                    for (long gap = fillers(delta); gap > 0; gap--) {
+                        if (buf.remaining() < 16) flush(channel, buf);
+                        putVarLen(buf, MAX_DELTA);
+                        buf.put((byte) 0xFF).put((byte) 0x01).put((byte) 0); // empty text
+                        delta -= MAX_DELTA;
+                        running = -1; // meta events cancel running status
+                    }
+                    if (buf.remaining() < 16) flush(channel, buf);
+                    putVarLen(buf, delta);
+                    last = tick;
+                    int status = track.status[i] & 0xFF;
+                    if (status != running) {
+                        buf.put((byte) status);
+                        running = status;
+                    }
+                    buf.put(track.data1[i]);
+                    if (hasSecondByte(status)) buf.put(track.data2[i]);
+                }
+                if (buf.remaining() < 16) flush(channel, buf);
+                buf.put((byte) 0).put((byte) 0xFF).put((byte) 0x2F).put((byte) 0); // end of track
+            }
+            flush(channel, buf);
+        }
+    }
+
+    private static int chunkLength(MdvntArray track) {
+        long bytes = 4; // end of track
+        long last = 0;
+        int running = -1;
+        for (int i = 0; i < track.length; i++) {
+            long delta = track.ticks[i] - last;
+            long gaps = fillers(delta);
+            if (gaps > 0) {
+                bytes += gaps * (varLenSize(MAX_DELTA) + 3);
+                delta -= gaps * MAX_DELTA;
+                running = -1;
+            }
+            bytes += varLenSize(delta);
+            last = track.ticks[i];
+            int status = track.status[i] & 0xFF;
+            if (status != running) {
+                bytes++;
+                running = status;
+            }
+            bytes += hasSecondByte(status) ? 2 : 1;
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Track too large for a MIDI chunk: " + bytes + " bytes");
+        }
+        return (int) bytes;
+    }
+
+    private static boolean hasSecondByte(int status) {
+        int command = status & 0xF0;
+        return command != 0xC0 && command != 0xD0;
+    }
+
+    /**
+     * Number of empty events needed in front of an event so that its own delta
+     * time fits in MAX_DELTA.
+     */
+    private static long fillers(long delta) {
+        return delta > MAX_DELTA ? (delta - 1) / MAX_DELTA : 0;
+    }
+
+    private static int varLenSize(long value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) size++;
+        return size;
+    }
+
+    private static void putVarLen(ByteBuffer buf, long value) {
+        int shift = (varLenSize(value) - 1) * 7;
+        for (; shift > 0; shift -= 7) {
+            buf.put((byte) (((value >>> shift) & 0x7F) | 0x80));
+        }
+        buf.put((byte) (value & 0x7F));
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        buf.clear();
+    }
+
+}
@@ -4,6 +4,7 @@ import javax.sound.midi.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.stream.IntStream;
 
 public class Sqnc {
     protected Sequence sequence;
@@ -16,18 +17,71 @@ public class Sqnc {
         this.sequence = new Sequence(Sequence.PPQ, 4);
     }
 
-    public void createTrack(int channel, Crv pitch, Crv velocity, NR rhythm) {
+    public void createTrack(int channel, Crv pitch, Crv velocity, Rhythm rhythm) {
        Trk trk = new Trk(this, channel, pitch, velocity, rhythm);
        this.trks.add(trk);
        System.out.println("Created track " + this.trks.size());
     }
 
     public void render() throws IOException, InvalidMidiDataException {
+        JfrEvents.Render event = new JfrEvents.Render();
+        event.begin();
         for (Trk trk : this.trks) {
             System.out.println("Rendering track " + trk);
             trk.render();
         }
         MidiSystem.write(this.sequence, 1, new File("output.mid"));
+        if (event.shouldCommit()) {
+            int count = 0;
+            for (Trk trk : this.trks) {
+                count += trk.track.size();
+            }
+            this.commit(event, "Sqnc.render", count);
+        }
+    }
+
+    /**
+     * Renders every track into primitive event arrays, in parallel, and streams
+     * them straight to a Standard MIDI File without building a javax.sound.midi
+     * Sequence.
+     * <p>
+     * Tracks are evaluated on the common fork-join pool, so their curves and
+     * rhythms must not be shared between tracks. Curves built on Ops that call back
+     * into the PApplet (noise, random) share its state; render those with
+     * parallel set to false.
+     */
+    public void write(File file, boolean parallel) throws IOException {
+        MdvntArray[] events = new MdvntArray[this.trks.size()];
+        IntStream indices = IntStream.range(0, events.length);
+        if (parallel) {
+            indices = indices.parallel();
+        }
+        JfrEvents.Render event = new JfrEvents.Render();
+        event.begin();
+        indices.forEach(i -> {
+            Trk trk = this.trks.get(i);
+            events[i] = trk.renderInto(new MdvntArray(trk.capacityHint()));
+        });
+        SmfWriter.write(file, this.sequence.getResolution(), events);
+        if (event.shouldCommit()) {
+            int count = 0;
+            for (MdvntArray trackEvents : events) {
+                count += trackEvents.length();
+            }
+            this.commit(event, parallel ? "Sqnc.write parallel" : "Sqnc.write", count);
+        }
+    }
+
+    public void write(File file) throws IOException {
+        this.write(file, true);
+    }
+
+    private void commit(JfrEvents.Render event, String call, int count) {
+        event.call = call;
+        event.channel = -1;
+        event.ticks = this.songLengthTicks;
+        event.events = count;
+        event.commit();
     }
 
 }
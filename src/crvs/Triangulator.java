@@ -0,0 +1,156 @@
+package crvs;
+
+/**
+ * The type Triangulator.
+ * <p>
+ * Splits simple polygons into triangles. Triangles are returned as a flat index
+ * buffer holding three vertex indices per triangle, so a polygon with n vertices
+ * always yields n - 2 triangles. Convex polygons are fanned from their first
+ * vertex, everything else goes through ear-clipping.
+ */
+public class Triangulator {
+
+    /**
+     * Triangulates the first count vertices of a polygon.
+     *
+     * @param coords the polygon coordinates, one {x, y} pair per vertex
+     * @param count  the number of vertices in use
+     * @return the triangle index buffer, empty if count is less than 3
+     */
+    public static int[] triangulate(float[][] coords, int count) {
+        if (count < 3) {
+            return new int[0];
+        }
+        if (isConvex(coords, count)) {
+            return fan(count);
+        }
+        return earClip(coords, count);
+    }
+
+    /**
+     * Twice the signed area of the polygon, positive for counter-clockwise winding
+     * in a y-up coordinate system.
+     *
+     * @param coords the polygon coordinates
+     * @param count  the number of vertices in use
+     * @return twice the signed area
+     */
+    public static float signedArea2(float[][] coords, int count) {
+        double sum = 0;
+        for (int i = 0, j = count - 1; i < count; j = i++) {
+            sum += (double) coords[j][0] * coords[i][1] - (double) coords[i][0] * coords[j][1];
+        }
+        return (float) sum;
+    }
+
+    /**
+     * Is convex boolean. Collinear vertices are tolerated.
+     *
+     * @param coords the polygon coordinates
+     * @param count  the number of vertices in use
+     * @return true if every turn of the polygon has the same direction
+     */
+    public static boolean isConvex(float[][] coords, int count) {
+        int sign = 0;
+        for (int i = 0; i < count; i++) {
+            float[] a = coords[i];
+            float[] b = coords[(i + 1) % count];
+            float[] c = coords[(i + 2) % count];
+            float cross = cross(a[0], a[1], b[0], b[1], c[0], c[1]);
+            if (cross == 0) continue;
+            int s = cross > 0 ? 1 : -1;
+            if (sign == 0) {
+                sign = s;
+            } else if (s != sign) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fan int [ ].
+     *
+     * @param count the number of vertices
+     * @return the triangle index buffer of a fan around vertex 0
+     */
+    public static int[] fan(int count) {
+        int[] tris = new int[Math.max(0, count - 2) * 3];
+        for (int i = 1, t = 0; i < count - 1; i++) {
+            tris[t++] = 0;
+            tris[t++] = i;
+            tris[t++] = i + 1;
+        }
+        return tris;
+    }
+
+    /**
+     * Ear clip int [ ].
+     * <p>
+     * Works for either winding. Degenerate or self-intersecting input never stalls:
+     * when no ear can be found the current vertex is clipped anyway.
+     *
+     * @param coords the polygon coordinates
+     * @param count  the number of vertices in use
+     * @return the triangle index buffer
+     */
+    public static int[] earClip(float[][] coords, int count) {
+        int[] tris = new int[(count - 2) * 3];
+        int[] prev = new int[count];
+        int[] next = new int[count];
+        for (int i = 0; i < count; i++) {
+            prev[i] = (i + count - 1) % count;
+            next[i] = (i + 1) % count;
+        }
+        float winding = signedArea2(coords, count) >= 0 ? 1f : -1f;
+
+        int t = 0;
+        int remaining = count;
+        int i = 0;
+        int misses = 0;
+        while (remaining > 3) {
+            int a = prev[i];
+            int c = next[i];
+            if (misses >= remaining || isEar(coords, next, a, i, c, winding)) {
+                tris[t++] = a;
+                tris[t++] = i;
+                tris[t++] = c;
+                next[a] = c;
+                prev[c] = a;
+                remaining--;
+                misses = 0;
+                i = c;
+            } else {
+                misses++;
+                i = c;
+            }
+        }
+        tris[t++] = prev[i];
+        tris[t++] = i;
+        tris[t] = next[i];
+        return tris;
+    }
+
+    private static boolean isEar(float[][] coords, int[] next, int a, int b, int c, float winding) {
+        float ax = coords[a][0], ay = coords[a][1];
+        float bx = coords[b][0], by = coords[b][1];
+        float cx = coords[c][0], cy = coords[c][1];
+        if (cross(ax, ay, bx, by, cx, cy) * winding <= 0) {
+            return false;
+        }
+        for (int p = next[c]; p != a; p = next[p]) {
+            float px = coords[p][0], py = coords[p][1];
+            if (cross(ax, ay, bx, by, px, py) * winding >= 0
+                    && cross(bx, by, cx, cy, px, py) * winding >= 0
+                    && cross(cx, cy, ax, ay, px, py) * winding >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float cross(float ax, float ay, float bx, float by, float cx, float cy) {
+        return (bx - ax) * (cy - by) - (by - ay) * (cx - bx);
+    }
+
+}
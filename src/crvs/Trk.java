@@ -15,11 +15,11 @@ public class Trk {
     public int channel;
     public Crv pitch;
     public Crv velocity;
-    public NR rhythm;
+    public Rhythm rhythm;
     public Map<Integer, Crv> cntrls = new HashMap<Integer, Crv>();
 
 
-    public Trk(Sqnc sqnc, int channel, Crv pitch, Crv velocity, NR rhythm) {
+    public Trk(Sqnc sqnc, int channel, Crv pitch, Crv velocity, Rhythm rhythm) {
         this.sqnc = sqnc;
         this.track = sqnc.sequence.createTrack();
         this.channel = channel;
@@ -33,11 +33,14 @@ public class Trk {
     }
 
     public void render() throws InvalidMidiDataException {
+        JfrEvents.Render renderEvent = new JfrEvents.Render();
+        renderEvent.begin();
+        int before = this.track.size();
         for (int tick = 0; tick < this.sqnc.songLengthTicks; tick++) {
-            float x = (float) (tick % 32) / 31;
+            double x = this.notePos(tick);
             if (this.rhythm.next()) {
-                float pitchValue = this.pitch.yAt(x);
-                float velocityValue = this.velocity.yAt(x);
+                float pitchValue = (float) this.pitch.yAt(x);
+                float velocityValue = (float) this.velocity.yAt(x);
                 PVector vector = new PVector(pitchValue, velocityValue);
                 Mdvnt event = new Mdvnt(this, vector, ShortMessage.NOTE_ON, tick);
                 System.out.println(event);
@@ -45,17 +48,106 @@ public class Trk {
             }
             this.renderCntrlsAtTick(tick);
         }
+        this.commit(renderEvent, "Trk.render", this.track.size() - before);
     }
 
     public void renderCntrlsAtTick(int tick) throws InvalidMidiDataException {
         for (Map.Entry<Integer, Crv> entry : cntrls.entrySet()) {
             int controller = entry.getKey();
             Crv crv = entry.getValue();
-            float value = crv.yAt((float) tick / this.sqnc.songLengthTicks - 1);
+            float value = (float) crv.yAt(this.cntrlPos(tick));
             PVector vector = new PVector(controller, value);
             Mdvnt event = new Mdvnt(this, vector, ShortMessage.CONTROL_CHANGE, tick);
             event.render();
         }
     }
 
+    /**
+     * Renders the whole track into primitive event arrays, without the per-event
+     * PVector, Mdvnt, ShortMessage and MidiEvent of render(). The rhythm is reset
+     * first so repeated renders are identical.
+     */
+    public MdvntArray renderInto(MdvntArray events) {
+        long length = this.sqnc.songLengthTicks;
+        long noteLength = this.noteLength();
+        int[] controllers = new int[this.cntrls.size()];
+        Crv[] controllerCrvs = new Crv[controllers.length];
+        int c = 0;
+        for (Map.Entry<Integer, Crv> entry : this.cntrls.entrySet()) {
+            controllers[c] = entry.getKey();
+            controllerCrvs[c++] = entry.getValue();
+        }
+
+        JfrEvents.Render event = new JfrEvents.Render();
+        event.begin();
+        int before = events.length();
+        long notes = 0;
+        this.rhythm.reset();
+        for (long tick = 0; tick < length; tick++) {
+            if (this.rhythm.next()) {
+                notes++;
+                double x = this.notePos(tick);
+                int pitchValue = (int) this.pitch.yAt(x);
+                int velocityValue = (int) this.velocity.yAt(x);
+                events.add(tick, ShortMessage.NOTE_ON, this.channel, pitchValue, velocityValue);
+                events.add(tick + noteLength, ShortMessage.NOTE_OFF, this.channel, pitchValue, 0);
+            }
+            double cntrlPos = this.cntrlPos(tick);
+            for (int i = 0; i < controllers.length; i++) {
+                int value = (int) controllerCrvs[i].yAt(cntrlPos);
+                events.add(tick, ShortMessage.CONTROL_CHANGE, this.channel, controllers[i], value);
+            }
+        }
+        events.sort();
+        long emitted = events.length() - before;
+        Metrics.count(Metric.MIDI_EVENTS, 0, emitted);
+        // render() wraps every note-on and controller value in a PVector
+        Metrics.count(Metric.PVECTORS_AVOIDED, 0, emitted - notes);
+        this.commit(event, "Trk.renderInto", (int) emitted);
+        return events;
+    }
+
+    /**
+     * Initial capacity for renderInto. Controllers emit one event per tick each,
+     * so that part is known up front; notes depend on the rhythm and are left
+     * to the array's growth. Capped so a long song does not reserve its whole
+     * length before the first event.
+     */
+    int capacityHint() {
+        long controllerEvents = (long) this.cntrls.size() * this.sqnc.songLengthTicks;
+        return (int) Math.min(controllerEvents + 64, 1 << 20);
+    }
+
+    private void commit(JfrEvents.Render event, String call, int count) {
+        if (event.shouldCommit()) {
+            event.call = call;
+            event.channel = this.channel;
+            event.ticks = this.sqnc.songLengthTicks;
+            event.events = count;
+            event.commit();
+        }
+    }
+
+    /**
+     * Position at which the pitch and velocity curves are read for a tick.
+     */
+    public double notePos(long tick) {
+        return (double) (tick % 32) / 31;
+    }
+
+    /**
+     * Position at which the controller curves are read for a tick. Computed in
+     * double so long songs keep a distinct position for every tick.
+     */
+    public double cntrlPos(long tick) {
+        return (double) tick / this.sqnc.songLengthTicks - 1;
+    }
+
+    /**
+     * Length of a rendered note in ticks.
+     */
+    public long noteLength() {
+        return this.sqnc.sequence.getResolution() / 4;
+    }
+
 }
@@ -0,0 +1,115 @@
+package crvs;
+
+import java.util.Arrays;
+
+/**
+ * One sound source for Audio: a Crv played as a single-cycle waveform at a
+ * frequency, optionally shaped by a second Crv as an amplitude envelope.
+ * <p>
+ * The waveform is read at frac(frame * frequency / sampleRate) through the
+ * curve's double-precision path, and its unipolar output is mapped to -1..1.
+ * The envelope is read from 0 to 1 across its duration and is silent outside
+ * it. Each sample depends only on its frame index, so any block of a voice can
+ * be rendered independently of the others.
+ */
+public class Voice {
+
+    /**
+     * The waveform, one cycle per position 0..1. Null for a constant 1, which
+     * turns the voice into a plain envelope, e.g. for a control signal.
+     */
+    public Crv crv;
+
+    /**
+     * Waveform frequency in Hz.
+     */
+    public double frequency;
+
+    /**
+     * Amplitude envelope, read over [start, start + duration). Null for none.
+     */
+    public Crv envelope;
+
+    /**
+     * Envelope start in seconds.
+     */
+    public double start;
+
+    /**
+     * Envelope duration in seconds.
+     */
+    public double duration;
+
+    /**
+     * Output gain.
+     */
+    public float gain = 1f;
+
+    /**
+     * Stereo position, 0 left to 1 right, with equal-power panning.
+     */
+    public float pan = 0.5f;
+
+    /**
+     * Instantiates a new Voice.
+     *
+     * @param crv       the waveform
+     * @param frequency the frequency in Hz
+     */
+    public Voice(Crv crv, double frequency) {
+        this.crv = crv;
+        this.frequency = frequency;
+    }
+
+    /**
+     * Sets the amplitude envelope.
+     *
+     * @param envelope the envelope curve
+     * @param start    the start in seconds
+     * @param duration the duration in seconds
+     * @return this voice
+     */
+    public Voice envelope(Crv envelope, double start, double duration) {
+        this.envelope = envelope;
+        this.start = start;
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * Renders mono samples into out, overwriting it.
+     *
+     * @param out        the buffer, at least frames long
+     * @param frame      the index of the first frame since the start of the stream
+     * @param frames     the number of frames
+     * @param sampleRate the sample rate in Hz
+     */
+    public void render(float[] out, long frame, int frames, double sampleRate) {
+        int from = 0;
+        int to = frames;
+        if (this.envelope != null) {
+            // skip the parts of the block the envelope silences without evaluating anything
+            long first = (long) Math.ceil(this.start * sampleRate);
+            long last = (long) Math.ceil((this.start + this.duration) * sampleRate);
+            from = (int) Math.max(0, Math.min(frames, first - frame));
+            to = (int) Math.max(from, Math.min(frames, last - frame));
+            Arrays.fill(out, 0, from, 0f);
+            Arrays.fill(out, to, frames, 0f);
+        }
+        double ratio = this.frequency / sampleRate;
+        for (int i = from; i < to; i++) {
+            long f = frame + i;
+            double value = 1.0;
+            if (this.crv != null) {
+                double pos = f * ratio;
+                pos -= Math.floor(pos);
+                value = this.crv.yAt(pos) * 2.0 - 1.0;
+            }
+            if (this.envelope != null) {
+                value *= this.envelope.yAt((f / sampleRate - this.start) / this.duration);
+            }
+            out[i] = (float) (value * this.gain);
+        }
+    }
+
+}
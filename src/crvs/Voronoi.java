@@ -1,7 +1,9 @@
 package crvs;
 
+import java.util.Arrays;
+
 import processing.core.PVector;
-import quickhull3d.QuickHull3D;
+import com.github.quickhull3d.QuickHull3D;
 
 /**
  * The type Voronoi.
@@ -16,6 +18,24 @@ public class Voronoi {
      * The Regions.
      */
     MPolygon[] regions;
+    /**
+     * The sites followed by the three far points the hull is bounded with,
+     * interleaved.
+     */
+    float[] nodes;
+    /**
+     * The Delaunay neighbours of node i are adjacency[adjacencyStarts[i]] up to
+     * adjacencyStarts[i + 1].
+     */
+    int[] adjacencyStarts;
+    /**
+     * The Adjacency.
+     */
+    int[] adjacency;
+    /**
+     * The weight of each site, or null if unweighted.
+     */
+    float[] weights;
 
     /**
      * Instantiates a new Voronoi.
@@ -23,11 +43,38 @@ public class Voronoi {
      * @param vectors the vectors
      */
     public Voronoi( PVector[] vectors ){
+		this(vectors, null);
+	}
+
+    /**
+     * Instantiates a new weighted Voronoi, also called a power diagram. A point
+     * belongs to the site with the least power distance, its squared distance to
+     * the site less the site's weight, so a site with a weight of r squared claims
+     * space as a circle of radius r would. Sites are lifted to the paraboloid with
+     * their weight subtracted and the diagram read off the same hull as before.
+     * <p>
+     * A site whose weight is small next to its neighbours' can lose its cell
+     * altogether; its region is then an empty MPolygon. Weights should stay well
+     * below 64000000, the lift of the far points the hull is bounded with.
+     *
+     * @param vectors the vectors
+     * @param weights the weight of each site, or null for an unweighted diagram
+     */
+    public Voronoi( PVector[] vectors, float[] weights ){
+		long start = Metrics.start();
+		JfrEvents.MeshBuild event = new JfrEvents.MeshBuild();
+		event.begin();
 		float[][] points = Utils.v2f(vectors);
+		if( weights != null && weights.length < points.length )
+			throw new IllegalArgumentException("Got " + weights.length + " weights for " + points.length + " sites");
+		this.weights = weights;
 
 		if( points.length < 1 ){
 			edges = new float[0][4];
 			regions = new MPolygon[0];
+			nodes = new float[0];
+			adjacencyStarts = new int[1];
+			adjacency = new int[0];
 			return;
 		}
 
@@ -37,6 +84,8 @@ public class Voronoi {
 			qPoints[i*3] = points[i][0];
 			qPoints[i*3+1] = points[i][1];
 			qPoints[i*3+2] = -(points[i][0]*points[i][0] + points[i][1]*points[i][1]); // standard half-squared eucledian distance
+			if( weights != null )
+				qPoints[i*3+2] += weights[i];
 		}
 		// 1
 		qPoints[ qPoints.length-9 ] = -8000D;
@@ -55,6 +104,7 @@ public class Voronoi {
 		QuickHull3D quickHull = new QuickHull3D(qPoints);
 		int[][] faces = quickHull.getFaces(QuickHull3D.POINT_RELATIVE + QuickHull3D.CLOCKWISE);
 		int artifact = 0;
+		link(qPoints, faces);
 
 		// compute dual points
 		double dualPoints[][] = new double[faces.length][2];
@@ -73,11 +123,11 @@ public class Voronoi {
 
 			double v1x = 2 * (x1-x0);
 			double v1y = 2 * (y1-y0);
-			double v1z = x0*x0 - x1*x1 + y0*y0 - y1*y1;
+			double v1z = x0*x0 - x1*x1 + y0*y0 - y1*y1 - weight(faces[i][0]) + weight(faces[i][1]);
 
 			double v2x = 2 * (x2-x0);
 			double v2y = 2 * (y2-y0);
-			double v2z = x0*x0 - x2*x2 + y0*y0 - y2*y2;
+			double v2z = x0*x0 - x2*x2 + y0*y0 - y2*y2 - weight(faces[i][0]) + weight(faces[i][2]);
 
 			double tmpx = v1y * v2z - v1z * v2y;
 			double tmpy = v1z * v2x - v1x * v2z;
@@ -95,32 +145,32 @@ public class Voronoi {
 		for(int i=0; i<points.length; i++)
 			pointBuckets[i] = new IntArray();
 
-		// discover edges
-		for(int i = 0; i < faces.length; i++){
-
-			// bin faces to the points they belong with
+		// bin faces to the points they belong with
+		for(int i = 0; i < faces.length; i++)
 			for(int f=0; f<faces[i].length; f++)
 				if(faces[i][f] < points.length)
 					pointBuckets[ faces[i][f] ].add(i);
 
-			for(int j = 0; j < i; j++){
-				if( i!=artifact && j!=artifact && isEdgeShared(faces[i], faces[j]) ){
+		// discover edges, in the order a test of every pair of faces finds them
+		for( long pair : sharedFaces(faces, qPoints.length/3) ){
+			int i = (int) (pair / faces.length);
+			int j = (int) (pair % faces.length);
+			if( i!=artifact && j!=artifact ){
 
-					faceNet.link(i, j);
+				faceNet.link(i, j);
 
-					if( edges.length <= edgeCount ){
-						float[][] tmpedges = new float[edges.length*2][4];
-						System.arraycopy(edges, 0, tmpedges, 0, edges.length);
-						edges = tmpedges;
-					}
+				if( edges.length <= edgeCount ){
+					float[][] tmpedges = new float[edges.length*2][4];
+					System.arraycopy(edges, 0, tmpedges, 0, edges.length);
+					edges = tmpedges;
+				}
 
-					edges[edgeCount][0] = (float) dualPoints[i][0];
-					edges[edgeCount][1] = (float) dualPoints[i][1];
-					edges[edgeCount][2] = (float) dualPoints[j][0];
-					edges[edgeCount][3] = (float) dualPoints[j][1];
-					edgeCount++;
+				edges[edgeCount][0] = (float) dualPoints[i][0];
+				edges[edgeCount][1] = (float) dualPoints[i][1];
+				edges[edgeCount][2] = (float) dualPoints[j][0];
+				edges[edgeCount][3] = (float) dualPoints[j][1];
+				edgeCount++;
 
-				}
 			}
 		}
 
@@ -134,6 +184,11 @@ public class Voronoi {
 		// calculate the region for each point
 		regions = new MPolygon[points.length];
 		for(int i=0; i<points.length; i++){
+			if( pointBuckets[i].length == 0 ){
+				// a weighted site that lost its cell
+				regions[i] = new MPolygon(0);
+				continue;
+			}
 			IntArray faceOrder = new IntArray(pointBuckets[i].length);
 
 			// add coords of the region in the order they touch, starting with the convenient first
@@ -164,6 +219,184 @@ public class Voronoi {
 
 		}
 
+		Metrics.time(Metric.VORONOI_BUILD, 0, start, points.length);
+		if (event.shouldCommit()) {
+			event.mesh = "Voronoi";
+			event.points = points.length;
+			event.faces = faces.length;
+			event.commit();
+		}
+	}
+
+    /**
+     * Keeps the sites and their Delaunay graph for locate. The hull faces are the
+     * Delaunay cells of the sites and far points, and each directed edge of a face
+     * appears in no other face, so the face edges list every neighbour of every
+     * node exactly once.
+     */
+    private void link(double[] qPoints, int[][] faces) {
+		int count = qPoints.length / 3;
+		nodes = new float[count * 2];
+		for (int i = 0; i < count; i++) {
+			nodes[i * 2] = (float) qPoints[i * 3];
+			nodes[i * 2 + 1] = (float) qPoints[i * 3 + 1];
+		}
+		adjacencyStarts = new int[count + 1];
+		for (int[] face : faces) {
+			for (int f = 0; f < face.length; f++) {
+				adjacencyStarts[face[f] + 1]++;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			adjacencyStarts[i + 1] += adjacencyStarts[i];
+		}
+		adjacency = new int[adjacencyStarts[count]];
+		int[] fill = adjacencyStarts.clone();
+		for (int[] face : faces) {
+			for (int f = 0; f < face.length; f++) {
+				adjacency[fill[face[f]]++] = face[(f + 1) % face.length];
+			}
+		}
+	}
+
+    /**
+     * Finds the region holding a point: the region of the site nearest to it, by
+     * power distance when the diagram is weighted.
+     * <p>
+     * The search starts from the nearest of a few sites spread through the
+     * diagram and walks the Delaunay graph towards the point, always to a closer
+     * neighbour, until no neighbour is closer. On a Delaunay graph, weighted or
+     * not, that is the nearest site. Expect a few dozen distance tests with
+     * thousands of sites, against a contains test on every region.
+     *
+     * @param x the x
+     * @param y the y
+     * @return the region index, which is also the site index, or -1 if there are no sites
+     */
+    public int locate(float x, float y) {
+		int sites = regions.length;
+		if (sites == 0) {
+			return -1;
+		}
+		int samples = Math.max(1, (int) Math.cbrt(sites));
+		int step = sites / samples;
+		int start = 0;
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < sites; i += step) {
+			int j = i;
+			// sites off the hull, such as duplicates or weighted sites with no cell,
+			// have no neighbours to walk to
+			while (j + 1 < sites && isolated(j))
+				j++;
+			double d = distance(j, x, y);
+			if (d < best) {
+				best = d;
+				start = j;
+			}
+		}
+		return walk(x, y, start);
+	}
+
+    private boolean isolated(int node) {
+		return adjacencyStarts[node] == adjacencyStarts[node + 1];
+	}
+
+    /**
+     * Finds the region holding a point, walking from the site of a region nearby,
+     * such as the one found for the previous point.
+     *
+     * @param x     the x
+     * @param y     the y
+     * @param start the region to start from
+     * @return the region index, which is also the site index, or -1 if there are no sites
+     */
+    public int locate(float x, float y, int start) {
+		int sites = regions.length;
+		if (sites == 0) {
+			return -1;
+		}
+		int v = Math.max(0, Math.min(sites - 1, start));
+		return isolated(v) ? locate(x, y) : walk(x, y, v);
+	}
+
+    private int walk(float x, float y, int v) {
+		int sites = regions.length;
+		double best = distance(v, x, y);
+		while (true) {
+			int next = -1;
+			for (int k = adjacencyStarts[v]; k < adjacencyStarts[v + 1]; k++) {
+				int w = adjacency[k];
+				double d = distance(w, x, y);
+				if (d < best) {
+					best = d;
+					next = w;
+				}
+			}
+			if (next < 0) {
+				break;
+			}
+			v = next;
+		}
+		if (v >= sites) {
+			// past the far points, which only happens thousands of units out
+			v = 0;
+			best = distance(0, x, y);
+			for (int i = 1; i < sites; i++) {
+				double d = distance(i, x, y);
+				if (d < best) {
+					best = d;
+					v = i;
+				}
+			}
+		}
+		return v;
+	}
+
+    /**
+     * Finds the region holding each of many points. A walk starts from the region
+     * found for the point before when that region's site is within a few site
+     * spacings, so points in scanline or stroke order take only a step or two
+     * each, and from a fresh start otherwise.
+     *
+     * @param xs  the x coordinates
+     * @param ys  the y coordinates
+     * @param out the region index of each point, at least as long as xs
+     */
+    public void locate(float[] xs, float[] ys, int[] out) {
+		int sites = regions.length;
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < sites; i++) {
+			minX = Math.min(minX, nodes[i * 2]);
+			minY = Math.min(minY, nodes[i * 2 + 1]);
+			maxX = Math.max(maxX, nodes[i * 2]);
+			maxY = Math.max(maxY, nodes[i * 2 + 1]);
+		}
+		// four times the mean area per site, as a squared distance
+		double near = sites > 0 ? 4.0 * (maxX - minX) * (maxY - minY) / sites : 0;
+		int previous = -1;
+		for (int i = 0; i < xs.length; i++) {
+			if (previous >= 0 && distance(previous, xs[i], ys[i]) <= near) {
+				previous = locate(xs[i], ys[i], previous);
+			} else {
+				previous = locate(xs[i], ys[i]);
+			}
+			out[i] = previous;
+		}
+	}
+
+    /**
+     * The squared distance from a node to a point, less the node's weight.
+     */
+    private double distance(int node, float x, float y) {
+		double dx = nodes[node * 2] - x;
+		double dy = nodes[node * 2 + 1] - y;
+		return dx * dx + dy * dy - weight(node);
+	}
+
+    private double weight(int node) {
+		// the three far points come after the sites and are unweighted
+		return weights != null && node < nodes.length / 2 - 3 ? weights[node] : 0;
 	}
 
     /**
@@ -199,6 +432,65 @@ public class Voronoi {
 		return edgs;
 	}
 
+    /**
+     * Finds the pairs of faces that share an edge, as i * faces.length + j with
+     * j below i, sorted. Every face edge is filed under its lower point as its
+     * higher point and its face, packed into one long, and each point's edges
+     * sorted, so faces meeting on an edge end up side by side; that takes
+     * O(f log f) where testing every pair of faces with isEdgeShared takes O(f^2).
+     * Each part keeps its own 32 bits, so no count of points or faces overflows.
+     */
+    private static long[] sharedFaces(int[][] faces, int pointCount) {
+		long faceCount = faces.length;
+		int[] starts = new int[pointCount + 1];
+		for (int[] face : faces)
+			for (int f = 0; f < face.length; f++)
+				starts[Math.min(face[f], face[(f + 1) % face.length]) + 1]++;
+		for (int p = 0; p < pointCount; p++)
+			starts[p + 1] += starts[p];
+		int total = starts[pointCount];
+		long[] keyed = new long[total];
+		int[] fill = Arrays.copyOf(starts, pointCount);
+		for (int i = 0; i < faces.length; i++) {
+			int[] face = faces[i];
+			for (int f = 0; f < face.length; f++) {
+				int a = face[f];
+				int b = face[(f + 1) % face.length];
+				keyed[fill[Math.min(a, b)]++] = ((long) Math.max(a, b) << 32) | i;
+			}
+		}
+		long[] pairs = new long[total];
+		int count = 0;
+		for (int p = 0; p < pointCount; p++) {
+			Arrays.sort(keyed, starts[p], starts[p + 1]);
+			for (int start = starts[p]; start < starts[p + 1]; ) {
+				int other = (int) (keyed[start] >>> 32);
+				int end = start + 1;
+				while (end < starts[p + 1] && (int) (keyed[end] >>> 32) == other)
+					end++;
+				// an edge of a closed hull has two faces; degenerate hulls may give more
+				for (int x = start; x < end; x++)
+					for (int y = start; y < x; y++) {
+						long i = (int) keyed[x];
+						long j = (int) keyed[y];
+						if (i == j)
+							continue;
+						if (count == pairs.length)
+							pairs = Arrays.copyOf(pairs, pairs.length * 2);
+						pairs[count++] = i * faceCount + j;
+					}
+				start = end;
+			}
+		}
+		long[] sorted = Arrays.copyOf(pairs, count);
+		Arrays.sort(sorted);
+		int unique = 0;
+		for (int x = 0; x < sorted.length; x++)
+			if (x == 0 || sorted[x] != sorted[x - 1])
+				sorted[unique++] = sorted[x];
+		return Arrays.copyOf(sorted, unique);
+	}
+
     /**
      * Is edge shared boolean.
      *
@@ -0,0 +1,73 @@
+package crvs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The type Wav writer. Streams an Audio render to disk as a 16-bit PCM WAV
+ * file, one block at a time through a single reusable buffer, so the length of
+ * the render is bounded by disk rather than heap.
+ */
+public class WavWriter {
+
+    private static final int HEADER_SIZE = 44;
+
+    /**
+     * Write.
+     *
+     * @param file   the file
+     * @param audio  the audio to render
+     * @param frames the number of frames to render
+     * @throws IOException the io exception
+     */
+    public static void write(File file, Audio audio, long frames) throws IOException {
+        int channels = audio.channels;
+        int blockAlign = channels * 2;
+        long dataSize = frames * blockAlign;
+        if (dataSize > 0xFFFFFFFFL - HEADER_SIZE) {
+            throw new IllegalArgumentException("WAV files are limited to 4 GB, " + frames + " frames requested");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int block = audio.blockSize;
+            ByteBuffer buf = ByteBuffer.allocateDirect(Math.max(HEADER_SIZE, block * blockAlign))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            buf.putInt(0x46464952); // RIFF
+            buf.putInt((int) (HEADER_SIZE - 8 + dataSize));
+            buf.putInt(0x45564157); // WAVE
+            buf.putInt(0x20746D66); // fmt
+            buf.putInt(16);
+            buf.putShort((short) 1); // PCM
+            buf.putShort((short) channels);
+            buf.putInt(audio.sampleRate);
+            buf.putInt(audio.sampleRate * blockAlign);
+            buf.putShort((short) blockAlign);
+            buf.putShort((short) 16);
+            buf.putInt(0x61746164); // data
+            buf.putInt((int) dataSize);
+            flush(channel, buf);
+
+            float[] samples = new float[block * channels];
+            for (long frame = 0; frame < frames; frame += block) {
+                int n = (int) Math.min(block, frames - frame);
+                audio.render(samples, frame, n);
+                Audio.toPcm16(samples, n * channels, buf);
+                flush(channel, buf);
+            }
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+}
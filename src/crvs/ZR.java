@@ -2,7 +2,7 @@ package crvs;
 
 import java.util.Arrays;
 
-public class ZR {
+public class ZR implements Rhythm {
 
     public enum BankName {
         motorik_1, motorik_2, motorik_3,
@@ -267,7 +267,7 @@ public class ZR {
         System.out.println(Arrays.toString(pattern));
     }
 
-    private int[][] getBank(BankName bankName) {
+    static int[][] getBank(BankName bankName) {
         switch (bankName) {
             case motorik_2:
                 return Banks.motorik_2;
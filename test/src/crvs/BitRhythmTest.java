@@ -0,0 +1,77 @@
+package crvs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Steps BitRhythms side by side with the NR and ZR they are compiled from, through
+ * the same mix of next(), peek() and reset() calls.
+ */
+class BitRhythmTest {
+
+    private static final int CALLS = 400;
+
+    private static void assertSameSteps(Rhythm expected, Rhythm actual, long seed, String name) {
+        Random random = new Random(seed);
+        for (int call = 0; call < CALLS; call++) {
+            int op = random.nextInt(10);
+            if (op < 6) {
+                assertEquals(expected.next(), actual.next(), name + " next() at call " + call);
+            } else if (op < 9) {
+                assertEquals(expected.peek(), actual.peek(), name + " peek() at call " + call);
+            } else {
+                expected.reset();
+                actual.reset();
+            }
+        }
+    }
+
+    @Test
+    void matchesZrForEveryBankAndChild() {
+        for (ZR.BankName bank : ZR.BankName.values()) {
+            for (int child = 0; child < 4; child++) {
+                for (int offset : new int[] {0, 1, 3, 37}) {
+                    String name = bank + "/" + child + "/" + offset;
+                    long seed = name.hashCode();
+                    assertSameSteps(new ZR(bank, child, offset), BitRhythm.zr(bank, child, offset), seed, name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesNr() {
+        int[] masks = {0, 1, 2, 3, 0x0FF0};
+        for (int prime = -1; prime < 33; prime++) {
+            for (int mask : masks) {
+                for (int factor = -1; factor < 18; factor++) {
+                    String name = prime + "/" + mask + "/" + factor;
+                    long seed = name.hashCode();
+                    assertSameSteps(new NR(prime, mask, factor), BitRhythm.nr(prime, mask, factor), seed, name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void tablesMatchTheSources() {
+        for (ZR.BankName bank : ZR.BankName.values()) {
+            for (int child = 0; child < 4; child++) {
+                int[] pattern = ZR.getBank(bank)[child];
+                assertEquals(Arrays.toString(new ZR(bank, child, 1).to_table(70)),
+                        Arrays.toString(BitRhythm.zr(bank, child, 1).toTable(70)), bank + "/" + child);
+                assertEquals(Arrays.toString(pattern),
+                        Arrays.toString(BitRhythm.of(pattern).toTable(pattern.length)), bank + "/" + child);
+            }
+        }
+        for (int prime = 0; prime < 32; prime++) {
+            assertEquals(Arrays.toString(new NR(prime, 0, 3).toTable(40)),
+                    Arrays.toString(BitRhythm.nr(prime, 0, 3).toTable(40)), "nr " + prime);
+        }
+    }
+
+}
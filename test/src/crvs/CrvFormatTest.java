@@ -0,0 +1,121 @@
+package crvs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import processing.core.PApplet;
+
+/**
+ * Writes a curve graph in the binary and JSON forms, reads it back and checks the
+ * rebuilt curves sample the same as the originals.
+ */
+class CrvFormatTest {
+
+    private static final int SAMPLES = 512;
+
+    @TempDir
+    Path dir;
+
+    private final PApplet applet = new PApplet();
+    private final Ops ops = new Ops(this.applet);
+    private final Window window = new Window(200, 100);
+
+    private Crv[] graph(float[] series) {
+        // a named op, a modulator shared by two curves, an op only a lambda
+        // describes, and a time series
+        Crv lfo = new Crv(this.applet, this.window, this.ops.sine());
+        lfo.rateOffset = 3;
+        Crv a = new Crv(this.applet, this.window, this.ops.tri());
+        a.amp = lfo;
+        a.phaseOffset = 0.25f;
+        Crv b = new Crv(this.applet, this.window, pos -> pos * pos);
+        b.rate = lfo;
+        b.biasOffset = -0.1f;
+        Crv c = new Crv(this.applet, this.window, this.ops.timeseries(series));
+        c.ampOffset = 0.5f;
+        return new Crv[] {a, b, c};
+    }
+
+    private static void assertSameSamples(Crv[] expected, Crv[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i].floatArray(SAMPLES), actual[i].floatArray(SAMPLES), 1e-5f, "curve " + i);
+        }
+    }
+
+    private Crv[] binary(Crv[] crvs, boolean bake) throws IOException {
+        File file = this.dir.resolve("graph.crv").toFile();
+        CrvWriter.write(file, bake, crvs);
+        return CrvReader.open(file, this.ops).crvs();
+    }
+
+    private Crv[] json(Crv[] crvs) throws IOException {
+        StringWriter out = new StringWriter();
+        CrvWriter.writeJson(out, crvs);
+        return CrvReader.readJson(new StringReader(out.toString()), this.ops);
+    }
+
+    @Test
+    void binaryRoundTrip() throws IOException {
+        Crv[] crvs = this.graph(new float[] {3, 1, 4, 1, 5, 9, 2, 6});
+        assertSameSamples(crvs, this.binary(crvs, false));
+    }
+
+    @Test
+    void bakedSamplesMatchTheCurves() throws IOException {
+        Crv[] crvs = this.graph(new float[] {3, 1, 4, 1, 5, 9, 2, 6});
+        File file = this.dir.resolve("baked.crv").toFile();
+        CrvWriter.write(file, true, crvs);
+        CrvReader reader = CrvReader.open(file, this.ops);
+        for (int i = 0; i < crvs.length; i++) {
+            float[] baked = new float[reader.samples(i).remaining()];
+            reader.samples(i).get(baked);
+            assertArrayEquals(crvs[i].floatArray(), baked, "curve " + i);
+        }
+    }
+
+    @Test
+    void jsonRoundTrip() throws IOException {
+        Crv[] crvs = this.graph(new float[] {3, 1, 4, 1, 5, 9, 2, 6});
+        assertSameSamples(crvs, this.json(crvs));
+        // a second write of the rebuilt graph gives the same text
+        StringWriter first = new StringWriter();
+        CrvWriter.writeJson(first, crvs);
+        StringWriter second = new StringWriter();
+        CrvWriter.writeJson(second, this.json(crvs));
+        assertEquals(first.toString(), second.toString());
+    }
+
+    @Test
+    void reusedSeriesBufferDoesNotLeakIntoTheFile() throws IOException {
+        float[] series = {3, 1, 4, 1, 5, 9, 2, 6};
+        Crv[] crvs = this.graph(series);
+        // the sketch reuses its buffer after building the op
+        for (int i = 0; i < series.length; i++) {
+            series[i] = -i;
+        }
+        assertSameSamples(crvs, this.binary(crvs, false));
+        assertSameSamples(crvs, this.json(crvs));
+    }
+
+    @Test
+    void writesTheSameBinaryTwice() throws IOException {
+        Crv[] crvs = this.graph(new float[] {1, 2, 3});
+        File first = this.dir.resolve("first.crv").toFile();
+        File second = this.dir.resolve("second.crv").toFile();
+        CrvWriter.write(first, true, crvs);
+        CrvWriter.write(second, true, crvs);
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    }
+
+}
@@ -0,0 +1,177 @@
+package crvs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import processing.core.PVector;
+
+/**
+ * Checks the graphs derived from a Delaunay mesh against brute force over every
+ * pair or triple of points.
+ */
+class GraphTest {
+
+    private static Graph graph(int n, long seed, boolean clustered) {
+        Random random = new Random(seed);
+        PVector[] points = new PVector[n];
+        for (int i = 0; i < n; i++) {
+            if (clustered) {
+                points[i] = new PVector((i % 7) * 130 + 50 + (float) random.nextGaussian() * 20,
+                        (i % 5) * 170 + 50 + (float) random.nextGaussian() * 8);
+            } else {
+                points[i] = new PVector(random.nextFloat() * 1000, random.nextFloat() * 1000);
+            }
+        }
+        return new Delaunay(points).graph();
+    }
+
+    private static double distance2(Graph g, int a, int b) {
+        double dx = g.xs[a] - g.xs[b];
+        double dy = g.ys[a] - g.ys[b];
+        return dx * dx + dy * dy;
+    }
+
+    private static Set<Long> pairs(Graph g, int[] edgeIds) {
+        Set<Long> pairs = new HashSet<>();
+        for (int e : edgeIds) {
+            int a = g.edges[e * 2];
+            int b = g.edges[e * 2 + 1];
+            pairs.add((long) Math.min(a, b) * g.nodeCount + Math.max(a, b));
+        }
+        return pairs;
+    }
+
+    @Test
+    void gabrielAndRelativeNeighborhoodMatchBruteForce() {
+        for (int seed = 0; seed < 4; seed++) {
+            Graph g = graph(400, seed, seed % 2 == 1);
+            int n = g.nodeCount;
+            Set<Long> gabriel = new HashSet<>();
+            Set<Long> rng = new HashSet<>();
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    double ab = distance2(g, a, b);
+                    boolean inGabriel = true;
+                    boolean inRng = true;
+                    for (int c = 0; c < n && (inGabriel || inRng); c++) {
+                        if (c == a || c == b) {
+                            continue;
+                        }
+                        double dot = (g.xs[a] - g.xs[c]) * (double) (g.xs[b] - g.xs[c])
+                                + (g.ys[a] - g.ys[c]) * (double) (g.ys[b] - g.ys[c]);
+                        if (dot < 0) {
+                            inGabriel = false;
+                        }
+                        if (distance2(g, a, c) < ab && distance2(g, b, c) < ab) {
+                            inRng = false;
+                        }
+                    }
+                    if (inGabriel) {
+                        gabriel.add((long) a * n + b);
+                    }
+                    if (inRng) {
+                        rng.add((long) a * n + b);
+                    }
+                }
+            }
+            assertEquals(gabriel, pairs(g, g.gabriel()), "seed " + seed);
+            assertEquals(rng, pairs(g, g.relativeNeighborhood()), "seed " + seed);
+        }
+    }
+
+    @Test
+    void mstMatchesPrimOverAllPairs() {
+        Graph g = graph(500, 5, false);
+        int n = g.nodeCount;
+        double kruskal = 0;
+        int[] tree = g.mst();
+        for (int e : tree) {
+            kruskal += g.lengths[e];
+        }
+        assertEquals(n - 1, tree.length);
+        double[] key = new double[n];
+        boolean[] in = new boolean[n];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        key[0] = 0;
+        double prim = 0;
+        for (int step = 0; step < n; step++) {
+            int v = -1;
+            for (int i = 0; i < n; i++) {
+                if (!in[i] && (v < 0 || key[i] < key[v])) {
+                    v = i;
+                }
+            }
+            in[v] = true;
+            prim += key[v];
+            for (int i = 0; i < n; i++) {
+                if (!in[i]) {
+                    key[i] = Math.min(key[i], Math.sqrt(distance2(g, i, v)));
+                }
+            }
+        }
+        assertEquals(prim, kruskal, 1e-3);
+    }
+
+    @Test
+    void shortestPathsSatisfyEveryEdge() {
+        Graph g = graph(2000, 6, false);
+        float[] distances = new float[g.nodeCount];
+        int[] parents = new int[g.nodeCount];
+        int reached = g.dijkstra(0, distances, parents);
+        int[] labels = new int[g.nodeCount];
+        int components = g.components(labels);
+        int inFirst = 0;
+        for (int label : labels) {
+            if (label == labels[0]) {
+                inFirst++;
+            }
+        }
+        assertEquals(inFirst, reached);
+        assertTrue(components >= 1);
+        for (int e = 0; e < g.edgeCount; e++) {
+            int a = g.edges[e * 2];
+            int b = g.edges[e * 2 + 1];
+            assertTrue(distances[b] <= distances[a] + g.lengths[e] + 1e-3f);
+            assertTrue(distances[a] <= distances[b] + g.lengths[e] + 1e-3f);
+        }
+        int[] path = Graph.path(parents, g.nodeCount - 1);
+        assertEquals(0, path[0]);
+        float length = 0;
+        for (int i = 1; i < path.length; i++) {
+            length += (float) Math.sqrt(distance2(g, path[i - 1], path[i]));
+        }
+        assertEquals(distances[g.nodeCount - 1], length, 1e-2f);
+        int[] hops = new int[g.nodeCount];
+        assertEquals(reached, g.bfs(0, hops, null));
+    }
+
+    @Test
+    void linksAreNotOverAllocated() {
+        PVector[] points = new PVector[300];
+        Random random = new Random(8);
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new PVector(random.nextFloat() * 1000, random.nextFloat() * 1000);
+        }
+        Delaunay delaunay = new Delaunay(points);
+        Graph g = delaunay.graph();
+        assertEquals(delaunay.edgeCount(), delaunay.getLinks().length);
+        int[] histogram = g.degreeHistogram();
+        int nodes = 0;
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(g.degree(i), delaunay.getLinked(i).length);
+            assertEquals(g.degree(i), delaunay.getWeight(i));
+        }
+        for (int count : histogram) {
+            nodes += count;
+        }
+        assertEquals(points.length, nodes);
+    }
+
+}
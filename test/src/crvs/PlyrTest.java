@@ -0,0 +1,155 @@
+package crvs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+import org.junit.jupiter.api.Test;
+
+import processing.core.PApplet;
+
+/**
+ * Runs Plyr against a recording Receiver, with a rhythm that strikes every tick
+ * and notes one tick long, so each note-off shares a tick with the next note-on.
+ */
+class PlyrTest {
+
+    private static class Sent {
+        final ShortMessage message;
+        final long timestamp;
+
+        Sent(ShortMessage message, long timestamp) {
+            this.message = message;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class Recorder implements Receiver {
+        final List<Sent> sent = new ArrayList<>();
+
+        @Override
+        public synchronized void send(MidiMessage message, long timestamp) {
+            this.sent.add(new Sent((ShortMessage) message, timestamp));
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized List<Sent> snapshot() {
+            return new ArrayList<>(this.sent);
+        }
+    }
+
+    private static Rhythm everyTick() {
+        return new Rhythm() {
+            @Override
+            public boolean next() {
+                return true;
+            }
+
+            @Override
+            public boolean peek() {
+                return true;
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+    }
+
+    private static Plyr plyr(Recorder recorder) throws Exception {
+        PApplet applet = new PApplet();
+        Window window = new Window(100, 100);
+        // the note-off of one tick lands on the same tick as the next note-on
+        Sqnc sqnc = new Sqnc(1 << 20);
+        sqnc.createTrack(0, new Crv(applet, window, pos -> 0.5f), new Crv(applet, window, pos -> 1f), everyTick());
+        Plyr plyr = new Plyr(sqnc, recorder);
+        // 2.5ms ticks at 4 PPQ
+        plyr.bpm = 6000;
+        plyr.lookaheadMicros = 20_000;
+        return plyr;
+    }
+
+    private static List<Sent> play(boolean changeTempo) throws Exception {
+        Recorder recorder = new Recorder();
+        Plyr plyr = plyr(recorder);
+        plyr.start();
+        Thread.sleep(150);
+        if (changeTempo) {
+            plyr.bpm = 12000;
+            Thread.sleep(150);
+        }
+        plyr.stop();
+        assertFalse(plyr.isRunning());
+        List<Sent> sent = recorder.snapshot();
+        assertTrue(sent.size() > 20, "only " + sent.size() + " messages sent");
+        return sent;
+    }
+
+    @Test
+    void releasesBeforeStrikingOnTheSameTick() throws Exception {
+        List<Sent> sent = play(false);
+        int shared = 0;
+        for (int i = 1; i < sent.size(); i++) {
+            Sent a = sent.get(i - 1);
+            Sent b = sent.get(i);
+            if (a.timestamp == b.timestamp && a.message.getCommand() == ShortMessage.NOTE_ON) {
+                assertFalse(b.message.getCommand() == ShortMessage.NOTE_OFF,
+                        "note-on sent before a note-off due at " + a.timestamp);
+            }
+            if (a.timestamp == b.timestamp && a.message.getCommand() == ShortMessage.NOTE_OFF
+                    && b.message.getCommand() == ShortMessage.NOTE_ON) {
+                shared++;
+            }
+        }
+        assertTrue(shared > 0, "no tick held both a note-off and a note-on");
+    }
+
+    @Test
+    void timestampsNeverGoBack() throws Exception {
+        // a tempo change while playing must not restart the timeline from tick 0
+        List<Sent> sent = play(true);
+        for (int i = 1; i < sent.size(); i++) {
+            assertTrue(sent.get(i).timestamp >= sent.get(i - 1).timestamp,
+                    "timestamp " + sent.get(i).timestamp + " after " + sent.get(i - 1).timestamp);
+        }
+    }
+
+    @Test
+    void stopLeavesNoHangingNotes() throws Exception {
+        List<Sent> sent = play(false);
+        // replay in timestamp order, as a receiver honouring timestamps would; -1
+        // means now, ahead of anything already stamped for later
+        List<Sent> played = new ArrayList<>(sent);
+        played.sort((x, y) -> Long.compare(x.timestamp, y.timestamp));
+        Map<Integer, Integer> held = new HashMap<>();
+        for (Sent s : played) {
+            ShortMessage m = s.message;
+            int key = m.getChannel() * 128 + m.getData1();
+            if (m.getCommand() == ShortMessage.NOTE_ON && m.getData2() > 0) {
+                held.merge(key, 1, Integer::sum);
+            } else if (m.getCommand() == ShortMessage.NOTE_OFF) {
+                held.merge(key, -1, Integer::sum);
+            } else if (m.getCommand() == ShortMessage.CONTROL_CHANGE && m.getData1() == 123) {
+                held.keySet().removeIf(k -> k / 128 == m.getChannel());
+            }
+        }
+        held.values().removeIf(count -> count <= 0);
+        assertEquals(Map.of(), held);
+        Sent last = played.get(played.size() - 1);
+        assertEquals(ShortMessage.CONTROL_CHANGE, last.message.getCommand());
+        assertEquals(123, last.message.getData1());
+    }
+
+}
@@ -0,0 +1,176 @@
+package crvs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import processing.core.PVector;
+
+/**
+ * Checks PreparedPolygon against MPolygon.contains, which it must agree with
+ * point for point, including points on vertices and edges.
+ */
+class PreparedPolygonTest {
+
+    private static MPolygon convex(Random random, int n) {
+        float[] angles = new float[n];
+        for (int i = 0; i < n; i++) {
+            angles[i] = random.nextFloat() * (float) (Math.PI * 2);
+        }
+        Arrays.sort(angles);
+        float r = 20 + random.nextInt(80);
+        MPolygon polygon = new MPolygon(n);
+        for (float a : angles) {
+            polygon.add(100 + Math.round(r * (float) Math.cos(a)), 100 + Math.round(r * (float) Math.sin(a)));
+        }
+        return polygon;
+    }
+
+    private static MPolygon star(Random random, int n) {
+        MPolygon polygon = new MPolygon(n);
+        for (int i = 0; i < n; i++) {
+            double a = Math.PI * 2 * i / n;
+            float r = 10 + random.nextInt(90);
+            polygon.add(100 + Math.round(r * (float) Math.cos(a)), 100 + Math.round(r * (float) Math.sin(a)));
+        }
+        return polygon;
+    }
+
+    /**
+     * Points on the integer grid, which land on vertices and along axis-aligned
+     * edges, and points in between.
+     */
+    private static float[][] probes(Random random, int n) {
+        float[] xs = new float[n];
+        float[] ys = new float[n];
+        for (int i = 0; i < n; i++) {
+            if (i % 2 == 0) {
+                xs[i] = random.nextInt(220) - 10;
+                ys[i] = random.nextInt(220) - 10;
+            } else {
+                xs[i] = random.nextFloat() * 220 - 10;
+                ys[i] = random.nextFloat() * 220 - 10;
+            }
+        }
+        return new float[][] {xs, ys};
+    }
+
+    private static void assertSameAsMPolygon(MPolygon polygon, float[][] probes, String name) {
+        PreparedPolygon prepared = new PreparedPolygon(polygon);
+        float[] xs = probes[0];
+        float[] ys = probes[1];
+        boolean[] expected = new boolean[xs.length];
+        int inside = 0;
+        for (int i = 0; i < xs.length; i++) {
+            expected[i] = polygon.contains(xs[i], ys[i]);
+            if (expected[i]) {
+                inside++;
+            }
+            assertEquals(expected[i], prepared.contains(xs[i], ys[i]), name + " at " + xs[i] + ", " + ys[i]);
+        }
+        boolean[] out = new boolean[xs.length];
+        assertEquals(inside, prepared.containsAll(xs, ys, out), name);
+        assertArrayEquals(expected, out, name);
+    }
+
+    @Test
+    void matchesConvexPolygons() {
+        Random random = new Random(1);
+        float[][] probes = probes(random, 4000);
+        for (int k = 0; k < 50; k++) {
+            assertSameAsMPolygon(convex(random, 3 + random.nextInt(40)), probes, "convex " + k);
+        }
+    }
+
+    @Test
+    void matchesConcavePolygons() {
+        Random random = new Random(2);
+        float[][] probes = probes(random, 4000);
+        for (int k = 0; k < 50; k++) {
+            assertSameAsMPolygon(star(random, 5 + random.nextInt(200)), probes, "star " + k);
+        }
+    }
+
+    @Test
+    void locatesVoronoiCells() {
+        Random random = new Random(3);
+        PVector[] sites = new PVector[300];
+        for (int i = 0; i < sites.length; i++) {
+            sites[i] = new PVector(random.nextFloat() * 200, random.nextFloat() * 200);
+        }
+        MPolygon[] regions = new Voronoi(sites).getRegions();
+        PreparedPolygon[] prepared = new PreparedPolygon[regions.length];
+        for (int k = 0; k < regions.length; k++) {
+            prepared[k] = regions[k].prepared();
+        }
+        float[][] probes = probes(random, 20000);
+        float[] xs = probes[0];
+        float[] ys = probes[1];
+        int[] expected = new int[xs.length];
+        int inside = 0;
+        for (int i = 0; i < xs.length; i++) {
+            expected[i] = -1;
+            for (int k = 0; k < regions.length; k++) {
+                if (regions[k].contains(xs[i], ys[i])) {
+                    expected[i] = k;
+                    inside++;
+                    break;
+                }
+            }
+        }
+        int[] out = new int[xs.length];
+        assertEquals(inside, PreparedPolygon.locate(prepared, xs, ys, out));
+        assertArrayEquals(expected, out);
+        for (int k = 0; k < regions.length; k++) {
+            assertSameAsMPolygon(regions[k], probes, "cell " + k);
+        }
+    }
+
+    @Test
+    void ignoresUnusedSlots() {
+        // room for ten vertices, four used; the spare slots hold (0, 0)
+        MPolygon polygon = new MPolygon(10);
+        polygon.add(120, 110);
+        polygon.add(180, 110);
+        polygon.add(180, 170);
+        polygon.add(120, 170);
+        MPolygon exact = new MPolygon(4);
+        for (int i = 0; i < 4; i++) {
+            exact.add(polygon.getCoords()[i][0], polygon.getCoords()[i][1]);
+        }
+        float[][] probes = probes(new Random(4), 4000);
+        for (int i = 0; i < probes[0].length; i++) {
+            assertEquals(exact.contains(probes[0][i], probes[1][i]), polygon.contains(probes[0][i], probes[1][i]));
+        }
+        assertSameAsMPolygon(polygon, probes, "spare slots");
+
+        PVector[] box = polygon.getBoundingBox();
+        assertEquals(new PVector(120, 110), box[0]);
+        assertEquals(new PVector(180, 170), box[1]);
+        PreparedPolygon prepared = polygon.prepared();
+        assertEquals(120, prepared.minX);
+        assertEquals(110, prepared.minY);
+        assertEquals(180, prepared.maxX);
+        assertEquals(170, prepared.maxY);
+
+        // entirely below and left of the origin
+        MPolygon negative = new MPolygon(8);
+        negative.add(-30, -40);
+        negative.add(-10, -40);
+        negative.add(-20, -5);
+        PVector[] negativeBox = negative.getBoundingBox();
+        assertEquals(new PVector(-30, -40), negativeBox[0]);
+        assertEquals(new PVector(-10, -5), negativeBox[1]);
+
+        // nothing in use yet
+        PVector[] empty = new MPolygon(3).getBoundingBox();
+        assertEquals(Float.MAX_VALUE, empty[0].x);
+        assertEquals(-Float.MAX_VALUE, empty[1].x);
+        assertEquals(false, new MPolygon(3).contains(0, 0));
+    }
+
+}
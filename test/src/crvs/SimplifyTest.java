@@ -0,0 +1,43 @@
+package crvs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the point counts Simplify promises at the extremes.
+ */
+class SimplifyTest {
+
+    @Test
+    void ringKeepsThreePointsWhenBothHalvesFitTheirChord() {
+        // both free corners are within 2 of the diagonal
+        float[] rectangle = {0, 0, 10, 0, 10, 1, 0, 1};
+        for (Simplify.Method method : Simplify.Method.values()) {
+            float[] out = Simplify.simplify(method, rectangle, 2, true);
+            assertTrue(out.length >= 6, method + " kept " + out.length / 2 + " points");
+        }
+        assertArrayEquals(rectangle, Simplify.simplify(Simplify.Method.RDP, rectangle, 2, true));
+    }
+
+    @Test
+    void lineKeepsItsEnds() {
+        float[] line = {0, 0, 1, 0.01f, 2, 0, 3, 0.01f, 4, 0};
+        for (Simplify.Method method : Simplify.Method.values()) {
+            assertArrayEquals(new float[] {0, 0, 4, 0}, Simplify.simplify(method, line, 1, false), method.name());
+        }
+    }
+
+    @Test
+    void simplifiedPolygonStaysAPolygon() {
+        MPolygon polygon = new MPolygon(4);
+        polygon.add(0, 0);
+        polygon.add(10, 0);
+        polygon.add(10, 1);
+        polygon.add(0, 1);
+        assertEquals(4, polygon.simplified(Simplify.Method.RDP, 2).count());
+    }
+
+}
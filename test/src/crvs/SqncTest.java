@@ -0,0 +1,125 @@
+package crvs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import processing.core.PApplet;
+
+/**
+ * Checks the streamed SMF writer against the javax.sound.midi Sequence render
+ * it replaces, and against gaps too long for one delta time.
+ */
+class SqncTest {
+
+    @TempDir
+    Path dir;
+
+    private static Sqnc song(int songLengthTicks, int tracks) throws InvalidMidiDataException {
+        PApplet parent = new PApplet();
+        Ops ops = new Ops(parent);
+        Sqnc sqnc = new Sqnc(songLengthTicks);
+        for (int i = 0; i < tracks; i++) {
+            Crv pitch = new Crv(parent, ops.sine());
+            pitch.ampOffset = 24;
+            pitch.biasOffset = 60;
+            Crv velocity = new Crv(parent, ops.tri());
+            velocity.ampOffset = 100;
+            Rhythm rhythm = i % 2 == 0 ? new NR(i, 0, i + 1) : new ZR(ZR.BankName.values()[i], i, i);
+            sqnc.createTrack(i % 16, pitch, velocity, rhythm);
+            Crv cutoff = new Crv(parent, ops.saw());
+            cutoff.ampOffset = 127;
+            sqnc.trks.get(i).setCntrl(74, cutoff);
+        }
+        return sqnc;
+    }
+
+    /**
+     * The channel events of a track as tick and message bytes, leaving out meta
+     * events such as end of track.
+     */
+    private static List<String> events(Track track) {
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < track.size(); i++) {
+            MidiEvent event = track.get(i);
+            if (event.getMessage() instanceof ShortMessage) {
+                ShortMessage message = (ShortMessage) event.getMessage();
+                events.add(event.getTick() + ":" + message.getStatus() + "," + message.getData1() + "," + message.getData2());
+            }
+        }
+        return events;
+    }
+
+    @Test
+    void writeMatchesTheSequenceRender() throws Exception {
+        Sqnc sqnc = song(2048, 4);
+        File rendered = this.dir.resolve("render.mid").toFile();
+        PrintStream stdout = System.out;
+        // render() prints every event
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (Trk trk : sqnc.trks) {
+                trk.render();
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        MidiSystem.write(sqnc.sequence, 1, rendered);
+        File written = this.dir.resolve("write.mid").toFile();
+        sqnc.write(written, false);
+
+        Sequence expected = MidiSystem.getSequence(rendered);
+        Sequence actual = MidiSystem.getSequence(written);
+        assertEquals(expected.getResolution(), actual.getResolution());
+        assertEquals(expected.getTracks().length, actual.getTracks().length);
+        for (int t = 0; t < expected.getTracks().length; t++) {
+            assertEquals(events(expected.getTracks()[t]), events(actual.getTracks()[t]), "track " + t);
+        }
+    }
+
+    @Test
+    void bridgesGapsLongerThanOneDeltaTime() throws IOException, InvalidMidiDataException {
+        long far = 3 * SmfWriter.MAX_DELTA + 5;
+        MdvntArray track = new MdvntArray();
+        track.add(0, ShortMessage.NOTE_ON, 0, 60, 100);
+        track.add(SmfWriter.MAX_DELTA, ShortMessage.NOTE_OFF, 0, 60, 0);
+        track.add(far, ShortMessage.NOTE_ON, 0, 62, 100);
+        track.add(far, ShortMessage.NOTE_ON, 0, 64, 100);
+        track.add(far + 1, ShortMessage.NOTE_OFF, 0, 62, 0);
+        File file = this.dir.resolve("gaps.mid").toFile();
+        SmfWriter.write(file, 4, new MdvntArray[] {track});
+
+        Track read = MidiSystem.getSequence(file).getTracks()[0];
+        List<Long> ticks = new ArrayList<>();
+        int fillers = 0;
+        for (int i = 0; i < read.size(); i++) {
+            MidiEvent event = read.get(i);
+            if (event.getMessage() instanceof ShortMessage) {
+                ticks.add(event.getTick());
+            } else if (((MetaMessage) event.getMessage()).getType() == 0x01) {
+                fillers++;
+            }
+        }
+        assertArrayEquals(new Long[] {0L, SmfWriter.MAX_DELTA, far, far, far + 1}, ticks.toArray(new Long[0]));
+        assertEquals(2, fillers);
+    }
+
+}
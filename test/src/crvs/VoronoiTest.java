@@ -0,0 +1,76 @@
+package crvs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import processing.core.PVector;
+
+/**
+ * Checks Voronoi region lookup against a scan of every site.
+ */
+class VoronoiTest {
+
+    private static PVector[] sites(int n, long seed) {
+        Random random = new Random(seed);
+        PVector[] sites = new PVector[n];
+        for (int i = 0; i < n; i++) {
+            sites[i] = new PVector(random.nextFloat() * 1000, random.nextFloat() * 1000);
+        }
+        return sites;
+    }
+
+    private static int nearest(PVector[] sites, float[] weights, float x, float y) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < sites.length; i++) {
+            double dx = sites[i].x - x;
+            double dy = sites[i].y - y;
+            double d = dx * dx + dy * dy - (weights == null ? 0 : weights[i]);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static void checkLocate(PVector[] sites, float[] weights) {
+        Voronoi voronoi = new Voronoi(sites, weights);
+        assertEquals(sites.length, voronoi.getRegions().length);
+        Random random = new Random(7);
+        int n = 2000;
+        float[] xs = new float[n];
+        float[] ys = new float[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextFloat() * 1000;
+            ys[i] = random.nextFloat() * 1000;
+            assertEquals(nearest(sites, weights, xs[i], ys[i]), voronoi.locate(xs[i], ys[i]), "point " + i);
+        }
+        int[] out = new int[n];
+        voronoi.locate(xs, ys, out);
+        for (int i = 0; i < n; i++) {
+            assertEquals(nearest(sites, weights, xs[i], ys[i]), out[i], "batch point " + i);
+        }
+    }
+
+    @Test
+    void locatesTheNearestSite() {
+        checkLocate(sites(1000, 1), null);
+    }
+
+    @Test
+    void locatesByPowerDistanceWhenWeighted() {
+        PVector[] sites = sites(1000, 2);
+        Random random = new Random(3);
+        float[] weights = new float[sites.length];
+        for (int i = 0; i < weights.length; i++) {
+            float radius = random.nextFloat() * 20;
+            weights[i] = radius * radius;
+        }
+        checkLocate(sites, weights);
+    }
+
+}